@@ -0,0 +1,106 @@
+package audio;
+
+/**
+ * Connects an {@link AudioSource} to a {@link SpectrumAnalyzer} and a
+ * {@link BeatDetector} on the main loop thread.
+ * <p>
+ * Called once per fixed update step: live sources are drained completely, on-demand
+ * sources are asked for exactly the samples the step covers (fractions carry over to
+ * the next step). The newest samples are then analyzed and checked for a beat.
+ * No call allocates.
+ * </p>
+ */
+public class AudioPipeline implements AutoCloseable {
+
+    private final AudioSource source;
+    private final SpectrumAnalyzer analyzer;
+    private final BeatDetector beatDetector;
+
+    /** Scratch block samples are read into before they go to the analyzer. */
+    private final float[] block;
+
+    /** Samples owed by an on-demand source, including the fraction carried over. */
+    private double pendingSamples = 0.0;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param source    where samples come from
+     * @param analyzer  spectrum analysis; should use the source's sample rate
+     * @param beatDetector  beat tracking on the analyzer's bands
+     */
+    public AudioPipeline(AudioSource source, SpectrumAnalyzer analyzer, BeatDetector beatDetector) {
+        this.source = source;
+        this.analyzer = analyzer;
+        this.beatDetector = beatDetector;
+        this.block = new float[analyzer.getFftSize()];
+    }
+
+    /**
+     * Starts the source.
+     */
+    public void start() {
+        source.start();
+    }
+
+    /**
+     * Pulls the samples belonging to one update step, refreshes the spectrum and
+     * looks for a beat.
+     *
+     * @param deltaTime  length of the update step in seconds
+     */
+    public void update(float deltaTime) {
+        if (source.isLive()) {
+            int n;
+            while ((n = source.read(block, 0, block.length)) > 0) {
+                analyzer.write(block, 0, n);
+            }
+        } else {
+            pendingSamples += source.getSampleRate() * deltaTime;
+            int due = (int) pendingSamples;
+            pendingSamples -= due;
+            while (due > 0) {
+                int n = source.read(block, 0, Math.min(due, block.length));
+                if (n == 0) break;
+                analyzer.write(block, 0, n);
+                due -= n;
+            }
+        }
+        beatDetector.process(analyzer.analyze(), deltaTime);
+    }
+
+    /**
+     * @return band magnitudes of the last update; the array is reused, so it can be
+     *         handed out once and read on every frame
+     */
+    public float[] getBands() {
+        return analyzer.getBands();
+    }
+
+    /**
+     * @return the analyzer fed by this pipeline
+     */
+    public SpectrumAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * @return the beat detector fed by this pipeline
+     */
+    public BeatDetector getBeatDetector() {
+        return beatDetector;
+    }
+
+    /**
+     * @return the source feeding this pipeline
+     */
+    public AudioSource getSource() {
+        return source;
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+
+}
@@ -0,0 +1,46 @@
+package audio;
+
+/**
+ * A source of mono PCM samples in [-1,1] feeding the {@link AudioPipeline}.
+ * <p>
+ * Live sources (capture devices) deliver whatever has arrived since the last read;
+ * the pipeline drains them completely every update. Non-live sources (synthetic
+ * generators, files) produce samples on demand; the pipeline requests exactly as
+ * many as the fixed update step covers, which keeps them in sync with the loop.
+ * </p>
+ */
+public interface AudioSource extends AutoCloseable {
+
+    /**
+     * @return sample rate of the delivered samples in Hz
+     */
+    float getSampleRate();
+
+    /**
+     * @return true if samples arrive in real time and must be drained, false if they
+     *         are produced on demand
+     */
+    boolean isLive();
+
+    /**
+     * Starts delivering samples. Called once before the first {@link #read}.
+     */
+    void start();
+
+    /**
+     * Copies up to {@code maxSamples} samples into {@code dst}. Never blocks.
+     *
+     * @param dst         destination array
+     * @param offset      index of the first sample to write
+     * @param maxSamples  maximum number of samples to write
+     * @return            number of samples written; 0 if none are available
+     */
+    int read(float[] dst, int offset, int maxSamples);
+
+    /**
+     * Stops delivery and releases all resources.
+     */
+    @Override
+    void close();
+
+}
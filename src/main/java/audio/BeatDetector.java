@@ -0,0 +1,218 @@
+package audio;
+
+import java.util.Arrays;
+
+import main.Config;
+
+/**
+ * Streaming onset/beat detector working on the band magnitudes of a {@link SpectrumAnalyzer}.
+ * <p>
+ * Every call to {@link #process} computes the spectral flux, i.e. the summed positive
+ * change of the log-compressed band magnitudes since the previous block. A beat fires
+ * when the flux rises above an adaptive threshold (mean plus {@code sensitivity}
+ * standard deviations of the recent flux history) and at least the minimum interval
+ * has passed since the last beat. Detection needs no look-ahead, so a beat is reported
+ * in the same block that contains its onset.
+ * </p>
+ * <p>
+ * The tempo estimate votes the intervals between recent beats (and their multiples)
+ * into a histogram folded into {@link #MIN_BPM}..{@link #MAX_BPM} and takes the
+ * strongest bin. All state lives in fixed-size arrays; nothing allocates after
+ * construction.
+ * </p>
+ */
+public class BeatDetector {
+
+    public static final int MIN_BPM = 60;
+    public static final int MAX_BPM = 180;
+
+    /** Number of recent beats whose intervals vote for the tempo. */
+    private static final int BEAT_HISTORY = 16;
+
+    /** Each beat votes for the intervals to up to this many following beats. */
+    private static final int MAX_INTERVAL_SPAN = 4;
+
+    /** Gain inside log(1 + gain * magnitude); compresses loud bands. */
+    private static final float COMPRESSION = 100.0f;
+
+    private final float sensitivity;
+    private final float minInterval;
+
+    /** Log-compressed bands of the previous block. */
+    private final float[] previousBands;
+    private boolean havePrevious = false;
+
+    /** Ring of recent flux values for the adaptive threshold. */
+    private final float[] fluxHistory;
+    private int fluxCount = 0;
+    private int fluxPos = 0;
+
+    /** Ring of recent beat times in seconds. */
+    private final double[] beatTimes = new double[BEAT_HISTORY];
+    private int beatCount = 0;
+
+    private final float[] tempoVotes = new float[MAX_BPM - MIN_BPM + 1];
+
+    private double time = 0.0;
+    private double lastBeatTime = Double.NEGATIVE_INFINITY;
+    private boolean wasAboveThreshold = false;
+
+    private boolean beat = false;
+    private long totalBeats = 0;
+    private float flux = 0.0f;
+    private float threshold = 0.0f;
+    private float bpm = 0.0f;
+
+    /**
+     * Creates a detector with the settings from the configuration.
+     *
+     * @param bandCount  number of bands delivered per block
+     * @param cfg        global configuration object
+     */
+    public BeatDetector(int bandCount, Config cfg) {
+        this(bandCount, cfg.BEAT_SENSITIVITY, cfg.BEAT_HISTORY_SIZE, cfg.BEAT_MIN_INTERVAL);
+    }
+
+    /**
+     * Creates a detector.
+     *
+     * @param bandCount    number of bands delivered per block
+     * @param sensitivity  standard deviations above the mean flux a beat has to reach
+     * @param historySize  number of blocks the adaptive threshold looks back
+     * @param minInterval  minimum time between two beats in seconds
+     */
+    public BeatDetector(int bandCount, float sensitivity, int historySize, float minInterval) {
+        this.sensitivity = sensitivity;
+        this.minInterval = minInterval;
+        this.previousBands = new float[bandCount];
+        this.fluxHistory = new float[historySize];
+    }
+
+    /**
+     * Processes one block of band magnitudes.
+     *
+     * @param bands      band magnitudes of the newest block, lowest band first
+     * @param deltaTime  time covered by the block in seconds
+     * @return           true if a beat starts in this block
+     */
+    public boolean process(float[] bands, float deltaTime) {
+        time += deltaTime;
+
+        // Spectral flux: positive change of the compressed magnitudes
+        float sum = 0.0f;
+        for (int b = 0; b < previousBands.length; b++) {
+            float value = (float) Math.log1p(COMPRESSION * bands[b]);
+            float rise = value - previousBands[b];
+            if (rise > 0.0f) sum += rise;
+            previousBands[b] = value;
+        }
+        flux = havePrevious ? sum : 0.0f;
+        havePrevious = true;
+
+        // Adaptive threshold from the flux history, excluding the current block
+        float mean = 0.0f;
+        for (int i = 0; i < fluxCount; i++) mean += fluxHistory[i];
+        mean = fluxCount > 0 ? mean / fluxCount : 0.0f;
+        float variance = 0.0f;
+        for (int i = 0; i < fluxCount; i++) {
+            float d = fluxHistory[i] - mean;
+            variance += d * d;
+        }
+        float deviation = fluxCount > 0 ? (float) Math.sqrt(variance / fluxCount) : 0.0f;
+        threshold = mean + sensitivity * deviation;
+
+        fluxHistory[fluxPos] = flux;
+        fluxPos = (fluxPos + 1) % fluxHistory.length;
+        if (fluxCount < fluxHistory.length) fluxCount++;
+
+        boolean above = fluxCount == fluxHistory.length && flux > threshold && flux > 0.0f;
+        beat = above && !wasAboveThreshold && time - lastBeatTime >= minInterval;
+        wasAboveThreshold = above;
+
+        if (beat) {
+            lastBeatTime = time;
+            beatTimes[(int) (totalBeats % BEAT_HISTORY)] = time;
+            totalBeats++;
+            if (beatCount < BEAT_HISTORY) beatCount++;
+            estimateTempo();
+        }
+        return beat;
+    }
+
+    /**
+     * Votes the intervals between the recent beats into the tempo histogram.
+     */
+    private void estimateTempo() {
+        Arrays.fill(tempoVotes, 0.0f);
+
+        long newest = totalBeats - 1;
+        for (int i = 0; i < beatCount; i++) {
+            double from = beatTimes[(int) ((newest - i) % BEAT_HISTORY)];
+            for (int span = 1; span <= MAX_INTERVAL_SPAN && i + span < beatCount; span++) {
+                double earlier = beatTimes[(int) ((newest - i - span) % BEAT_HISTORY)];
+                double interval = (from - earlier) / span;
+                if (interval <= 0.0) continue;
+
+                double candidate = 60.0 / interval;
+                while (candidate < MIN_BPM) candidate *= 2.0;
+                while (candidate > MAX_BPM) candidate *= 0.5;
+
+                // Spread the vote over the two nearest bins
+                double bin = candidate - MIN_BPM;
+                int low = (int) bin;
+                float frac = (float) (bin - low);
+                float weight = 1.0f / span;
+                tempoVotes[low] += weight * (1.0f - frac);
+                if (low + 1 < tempoVotes.length) tempoVotes[low + 1] += weight * frac;
+            }
+        }
+
+        int best = -1;
+        for (int b = 0; b < tempoVotes.length; b++) {
+            if (tempoVotes[b] > 0.0f && (best < 0 || tempoVotes[b] > tempoVotes[best])) best = b;
+        }
+        if (best < 0) return;
+
+        // Refine with the neighbouring bins
+        float left = best > 0 ? tempoVotes[best - 1] : 0.0f;
+        float right = best + 1 < tempoVotes.length ? tempoVotes[best + 1] : 0.0f;
+        float total = left + tempoVotes[best] + right;
+        bpm = MIN_BPM + best + (right - left) / total;
+    }
+
+    /**
+     * @return true if the last processed block contained a beat
+     */
+    public boolean isBeat() {
+        return beat;
+    }
+
+    /**
+     * @return number of beats detected so far
+     */
+    public long getBeatCount() {
+        return totalBeats;
+    }
+
+    /**
+     * @return estimated tempo in beats per minute, 0 until two beats have been detected
+     */
+    public float getBpm() {
+        return bpm;
+    }
+
+    /**
+     * @return spectral flux of the last processed block
+     */
+    public float getFlux() {
+        return flux;
+    }
+
+    /**
+     * @return adaptive threshold the last block was compared against
+     */
+    public float getThreshold() {
+        return threshold;
+    }
+
+}
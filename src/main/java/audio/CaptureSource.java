@@ -0,0 +1,158 @@
+package audio;
+
+import static org.lwjgl.openal.AL10.AL_FORMAT_MONO16;
+import static org.lwjgl.openal.ALC10.ALC_NO_ERROR;
+import static org.lwjgl.openal.ALC10.alcGetError;
+import static org.lwjgl.openal.ALC10.alcGetInteger;
+import static org.lwjgl.openal.ALC11.ALC_CAPTURE_SAMPLES;
+import static org.lwjgl.openal.ALC11.alcCaptureCloseDevice;
+import static org.lwjgl.openal.ALC11.alcCaptureOpenDevice;
+import static org.lwjgl.openal.ALC11.alcCaptureSamples;
+import static org.lwjgl.openal.ALC11.alcCaptureStart;
+import static org.lwjgl.openal.ALC11.alcCaptureStop;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.lwjgl.openal.ALC;
+
+import main.Config;
+
+/**
+ * Live microphone / line-in input through the OpenAL capture extension.
+ * <p>
+ * A dedicated daemon thread polls the capture device, converts the 16-bit mono PCM
+ * to floats and pushes it into an {@link SpscFloatRing}. The render thread drains
+ * the ring through {@link #read}, which never blocks or allocates. If the render
+ * thread falls behind, new samples are dropped and counted as overruns.
+ * </p>
+ */
+public class CaptureSource implements AudioSource {
+
+    /** Pause between polls when the device has no new samples. */
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+
+    private final float sampleRate;
+    private final long device;
+    private final SpscFloatRing ring;
+
+    /** Capture-thread scratch buffers, one device poll each. */
+    private final short[] pcm;
+    private final float[] converted;
+
+    private volatile boolean running;
+    private Thread captureThread;
+    private volatile long overruns;
+
+    /**
+     * Opens the capture device named in the configuration.
+     *
+     * @param cfg global configuration object
+     */
+    public CaptureSource(Config cfg) {
+        this(cfg.CAPTURE_DEVICE, cfg.SAMPLE_RATE, cfg.CAPTURE_BUFFER_SAMPLES);
+    }
+
+    /**
+     * Opens a capture device.
+     *
+     * @param deviceName     device specifier, or null for the default capture device
+     * @param sampleRate     requested sample rate in Hz
+     * @param bufferSamples  size of the device buffer and of the ring, in samples
+     * @throws IllegalStateException if the device cannot be opened
+     */
+    public CaptureSource(String deviceName, int sampleRate, int bufferSamples) {
+        this.sampleRate = sampleRate;
+
+        device = alcCaptureOpenDevice(deviceName, sampleRate, AL_FORMAT_MONO16, bufferSamples);
+        if (device == NULL) {
+            throw new IllegalStateException("Failed to open capture device: "
+                    + (deviceName == null ? "<default>" : deviceName));
+        }
+        ALC.createCapabilities(device);
+
+        ring = new SpscFloatRing(bufferSamples * 2);
+        pcm = new short[bufferSamples];
+        converted = new float[bufferSamples];
+    }
+
+    @Override
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean isLive() {
+        return true;
+    }
+
+    @Override
+    public void start() {
+        alcCaptureStart(device);
+        running = true;
+        captureThread = new Thread(this::captureLoop, "audio-capture");
+        captureThread.setDaemon(true);
+        captureThread.setPriority(Thread.MAX_PRIORITY);
+        captureThread.start();
+    }
+
+    /**
+     * Body of the capture thread: moves samples from the device into the ring.
+     */
+    private void captureLoop() {
+        while (running) {
+            int available = alcGetInteger(device, ALC_CAPTURE_SAMPLES);
+            if (available <= 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            int n = Math.min(available, pcm.length);
+            alcCaptureSamples(device, pcm, n);
+            for (int i = 0; i < n; i++) {
+                converted[i] = pcm[i] / 32768.0f;
+            }
+
+            int written = ring.write(converted, 0, n);
+            if (written < n) {
+                overruns += n - written;
+            }
+        }
+    }
+
+    @Override
+    public int read(float[] dst, int offset, int maxSamples) {
+        return ring.read(dst, offset, maxSamples);
+    }
+
+    /**
+     * @return number of captured samples dropped because the ring was full
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (captureThread != null) {
+            // the loop checks running once per read, so it ends within one alcCaptureSamples call
+            try {
+                captureThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (captureThread.isAlive()) {
+                // freeing the device now could pull it out from under alcCaptureSamples
+                System.err.println("Capture thread still running, leaving the capture device open");
+                return;
+            }
+        }
+        alcCaptureStop(device);
+        alcCaptureCloseDevice(device);
+        if (alcGetError(NULL) != ALC_NO_ERROR) {
+            System.err.println("Error while closing capture device");
+        }
+    }
+
+}
@@ -0,0 +1,341 @@
+package audio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays a WAV or raw PCM file as an on-demand {@link AudioSource}.
+ * <p>
+ * The sample data is memory-mapped through {@link FileChannel#map} in windows of at
+ * most {@link #MAX_WINDOW_BYTES}, so files of any length (multi-hour recordings
+ * included) stay off the heap. Frames are decoded straight from the mapping into the
+ * caller's array and down-mixed to mono; nothing is copied in between. Supports
+ * 8/16/24/32-bit integer and 32-bit float PCM, seeking and looping.
+ * </p>
+ * <p>
+ * Being an on-demand source, the {@link AudioPipeline} pulls exactly the samples each
+ * fixed update step covers, so playback stays in sync with the main loop.
+ * </p>
+ */
+public class FileSource implements AudioSource {
+
+    /** Largest region mapped at once; 1 GiB keeps well below the 2 GiB mapping limit. */
+    static final long MAX_WINDOW_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final float sampleRate;
+    private final int channels;
+    private final int bytesPerSample;
+    private final boolean floatSamples;
+    private final int frameBytes;
+
+    /** File offset and length of the sample data. */
+    private final long dataOffset;
+    private final long frameCount;
+
+    private final long windowBytes;
+    private final boolean loop;
+
+    /** Currently mapped part of the data, starting at frame windowFirstFrame. */
+    private MappedByteBuffer window;
+    private long windowFirstFrame;
+    private long windowFrameCount;
+
+    /** Next frame to deliver. */
+    private long position = 0;
+
+    /**
+     * Opens a WAV file; the format is taken from its header.
+     *
+     * @param path  the WAV file
+     * @param loop  true to restart at the beginning when the end is reached
+     * @throws UncheckedIOException if the file cannot be read or is not a supported WAV file
+     */
+    public FileSource(Path path, boolean loop) {
+        this(path, loop, MAX_WINDOW_BYTES);
+    }
+
+    /**
+     * Opens a WAV file with a custom mapping window size.
+     */
+    FileSource(Path path, boolean loop, long maxWindowBytes) {
+        this.channel = open(path);
+        this.loop = loop;
+        try {
+            WavHeader header = WavHeader.read(channel);
+            this.sampleRate = header.sampleRate;
+            this.channels = header.channels;
+            this.bytesPerSample = header.bitsPerSample / 8;
+            this.floatSamples = header.floatSamples;
+            this.dataOffset = header.dataOffset;
+            this.frameBytes = channels * bytesPerSample;
+            long dataBytes = Math.min(header.dataBytes, channel.size() - dataOffset);
+            this.frameCount = dataBytes / frameBytes;
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException("Failed to read WAV header: " + path, e);
+        }
+        this.windowBytes = Math.max(frameBytes, (maxWindowBytes / frameBytes) * frameBytes);
+    }
+
+    /**
+     * Opens a headerless file of interleaved little-endian PCM.
+     *
+     * @param path           the raw PCM file
+     * @param loop           true to restart at the beginning when the end is reached
+     * @param sampleRate     sample rate in Hz
+     * @param channels       number of interleaved channels
+     * @param bitsPerSample  8, 16, 24 or 32 (integer) bits per sample
+     * @param floatSamples   true if samples are 32-bit IEEE floats
+     */
+    public FileSource(Path path, boolean loop, float sampleRate, int channels, int bitsPerSample, boolean floatSamples) {
+        WavHeader.checkFormat(channels, bitsPerSample, floatSamples);
+        this.channel = open(path);
+        this.loop = loop;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bytesPerSample = bitsPerSample / 8;
+        this.floatSamples = floatSamples;
+        this.frameBytes = channels * bytesPerSample;
+        this.dataOffset = 0;
+        try {
+            this.frameCount = channel.size() / frameBytes;
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException("Failed to read PCM file: " + path, e);
+        }
+        this.windowBytes = (MAX_WINDOW_BYTES / frameBytes) * frameBytes;
+    }
+
+    private static FileChannel open(Path path) {
+        try {
+            return FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open audio file: " + path, e);
+        }
+    }
+
+    @Override
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean isLive() {
+        return false;
+    }
+
+    @Override
+    public void start() {
+        seekFrame(0);
+    }
+
+    @Override
+    public int read(float[] dst, int offset, int maxSamples) {
+        int written = 0;
+        while (written < maxSamples) {
+            if (position >= frameCount) {
+                if (!loop || frameCount == 0) break;
+                position = 0;
+            }
+            if (window == null || position < windowFirstFrame || position >= windowFirstFrame + windowFrameCount) {
+                mapWindow(position);
+            }
+
+            int n = (int) Math.min(maxSamples - written, windowFirstFrame + windowFrameCount - position);
+            int byteIndex = (int) ((position - windowFirstFrame) * frameBytes);
+            for (int i = 0; i < n; i++) {
+                float sum = 0.0f;
+                for (int c = 0; c < channels; c++) {
+                    sum += decode(byteIndex);
+                    byteIndex += bytesPerSample;
+                }
+                dst[offset + written + i] = sum / channels;
+            }
+            written += n;
+            position += n;
+        }
+        return written;
+    }
+
+    /**
+     * Decodes one little-endian sample at an absolute index of the mapped window.
+     */
+    private float decode(int index) {
+        switch (bytesPerSample) {
+            case 1:
+                return ((window.get(index) & 0xFF) - 128) / 128.0f;
+            case 2:
+                return window.getShort(index) / 32768.0f;
+            case 3:
+                int value = (window.get(index) & 0xFF)
+                        | (window.get(index + 1) & 0xFF) << 8
+                        | window.get(index + 2) << 16;
+                return value / 8388608.0f;
+            default:
+                return floatSamples ? window.getFloat(index) : window.getInt(index) / 2147483648.0f;
+        }
+    }
+
+    /**
+     * Maps the window containing the given frame.
+     */
+    private void mapWindow(long frame) {
+        long framesPerWindow = windowBytes / frameBytes;
+        windowFirstFrame = (frame / framesPerWindow) * framesPerWindow;
+        windowFrameCount = Math.min(framesPerWindow, frameCount - windowFirstFrame);
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY,
+                    dataOffset + windowFirstFrame * frameBytes, windowFrameCount * frameBytes);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map audio file", e);
+        }
+    }
+
+    /**
+     * Moves playback to the given time.
+     *
+     * @param seconds  position from the start of the file; clamped to its length
+     */
+    public void seek(double seconds) {
+        seekFrame((long) (seconds * sampleRate));
+    }
+
+    /**
+     * Moves playback to the given frame.
+     *
+     * @param frame  frame index; clamped to [0, frame count]
+     */
+    public void seekFrame(long frame) {
+        position = Math.max(0, Math.min(frame, frameCount));
+    }
+
+    /**
+     * @return the next frame to be delivered
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return number of frames in the file
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return length of the file in seconds
+     */
+    public double getDuration() {
+        return frameCount / (double) sampleRate;
+    }
+
+    @Override
+    public void close() {
+        window = null;
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close audio file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Format and data location parsed from a RIFF/WAVE header.
+     */
+    private static final class WavHeader {
+        private static final int FORMAT_PCM = 1;
+        private static final int FORMAT_FLOAT = 3;
+        private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+        int channels;
+        float sampleRate;
+        int bitsPerSample;
+        boolean floatSamples;
+        long dataOffset = -1;
+        long dataBytes;
+
+        static WavHeader read(FileChannel channel) throws IOException {
+            ByteBuffer chunk = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, chunk, 0);
+            if (chunk.getInt(0) != 0x46464952 || chunk.getInt(8) != 0x45564157) { // "RIFF", "WAVE"
+                throw new IOException("Not a RIFF/WAVE file");
+            }
+
+            WavHeader header = new WavHeader();
+            boolean haveFormat = false;
+            long offset = 12;
+            ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            while (offset + 8 <= channel.size()) {
+                chunkHeader.clear();
+                readFully(channel, chunkHeader, offset);
+                int id = chunkHeader.getInt(0);
+                long size = chunkHeader.getInt(4) & 0xFFFFFFFFL;
+                long body = offset + 8;
+
+                if (id == 0x20746D66) { // "fmt "
+                    ByteBuffer fmt = ByteBuffer.allocate((int) Math.min(size, 40)).order(ByteOrder.LITTLE_ENDIAN);
+                    readFully(channel, fmt, body);
+                    int format = fmt.getShort(0) & 0xFFFF;
+                    header.channels = fmt.getShort(2);
+                    header.sampleRate = fmt.getInt(4);
+                    header.bitsPerSample = fmt.getShort(14);
+                    if (format == FORMAT_EXTENSIBLE && fmt.capacity() >= 26) {
+                        format = fmt.getShort(24) & 0xFFFF;
+                    }
+                    if (format != FORMAT_PCM && format != FORMAT_FLOAT) {
+                        throw new IOException("Unsupported WAV format tag: " + format);
+                    }
+                    header.floatSamples = format == FORMAT_FLOAT;
+                    try {
+                        checkFormat(header.channels, header.bitsPerSample, header.floatSamples);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                    haveFormat = true;
+                } else if (id == 0x61746164) { // "data"
+                    header.dataOffset = body;
+                    header.dataBytes = size;
+                    break;
+                }
+                // Chunks are padded to an even size
+                offset = body + size + (size & 1);
+            }
+
+            if (!haveFormat || header.dataOffset < 0) {
+                throw new IOException("Missing fmt or data chunk");
+            }
+            return header;
+        }
+
+        static void checkFormat(int channels, int bitsPerSample, boolean floatSamples) {
+            boolean validBits = floatSamples ? bitsPerSample == 32
+                    : bitsPerSample == 8 || bitsPerSample == 16 || bitsPerSample == 24 || bitsPerSample == 32;
+            if (channels <= 0 || !validBits) {
+                throw new IllegalArgumentException("Unsupported PCM format: " + channels + " channels, "
+                        + bitsPerSample + " bits" + (floatSamples ? " float" : ""));
+            }
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package audio;
+
+/**
+ * Radix-2 FFT for real-valued input.
+ * <p>
+ * The N real samples are packed into an N/2-point complex sequence, transformed
+ * in place with an iterative radix-2 FFT and split back into the N/2 + 1 bins of
+ * the real spectrum. Bit-reversal and twiddle tables are computed once in the
+ * constructor; {@link #transform(float[], float[], float[])} never allocates.
+ * </p>
+ */
+public class RealFft {
+
+    private final int size;
+    private final int half;
+
+    /** Bit-reversed index for each position of the half-size complex FFT. */
+    private final int[] bitReverse;
+
+    /** Twiddles of the half-size complex FFT: cos/sin(2*pi*j / half). */
+    private final float[] cosTable;
+    private final float[] sinTable;
+
+    /** Twiddles of the real split step: cos/sin(2*pi*k / size). */
+    private final float[] splitCos;
+    private final float[] splitSin;
+
+    /** Scratch buffers for the packed complex sequence. */
+    private final float[] re;
+    private final float[] im;
+
+    /**
+     * Creates an FFT for the given input size.
+     *
+     * @param size number of real input samples; a power of two, at least 4
+     */
+    public RealFft(int size) {
+        if (size < 4 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two >= 4: " + size);
+        }
+        this.size = size;
+        this.half = size / 2;
+
+        int bits = Integer.numberOfTrailingZeros(half);
+        bitReverse = new int[half];
+        for (int i = 0; i < half; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+
+        cosTable = new float[half / 2];
+        sinTable = new float[half / 2];
+        for (int j = 0; j < half / 2; j++) {
+            double phi = 2.0 * Math.PI * j / half;
+            cosTable[j] = (float) Math.cos(phi);
+            sinTable[j] = (float) Math.sin(phi);
+        }
+
+        splitCos = new float[half + 1];
+        splitSin = new float[half + 1];
+        for (int k = 0; k <= half; k++) {
+            double phi = 2.0 * Math.PI * k / size;
+            splitCos[k] = (float) Math.cos(phi);
+            splitSin[k] = (float) Math.sin(phi);
+        }
+
+        re = new float[half];
+        im = new float[half];
+    }
+
+    /**
+     * @return number of real input samples
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of output bins, size / 2 + 1 (DC up to Nyquist)
+     */
+    public int getBinCount() {
+        return half + 1;
+    }
+
+    /**
+     * Computes the spectrum of {@code input}.
+     *
+     * @param input  {@link #getSize()} real samples; left untouched
+     * @param outRe  receives the real parts of bins 0..size/2
+     * @param outIm  receives the imaginary parts of bins 0..size/2
+     */
+    public void transform(float[] input, float[] outRe, float[] outIm) {
+        // Pack even samples into the real, odd samples into the imaginary part
+        for (int m = 0; m < half; m++) {
+            int r = bitReverse[m];
+            re[r] = input[2 * m];
+            im[r] = input[2 * m + 1];
+        }
+
+        complexFft();
+
+        // Split the half-size spectrum into the real spectrum
+        for (int k = 0; k <= half; k++) {
+            int a = (k == half) ? 0 : k;
+            int b = (k == 0) ? 0 : half - k;
+            float zr = re[a], zi = im[a];
+            float cr = re[b], ci = -im[b];
+
+            float er = 0.5f * (zr + cr);
+            float ei = 0.5f * (zi + ci);
+            float or = 0.5f * (zi - ci);
+            float oi = -0.5f * (zr - cr);
+
+            float wr = splitCos[k];
+            float wi = -splitSin[k];
+            outRe[k] = er + wr * or - wi * oi;
+            outIm[k] = ei + wr * oi + wi * or;
+        }
+    }
+
+    /**
+     * Iterative in-place radix-2 FFT on the bit-reversed scratch buffers.
+     */
+    private void complexFft() {
+        for (int len = 2; len <= half; len <<= 1) {
+            int halfLen = len >> 1;
+            int step = half / len;
+            for (int start = 0; start < half; start += len) {
+                for (int j = 0; j < halfLen; j++) {
+                    float wr = cosTable[j * step];
+                    float wi = -sinTable[j * step];
+
+                    int p = start + j;
+                    int q = p + halfLen;
+                    float tr = wr * re[q] - wi * im[q];
+                    float ti = wr * im[q] + wi * re[q];
+
+                    re[q] = re[p] - tr;
+                    im[q] = im[p] - ti;
+                    re[p] += tr;
+                    im[p] += ti;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package audio;
+
+import main.Config;
+
+/**
+ * Turns a stream of mono PCM samples into per-frame log-frequency band magnitudes.
+ * <p>
+ * Incoming samples are kept in a history ring of one FFT length. Each call to
+ * {@link #analyze()} windows the most recent samples (Hann), runs a {@link RealFft}
+ * and averages the bin magnitudes into bands whose edges are spaced
+ * logarithmically between a minimum and maximum frequency. All buffers are
+ * allocated up front, so writing and analyzing never allocate.
+ * </p>
+ * <p>
+ * Magnitudes are normalized to the amplitude of the input: a full-scale sine
+ * centered on a bin yields a peak of about 1.0.
+ * </p>
+ */
+public class SpectrumAnalyzer {
+
+    private final int fftSize;
+    private final float sampleRate;
+    private final RealFft fft;
+
+    /** Hann window coefficients. */
+    private final float[] window;
+
+    /** Scale turning raw bin magnitudes into input amplitude. */
+    private final float normalization;
+
+    /** Most recent fftSize samples, used circularly. */
+    private final float[] history;
+    private int writePos = 0;
+
+    /** Windowed, unrolled copy of the history fed to the FFT. */
+    private final float[] frame;
+    private final float[] binRe;
+    private final float[] binIm;
+    private final float[] magnitudes;
+
+    /** First (inclusive) and last (exclusive) FFT bin of every band. */
+    private final int[] bandStart;
+    private final int[] bandEnd;
+    private final float[] bands;
+
+    /**
+     * Creates an analyzer with the FFT size, band count and frequency range from the configuration.
+     *
+     * @param cfg global configuration object
+     */
+    public SpectrumAnalyzer(Config cfg) {
+        this(cfg.FFT_SIZE, cfg.SAMPLE_RATE, cfg.SPECTRUM_BANDS, cfg.BAND_MIN_FREQUENCY, cfg.BAND_MAX_FREQUENCY);
+    }
+
+    /**
+     * Creates an analyzer.
+     *
+     * @param fftSize     samples per analysis frame; a power of two
+     * @param sampleRate  input sample rate in Hz
+     * @param bandCount   number of log-spaced output bands
+     * @param minFreq     lower edge of the first band in Hz
+     * @param maxFreq     upper edge of the last band in Hz, clamped to Nyquist
+     */
+    public SpectrumAnalyzer(int fftSize, float sampleRate, int bandCount, float minFreq, float maxFreq) {
+        if (bandCount <= 0 || minFreq <= 0.0f || maxFreq <= minFreq) {
+            throw new IllegalArgumentException("Invalid band layout: " + bandCount + " bands, "
+                    + minFreq + " - " + maxFreq + " Hz");
+        }
+        this.fftSize = fftSize;
+        this.sampleRate = sampleRate;
+        this.fft = new RealFft(fftSize);
+
+        window = new float[fftSize];
+        float windowSum = 0.0f;
+        for (int i = 0; i < fftSize; i++) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2.0 * Math.PI * i / fftSize));
+            windowSum += window[i];
+        }
+        // A sine of amplitude A peaks at A * windowSum / 2
+        normalization = 2.0f / windowSum;
+
+        history = new float[fftSize];
+        frame = new float[fftSize];
+        binRe = new float[fft.getBinCount()];
+        binIm = new float[fft.getBinCount()];
+        magnitudes = new float[fft.getBinCount()];
+
+        bandStart = new int[bandCount];
+        bandEnd = new int[bandCount];
+        bands = new float[bandCount];
+
+        float nyquist = sampleRate / 2.0f;
+        float top = Math.min(maxFreq, nyquist);
+        double ratio = Math.log(top / minFreq);
+        for (int b = 0; b < bandCount; b++) {
+            double low = minFreq * Math.exp(ratio * b / bandCount);
+            double high = minFreq * Math.exp(ratio * (b + 1) / bandCount);
+            int start = (int) Math.round(low / sampleRate * fftSize);
+            int end = (int) Math.round(high / sampleRate * fftSize);
+            start = Math.min(start, fft.getBinCount() - 1);
+            // Every band covers at least one bin, even where bins are wider than bands
+            bandStart[b] = start;
+            bandEnd[b] = Math.max(start + 1, Math.min(end, fft.getBinCount()));
+        }
+    }
+
+    /**
+     * Appends samples to the analysis history. Only the last {@link #getFftSize()}
+     * samples are kept.
+     *
+     * @param samples  mono samples in [-1,1]
+     * @param offset   index of the first sample to take
+     * @param count    number of samples to take
+     */
+    public void write(float[] samples, int offset, int count) {
+        if (count > fftSize) {
+            offset += count - fftSize;
+            count = fftSize;
+        }
+        int first = Math.min(count, fftSize - writePos);
+        System.arraycopy(samples, offset, history, writePos, first);
+        System.arraycopy(samples, offset + first, history, 0, count - first);
+        writePos = (writePos + count) % fftSize;
+    }
+
+    /**
+     * Analyzes the most recent {@link #getFftSize()} samples and updates the band magnitudes.
+     *
+     * @return the band magnitudes, see {@link #getBands()}
+     */
+    public float[] analyze() {
+        // Unroll the ring oldest first and apply the window
+        int tail = fftSize - writePos;
+        for (int i = 0; i < tail; i++) {
+            frame[i] = history[writePos + i] * window[i];
+        }
+        for (int i = tail; i < fftSize; i++) {
+            frame[i] = history[i - tail] * window[i];
+        }
+
+        fft.transform(frame, binRe, binIm);
+
+        for (int k = 0; k < magnitudes.length; k++) {
+            magnitudes[k] = (float) Math.sqrt(binRe[k] * binRe[k] + binIm[k] * binIm[k]) * normalization;
+        }
+
+        for (int b = 0; b < bands.length; b++) {
+            float sum = 0.0f;
+            for (int k = bandStart[b]; k < bandEnd[b]; k++) {
+                sum += magnitudes[k];
+            }
+            bands[b] = sum / (bandEnd[b] - bandStart[b]);
+        }
+        return bands;
+    }
+
+    /**
+     * @return band magnitudes of the last {@link #analyze()} call, lowest band first;
+     *         the array is reused between calls
+     */
+    public float[] getBands() {
+        return bands;
+    }
+
+    /**
+     * @return per-bin magnitudes of the last {@link #analyze()} call; the array is reused between calls
+     */
+    public float[] getMagnitudes() {
+        return magnitudes;
+    }
+
+    /**
+     * @param bin  FFT bin index
+     * @return     center frequency of the bin in Hz
+     */
+    public float getBinFrequency(int bin) {
+        return bin * sampleRate / fftSize;
+    }
+
+    /**
+     * @param band  band index
+     * @return      first FFT bin of the band
+     */
+    public int getBandStartBin(int band) {
+        return bandStart[band];
+    }
+
+    /**
+     * @param band  band index
+     * @return      last FFT bin of the band, exclusive
+     */
+    public int getBandEndBin(int band) {
+        return bandEnd[band];
+    }
+
+    /**
+     * @return samples per analysis frame
+     */
+    public int getFftSize() {
+        return fftSize;
+    }
+
+    /**
+     * @return input sample rate in Hz
+     */
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+}
@@ -0,0 +1,116 @@
+package audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring buffer of float samples.
+ * <p>
+ * Exactly one thread may call {@link #write}, exactly one other thread may call
+ * {@link #read}. Both sides only publish their own position with a release store
+ * and read the other side's with an acquire load; each side also caches the last
+ * seen position of the other, so the shared counters are touched only when the
+ * cached view says the ring is full or empty. Neither side ever blocks or allocates.
+ * </p>
+ */
+public class SpscFloatRing {
+
+    private final float[] buffer;
+    private final int mask;
+
+    /** Total samples written; only the producer stores. */
+    private final AtomicLong writeIndex = new AtomicLong();
+
+    /** Total samples read; only the consumer stores. */
+    private final AtomicLong readIndex = new AtomicLong();
+
+    /** Producer-local copy of readIndex. */
+    private long cachedReadIndex;
+
+    /** Consumer-local copy of writeIndex. */
+    private long cachedWriteIndex;
+
+    /**
+     * Creates an empty ring.
+     *
+     * @param capacity  number of samples the ring can hold; rounded up to a power of two
+     */
+    public SpscFloatRing(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid ring capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.buffer = new float[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Producer side: appends as many samples as fit.
+     *
+     * @param src     source samples
+     * @param offset  index of the first sample to take
+     * @param length  number of samples to take
+     * @return        number of samples written; less than {@code length} if the ring is full
+     */
+    public int write(float[] src, int offset, int length) {
+        long w = writeIndex.getPlain();
+        int free = buffer.length - (int) (w - cachedReadIndex);
+        if (free < length) {
+            cachedReadIndex = readIndex.getAcquire();
+            free = buffer.length - (int) (w - cachedReadIndex);
+        }
+        int n = Math.min(length, free);
+        if (n <= 0) return 0;
+
+        int start = (int) w & mask;
+        int first = Math.min(n, buffer.length - start);
+        System.arraycopy(src, offset, buffer, start, first);
+        System.arraycopy(src, offset + first, buffer, 0, n - first);
+
+        writeIndex.setRelease(w + n);
+        return n;
+    }
+
+    /**
+     * Consumer side: takes up to {@code maxLength} samples, oldest first.
+     *
+     * @param dst        destination array
+     * @param offset     index of the first sample to write
+     * @param maxLength  maximum number of samples to take
+     * @return           number of samples read; 0 if the ring is empty
+     */
+    public int read(float[] dst, int offset, int maxLength) {
+        long r = readIndex.getPlain();
+        int available = (int) (cachedWriteIndex - r);
+        if (available < maxLength) {
+            cachedWriteIndex = writeIndex.getAcquire();
+            available = (int) (cachedWriteIndex - r);
+        }
+        int n = Math.min(maxLength, available);
+        if (n <= 0) return 0;
+
+        int start = (int) r & mask;
+        int first = Math.min(n, buffer.length - start);
+        System.arraycopy(buffer, start, dst, offset, first);
+        System.arraycopy(buffer, 0, dst, offset + first, n - first);
+
+        readIndex.setRelease(r + n);
+        return n;
+    }
+
+    /**
+     * @return number of samples currently buffered; exact only when called from the
+     *         consumer thread, an estimate otherwise
+     */
+    public int available() {
+        return (int) (writeIndex.getAcquire() - readIndex.getAcquire());
+    }
+
+    /**
+     * @return number of samples the ring can hold
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+}
@@ -0,0 +1,69 @@
+package audio;
+
+/**
+ * Generated stand-in for a capture device, for machines without audio hardware.
+ * <p>
+ * Produces a steady 440 Hz tone plus a decaying 60 Hz kick on every beat, so both
+ * the spectrum and beat-driven effects have something to react to. Samples are
+ * produced on demand and fully deterministic.
+ * </p>
+ */
+public class SyntheticSource implements AudioSource {
+
+    private static final double TONE_FREQUENCY = 440.0;
+    private static final double KICK_FREQUENCY = 60.0;
+    private static final double KICK_DECAY = 12.0;
+
+    private final float sampleRate;
+    private final double samplesPerBeat;
+
+    /** Total samples produced so far. */
+    private long position = 0;
+
+    /**
+     * Creates a generator.
+     *
+     * @param sampleRate  sample rate in Hz
+     * @param bpm         tempo of the kick pulses in beats per minute
+     */
+    public SyntheticSource(float sampleRate, float bpm) {
+        this.sampleRate = sampleRate;
+        this.samplesPerBeat = sampleRate * 60.0 / bpm;
+    }
+
+    @Override
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean isLive() {
+        return false;
+    }
+
+    @Override
+    public void start() {
+        position = 0;
+    }
+
+    @Override
+    public int read(float[] dst, int offset, int maxSamples) {
+        for (int i = 0; i < maxSamples; i++) {
+            double t = position / (double) sampleRate;
+            double sinceBeat = (position % samplesPerBeat) / sampleRate;
+
+            double tone = 0.2 * Math.sin(2.0 * Math.PI * TONE_FREQUENCY * t);
+            double kick = 0.7 * Math.exp(-KICK_DECAY * sinceBeat)
+                    * Math.sin(2.0 * Math.PI * KICK_FREQUENCY * sinceBeat);
+
+            dst[offset + i] = (float) (tone + kick);
+            position++;
+        }
+        return maxSamples;
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
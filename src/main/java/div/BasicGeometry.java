@@ -2,6 +2,8 @@ package div;
 
 import java.util.Random;
 
+import layerdata.ShapeLibrary;
+
 public class BasicGeometry {
     public static final double[] levelSettings = new double[20];
     private static Float32Array[] lastData = null;
@@ -68,37 +70,37 @@ public class BasicGeometry {
     }
 
     private static Float32Array Triangle(double lscale, Float32Array arr) {
-        int numVert = (int) (levelSettings[2] / 100);
-        int rVert = numVert - (numVert % 3);
-        if (arr == null || arr.length() != rVert) {
-            return new Float32Array(rVert);
-        }
-        return arr;
+        int rVert = roundVertices(3);
+        return fill(ShapeLibrary.polygon(3, rVert, (float) lscale), arr);
     }
 
     private static Float32Array Circle(double lscale, Float32Array arr) {
-        int numVert = (int) (levelSettings[2] / 100);
-        if (arr == null || arr.length() != numVert) {
-            return new Float32Array(numVert);
-        }
-        return arr;
+        int rVert = roundVertices(1);
+        return fill(ShapeLibrary.circle(rVert, (float) lscale), arr);
     }
 
     private static Float32Array Rektangle(double lscale, Float32Array arr) {
-        int numVert = (int) (levelSettings[2] / 100);
-        int rVert = numVert - (numVert % 4);
-        if (arr == null || arr.length() != rVert) {
-            return new Float32Array(rVert);
-        }
-        return arr;
+        int rVert = roundVertices(4);
+        return fill(ShapeLibrary.polygon(4, rVert, (float) lscale), arr);
     }
 
     private static Float32Array Cross(double lscale, Float32Array arr) {
+        int rVert = roundVertices(12);
+        return fill(ShapeLibrary.cross(rVert, (float) lscale), arr);
+    }
+
+    // Punktezahl aus levelSettings[2], abgerundet auf ein Vielfaches der Ecken, mindestens so viele Punkte wie Ecken
+    private static int roundVertices(int corners) {
         int numVert = (int) (levelSettings[2] / 100);
-        int rVert = numVert - (numVert % 12);
-        if (arr == null || arr.length() != rVert) {
-            return new Float32Array(rVert);
+        return Math.max(corners, numVert - (numVert % corners));
+    }
+
+    // Kopiert die Punkte (x0, y0, x1, y1, ...) in das alte Array, wenn die Länge passt
+    private static Float32Array fill(float[] xy, Float32Array arr) {
+        if (arr == null || arr.length() != xy.length) {
+            return new Float32Array(xy);
         }
+        System.arraycopy(xy, 0, arr.getData(), 0, xy.length);
         return arr;
     }
-} 
\ No newline at end of file
+}
@@ -1,15 +0,0 @@
-package layerdata;
-
-/**
- * A simple 2D point.
- */
-public class Coordinate2D {
-
-    public float x,y;
-
-    public Coordinate2D(float x, float y) {
-        this.x = x;
-        this.y = y;
-    }
-
-}
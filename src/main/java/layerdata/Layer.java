@@ -1,70 +1,60 @@
 package layerdata;
 
-import java.util.ArrayList;
-
 /**
- * Represents a single layer in 3D space, consisting of a fixed set of 2D coordinates,
- * a global depth (z‑value), a color (RGBA), and an optional rotation angle.
+ * View onto a single layer held by a {@link LayerStore}: a global depth (z‑value),
+ * a color (RGBA), a rotation angle and an oscillation time, plus the shape shared
+ * by all layers of the store.
  * <p>
- * Each Layer holds its vertex pattern in a List of Coordinate2D and manages
- * its own depth and color independently. Rotations and fade‑in/out times can
- * be animated externally.
+ * The data itself lives in the store's primitive columns; a view only remembers
+ * its slot. Views are meant for debugging and tooling; the update and render loops
+ * work on the columns directly.
  * </p>
  */
 public class Layer {
-	/** The 2D shape of this layer, in model coordinates. */
-	private ArrayList<Coordinate2D> coordinates;
-
-	/** Distance from camera along the z‑axis. */
-	private float z;
-
-	/** Color of this layer, as {r,g,b,a}. */
-	private float[] rgba;
+	/** The store holding this layer's data. */
+	private final LayerStore store;
 
-	/** Current rotation angle in degrees. */
-	private float rotationAngle = 0.0f;
-
-	/** Elapsed time counter for per‑layer oscillations. */
-	public float time = 0.0f;
+	/** Slot of this layer in the store's columns. */
+	private final int slot;
 
 	/**
-	 * Creates a new Layer with the given color and initial depth.
+	 * Creates a view onto the given slot.
 	 *
-	 * @param rgba   an array of four floats {r,g,b,a}, each in [0,1]
-	 * @param initZ  the initial z‑distance from the camera
+	 * @param store  the store holding the layer
+	 * @param slot   the layer's slot in the store's columns
 	 */
-	public Layer(float[] rgba, int initZ) {
-		this.rgba = rgba;
-		this.coordinates = new ArrayList<>();
-		this.coordinates = createShape();
-		this.z = initZ;
+	Layer(LayerStore store, int slot) {
+		this.store = store;
+		this.slot = slot;
 	}
 
 	/**
 	 * @return the current z‑distance of this layer
 	 */
 	public float getZ() {
-		return z;
+		return store.depths()[slot];
 	}
 
 	/**
 	 * @param z  the new z‑distance of this layer
 	 */
 	public void setZ(float z) {
-		this.z = z;
+		store.depths()[slot] = z;
 	}
 
 	/**
-	 * @return a mutable list of 2D coordinates defining this layer’s shape
+	 * @return the 2D shape of this layer, in model coordinates
 	 */
-	public ArrayList<Coordinate2D> getCoordinates() {
-		return coordinates;
+	public Shape getShape() {
+		return store.getShape();
 	}
 
 	/**
-	 * @return the current RGBA color array of this layer
+	 * @return a copy of the current RGBA color of this layer
 	 */
 	public float[] getColor() {
+		float[] rgba = new float[LayerStore.COLOR_STRIDE];
+		System.arraycopy(store.colors(), slot * LayerStore.COLOR_STRIDE, rgba, 0, LayerStore.COLOR_STRIDE);
 		return rgba;
 	}
 
@@ -74,61 +64,85 @@ public class Layer {
 	 * @param rgba  an array of four floats {r,g,b,a}, each in [0,1]
 	 */
 	public void setColor(float[] rgba) {
-		this.rgba = rgba;
+		store.setColor(slot, rgba);
 	}
 
 	/**
 	 * @return the current rotation angle in degrees
 	 */
 	public float getRotationAngle() {
-		return rotationAngle;
+		return store.angles()[slot];
 	}
 
 	/**
 	 * @param rotAngle new rotation angle in degrees
 	 */
 	public void setRotationAngle(float rotAngle) {
-		this.rotationAngle = rotAngle;
+		store.angles()[slot] = rotAngle;
 	}
 
 	/**
-	 * Constructs the default shape for all layers.
-	 * By default, returns a 16‑point “star” shape.
+	 * @return the elapsed time counter for per‑layer oscillations
+	 */
+	public float getTime() {
+		return store.times()[slot];
+	}
+
+	/**
+	 * @param time  the new oscillation time counter
+	 */
+	public void setTime(float time) {
+		store.times()[slot] = time;
+	}
+
+	/**
+	 * Returns the default shape for all layers: the classic 16‑point pattern.
 	 *
-	 * @return a new List of 2D coordinates
+	 * @return the shared default shape
 	 */
-    public static ArrayList<Coordinate2D> createShape() {
-    	return createSquare();
+    public static Shape createShape() {
+    	return CLASSIC;
     }
 
 	/**
-	 * Produces a symmetric 16‑point pattern around the origin.
+	 * Returns a generated shape from {@link ShapeLibrary#shared()}; equal arguments
+	 * give the same instance.
 	 *
-	 * @return coordinates of the pattern
+	 * @param id        shape id, e.g. {@link ShapeLibrary#STAR}
+	 * @param vertices  number of points along the outline
+	 * @param scale     radius of the outline in model units
+	 * @return          the shared shape
+	 */
+    public static Shape createShape(int id, int vertices, float scale) {
+    	return ShapeLibrary.shared().get(id, vertices, scale);
+    }
+
+	/** Symmetric 16‑point pattern around the origin. */
+    static final Shape CLASSIC = new Shape(classicPoints());
+
+	/**
+	 * @return interleaved coordinates of the 16‑point pattern
 	 */
-    public static ArrayList<Coordinate2D> createSquare() {
-        ArrayList<Coordinate2D> coordinates = new ArrayList<>();
-        
-        coordinates.add(new Coordinate2D(260, 0));
-        coordinates.add(new Coordinate2D(0, 260));
-        coordinates.add(new Coordinate2D(-260, 0));
-        coordinates.add(new Coordinate2D(0, -260));
-        
-        coordinates.add(new Coordinate2D(275, 150));
-        coordinates.add(new Coordinate2D(275, -150));
-        coordinates.add(new Coordinate2D(150, 275));
-        coordinates.add(new Coordinate2D(150, -275));
-        coordinates.add(new Coordinate2D(-275, 150));
-        coordinates.add(new Coordinate2D(-275, -150));
-        coordinates.add(new Coordinate2D(-150, 275));
-        coordinates.add(new Coordinate2D(-150, -275));
-
-        coordinates.add(new Coordinate2D(300, 300));
-        coordinates.add(new Coordinate2D(-300, 300));
-        coordinates.add(new Coordinate2D(300, -300));
-        coordinates.add(new Coordinate2D(-300, -300));
-        
-        return coordinates;
+    static float[] classicPoints() {
+        return new float[] {
+                260, 0,
+                0, 260,
+                -260, 0,
+                0, -260,
+
+                275, 150,
+                275, -150,
+                150, 275,
+                150, -275,
+                -275, 150,
+                -275, -150,
+                -150, 275,
+                -150, -275,
+
+                300, 300,
+                -300, 300,
+                300, -300,
+                -300, -300};
     }
 
 }
@@ -0,0 +1,269 @@
+package layerdata;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Structure-of-arrays store holding all active layers in depth order.
+ * <p>
+ * Depth, rotation angle, oscillation time, color and image live in primitive columns
+ * indexed by slot; all layers share one immutable {@link Shape}. The slots form a
+ * fixed-capacity ring buffer: index 0 is the front (farthest, most recently
+ * spawned layer), index {@code size() - 1} the back (nearest layer). Spawning and
+ * removing are O(1) and never allocate.
+ * </p>
+ * <p>
+ * Hot loops walk the columns directly via {@link #slot(int)}; {@link #view(int)}
+ * offers the old {@link Layer} API for debugging.
+ * </p>
+ */
+public class LayerStore {
+
+	/** Floats per slot in the color column. */
+	public static final int COLOR_STRIDE = 4;
+
+	private final int capacity;
+
+	/** Distance from camera along the z‑axis, per slot. */
+	private final float[] z;
+
+	/** Current rotation angle in degrees, per slot. */
+	private final float[] angle;
+
+	/** Elapsed time counter for per‑layer oscillations, per slot. */
+	private final float[] time;
+
+	/** Colors as {r,g,b,a} quadruples, {@link #COLOR_STRIDE} floats per slot. */
+	private final float[] rgba;
+
+	/** Texture atlas image index, per slot. */
+	private final int[] image;
+
+	/** Spawn serial number, per slot; identifies a layer across copies of the store. */
+	private final int[] serial;
+
+	/** Serial number of the next spawned layer. */
+	private int nextSerial = 0;
+
+	/** The shape shared by all layers of this store. */
+	private final Shape shape;
+
+	/** Slot of the front layer. */
+	private int head = 0;
+
+	/** Number of layers currently held. */
+	private int size = 0;
+
+	/**
+	 * Creates an empty store.
+	 *
+	 * @param capacity  maximum number of layers the store can hold
+	 * @param shape     the shape shared by all layers
+	 */
+	public LayerStore(int capacity, Shape shape) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.shape = shape;
+		this.z = new float[capacity];
+		this.angle = new float[capacity];
+		this.time = new float[capacity];
+		this.rgba = new float[capacity * COLOR_STRIDE];
+		this.image = new int[capacity];
+		this.serial = new int[capacity];
+	}
+
+	/**
+	 * Computes a capacity large enough for every layer that can be alive at once
+	 * when layers spawn at {@code initZ} every {@code layerDistance} units.
+	 * The slack covers layers spawned in the same tick and the one awaiting removal.
+	 *
+	 * @param initZ          spawn depth of new layers
+	 * @param layerDistance  z spacing between consecutive layers
+	 * @return               the store capacity to use
+	 */
+	public static int capacityFor(int initZ, int layerDistance) {
+		return initZ / layerDistance + 3;
+	}
+
+	/**
+	 * Inserts a layer in front of all others. Angle, time and image start at zero,
+	 * the color is left for the caller to fill via {@link #colors()}.
+	 *
+	 * @param initZ  the initial z‑distance from the camera
+	 * @return       the slot of the new layer
+	 * @throws IllegalStateException if the store is full
+	 */
+	public int pushFront(float initZ) {
+		if (size == capacity) {
+			throw new IllegalStateException("Layer store is full (capacity " + capacity + ")");
+		}
+		head = (head == 0) ? capacity - 1 : head - 1;
+		z[head] = initZ;
+		angle[head] = 0.0f;
+		time[head] = 0.0f;
+		image[head] = 0;
+		serial[head] = nextSerial++;
+		size++;
+		return head;
+	}
+
+	/**
+	 * Removes the nearest layer.
+	 *
+	 * @throws NoSuchElementException if the store is empty
+	 */
+	public void popBack() {
+		if (size == 0) {
+			throw new NoSuchElementException("Layer store is empty");
+		}
+		size--;
+	}
+
+	/**
+	 * @return the z‑distance of the nearest layer
+	 * @throws NoSuchElementException if the store is empty
+	 */
+	public float backZ() {
+		if (size == 0) {
+			throw new NoSuchElementException("Layer store is empty");
+		}
+		return z[slot(size - 1)];
+	}
+
+	/**
+	 * Maps a depth position to its slot in the columns.
+	 *
+	 * @param index  depth position, 0 = farthest
+	 * @return       the slot holding that layer
+	 */
+	public int slot(int index) {
+		int s = head + index;
+		return (s >= capacity) ? s - capacity : s;
+	}
+
+	/**
+	 * Copies a color into the given slot.
+	 *
+	 * @param slot   the layer slot
+	 * @param color  an array of four floats {r,g,b,a}, each in [0,1]
+	 */
+	public void setColor(int slot, float[] color) {
+		System.arraycopy(color, 0, rgba, slot * COLOR_STRIDE, COLOR_STRIDE);
+	}
+
+	/**
+	 * @return the z column, indexed by slot
+	 */
+	public float[] depths() {
+		return z;
+	}
+
+	/**
+	 * @return the rotation angle column in degrees, indexed by slot
+	 */
+	public float[] angles() {
+		return angle;
+	}
+
+	/**
+	 * @return the oscillation time column, indexed by slot
+	 */
+	public float[] times() {
+		return time;
+	}
+
+	/**
+	 * @return the color column, {@link #COLOR_STRIDE} floats per slot
+	 */
+	public float[] colors() {
+		return rgba;
+	}
+
+	/**
+	 * @return the texture atlas image column, indexed by slot
+	 */
+	public int[] images() {
+		return image;
+	}
+
+	/**
+	 * @return the spawn serial column, indexed by slot; serials increase towards the front
+	 */
+	public int[] serials() {
+		return serial;
+	}
+
+	/**
+	 * @return the shape shared by all layers
+	 */
+	public Shape getShape() {
+		return shape;
+	}
+
+	/**
+	 * Creates a {@link Layer} view of the layer at the given depth position.
+	 * The view stays bound to its slot, so it is only valid until that layer is removed.
+	 *
+	 * @param index  depth position, 0 = farthest
+	 * @return       a new view onto that layer
+	 */
+	public Layer view(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+		return new Layer(this, slot(index));
+	}
+
+	/**
+	 * @return the number of layers currently held
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if no layer is held
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the maximum number of layers the store can hold
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Makes this store an exact copy of another one, slots and serials included.
+	 * Never allocates.
+	 *
+	 * @param other  the store to copy; must have the same capacity and shape
+	 * @throws IllegalArgumentException if the capacities or shapes differ
+	 */
+	public void copyFrom(LayerStore other) {
+		if (other.capacity != capacity || other.shape != shape) {
+			throw new IllegalArgumentException("Stores differ in capacity or shape");
+		}
+		System.arraycopy(other.z, 0, z, 0, capacity);
+		System.arraycopy(other.angle, 0, angle, 0, capacity);
+		System.arraycopy(other.time, 0, time, 0, capacity);
+		System.arraycopy(other.rgba, 0, rgba, 0, rgba.length);
+		System.arraycopy(other.image, 0, image, 0, capacity);
+		System.arraycopy(other.serial, 0, serial, 0, capacity);
+		head = other.head;
+		size = other.size;
+		nextSerial = other.nextSerial;
+	}
+
+	/**
+	 * Removes all layers.
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+}
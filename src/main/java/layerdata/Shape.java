@@ -0,0 +1,81 @@
+package layerdata;
+
+/**
+ * Immutable 2D point set in model coordinates, shared by every layer that uses it.
+ * <p>
+ * Points are stored as two primitive arrays so projection loops can walk them
+ * without touching any per-point objects.
+ * </p>
+ */
+public final class Shape {
+
+	private final float[] xs;
+	private final float[] ys;
+	private final float innerRadius;
+	private final float outerRadius;
+
+	/**
+	 * Creates a shape from interleaved coordinates {x0, y0, x1, y1, ...}.
+	 *
+	 * @param xy  interleaved model coordinates; copied, so the caller may reuse it
+	 */
+	public Shape(float... xy) {
+		if (xy.length % 2 != 0) {
+			throw new IllegalArgumentException("Coordinates must come in x/y pairs");
+		}
+		int count = xy.length / 2;
+		this.xs = new float[count];
+		this.ys = new float[count];
+		float minSquared = Float.MAX_VALUE;
+		float maxSquared = 0.0f;
+		for (int i = 0; i < count; i++) {
+			xs[i] = xy[2 * i];
+			ys[i] = xy[2 * i + 1];
+			float squared = xs[i] * xs[i] + ys[i] * ys[i];
+			minSquared = Math.min(minSquared, squared);
+			maxSquared = Math.max(maxSquared, squared);
+		}
+		this.innerRadius = (count > 0) ? (float) Math.sqrt(minSquared) : 0.0f;
+		this.outerRadius = (float) Math.sqrt(maxSquared);
+	}
+
+	/**
+	 * @return the number of points of this shape
+	 */
+	public int size() {
+		return xs.length;
+	}
+
+	/**
+	 * @return the distance of the point closest to the origin; no rotation brings
+	 *         any point nearer to the center
+	 */
+	public float innerRadius() {
+		return innerRadius;
+	}
+
+	/**
+	 * @return the distance of the point farthest from the origin; the shape stays
+	 *         within this circle at any rotation
+	 */
+	public float outerRadius() {
+		return outerRadius;
+	}
+
+	/**
+	 * @param i  point index
+	 * @return   the model-space x coordinate of point i
+	 */
+	public float getX(int i) {
+		return xs[i];
+	}
+
+	/**
+	 * @param i  point index
+	 * @return   the model-space y coordinate of point i
+	 */
+	public float getY(int i) {
+		return ys[i];
+	}
+
+}
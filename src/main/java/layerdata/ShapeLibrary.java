@@ -0,0 +1,272 @@
+package layerdata;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Procedural layer shapes: regular polygons, circles, crosses and stars with any
+ * number of points, spaced evenly along the outline.
+ * <p>
+ * Generated shapes are kept in a bounded least-recently-used cache keyed by
+ * (shape id, vertex count, scale). Asking twice for the same key returns the same
+ * immutable {@link Shape} instance, so switching between cached shapes allocates
+ * nothing, and stores, snapshots and projectors that compare shapes by identity
+ * see one shape. An evicted shape stays valid for whoever holds it; only a later
+ * request for its key builds a new instance. The classic pattern is a constant
+ * outside the cache and never changes identity.
+ * </p>
+ */
+public class ShapeLibrary {
+
+	/** The hand-made 16-point pattern; ignores vertex count and scale. */
+	public static final int CLASSIC = 0;
+	public static final int TRIANGLE = 1;
+	public static final int SQUARE = 2;
+	public static final int CIRCLE = 3;
+	public static final int CROSS = 4;
+	public static final int STAR = 5;
+
+	/** Number of shapes the {@link #shared()} library keeps. */
+	public static final int DEFAULT_CAPACITY = 32;
+
+	/** Half the arm width of a cross, relative to its radius. */
+	private static final float CROSS_ARM = 1.0f / 3.0f;
+
+	/** Points of a star and the radius of its inner corners, relative to the outer ones. */
+	private static final int STAR_POINTS = 5;
+	private static final float STAR_INNER = 0.45f;
+
+	private static final ShapeLibrary SHARED = new ShapeLibrary(DEFAULT_CAPACITY);
+
+	private final int capacity;
+
+	/** Access-ordered, so the eldest entry is the least recently used one. */
+	private final LinkedHashMap<Key, Shape> cache;
+
+	/**
+	 * Creates an empty library.
+	 *
+	 * @param capacity  maximum number of shapes kept; the least recently used one is
+	 *                  dropped when a new shape would exceed it
+	 */
+	public ShapeLibrary(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Shape> eldest) {
+				return size() > ShapeLibrary.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * @return the library behind {@link Layer#createShape(int, int, float)}
+	 */
+	public static ShapeLibrary shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Returns the cached shape for the key, generating it on the first request.
+	 *
+	 * @param id        one of {@link #CLASSIC}, {@link #TRIANGLE}, {@link #SQUARE},
+	 *                  {@link #CIRCLE}, {@link #CROSS}, {@link #STAR}
+	 * @param vertices  number of points along the outline
+	 * @param scale     radius of the outline's farthest corner, in model units
+	 * @return          the shared shape
+	 * @throws IllegalArgumentException if the id is unknown or vertices is not positive
+	 */
+	public synchronized Shape get(int id, int vertices, float scale) {
+		if (id == CLASSIC) {
+			return Layer.CLASSIC;
+		}
+		Key key = new Key(id, vertices, scale);
+		Shape shape = cache.get(key);
+		if (shape == null) {
+			shape = new Shape(points(id, vertices, scale));
+			cache.put(key, shape);
+		}
+		return shape;
+	}
+
+	/**
+	 * @return the number of shapes currently cached
+	 */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Generates a shape's points without caching them.
+	 *
+	 * @param id        shape id, see {@link #get(int, int, float)}
+	 * @param vertices  number of points along the outline
+	 * @param scale     radius of the outline's farthest corner, in model units
+	 * @return          interleaved coordinates {x0, y0, x1, y1, ...}
+	 * @throws IllegalArgumentException if the id is unknown or vertices is not positive
+	 */
+	public static float[] points(int id, int vertices, float scale) {
+		if (id == CLASSIC) {
+			return Layer.classicPoints();
+		}
+		if (vertices <= 0) {
+			throw new IllegalArgumentException("Vertex count must be positive: " + vertices);
+		}
+		switch (id) {
+			case TRIANGLE:
+				return polygon(3, vertices, scale);
+			case SQUARE:
+				return polygon(4, vertices, scale);
+			case CIRCLE:
+				return circle(vertices, scale);
+			case CROSS:
+				return cross(vertices, scale);
+			case STAR:
+				return star(vertices, scale);
+			default:
+				throw new IllegalArgumentException("Unknown shape id: " + id);
+		}
+	}
+
+	/**
+	 * Regular polygon with its first corner pointing up.
+	 *
+	 * @param sides     number of corners, at least 3
+	 * @param vertices  number of points along the outline; multiples of sides hit every corner
+	 * @param radius    distance of the corners from the origin
+	 * @return          interleaved coordinates
+	 */
+	public static float[] polygon(int sides, int vertices, float radius) {
+		if (sides < 3) {
+			throw new IllegalArgumentException("A polygon needs at least 3 sides: " + sides);
+		}
+		float[] corners = new float[2 * sides];
+		for (int i = 0; i < sides; i++) {
+			double phi = Math.PI / 2.0 + 2.0 * Math.PI * i / sides;
+			corners[2 * i] = (float) (radius * Math.cos(phi));
+			corners[2 * i + 1] = (float) (radius * Math.sin(phi));
+		}
+		return outline(corners, vertices);
+	}
+
+	/**
+	 * Points on a circle, the first one on the positive x axis.
+	 *
+	 * @param vertices  number of points
+	 * @param radius    circle radius
+	 * @return          interleaved coordinates
+	 */
+	public static float[] circle(int vertices, float radius) {
+		float[] xy = new float[2 * vertices];
+		for (int i = 0; i < vertices; i++) {
+			double phi = 2.0 * Math.PI * i / vertices;
+			xy[2 * i] = (float) (radius * Math.cos(phi));
+			xy[2 * i + 1] = (float) (radius * Math.sin(phi));
+		}
+		return xy;
+	}
+
+	/**
+	 * Outline of a plus sign whose arm tips reach the radius; 12 corners.
+	 *
+	 * @param vertices  number of points along the outline
+	 * @param radius    distance of the arm tips from the origin
+	 * @return          interleaved coordinates
+	 */
+	public static float[] cross(int vertices, float radius) {
+		float r = radius;
+		float w = radius * CROSS_ARM;
+		float[] corners = {
+				w, r,  -w, r,  -w, w,
+				-r, w,  -r, -w,  -w, -w,
+				-w, -r,  w, -r,  w, -w,
+				r, -w,  r, w,  w, w
+		};
+		return outline(corners, vertices);
+	}
+
+	/**
+	 * Outline of a five-pointed star with its first point up; 10 corners.
+	 *
+	 * @param vertices  number of points along the outline
+	 * @param radius    distance of the star's points from the origin
+	 * @return          interleaved coordinates
+	 */
+	public static float[] star(int vertices, float radius) {
+		int cornerCount = 2 * STAR_POINTS;
+		float[] corners = new float[2 * cornerCount];
+		for (int i = 0; i < cornerCount; i++) {
+			double phi = Math.PI / 2.0 + Math.PI * i / STAR_POINTS;
+			float r = (i % 2 == 0) ? radius : radius * STAR_INNER;
+			corners[2 * i] = (float) (r * Math.cos(phi));
+			corners[2 * i + 1] = (float) (r * Math.sin(phi));
+		}
+		return outline(corners, vertices);
+	}
+
+	/**
+	 * Spaces points evenly by arc length along a closed polyline, starting at its
+	 * first corner.
+	 *
+	 * @param corners   interleaved corner coordinates; the last corner connects to the first
+	 * @param vertices  number of points
+	 * @return          interleaved coordinates
+	 */
+	private static float[] outline(float[] corners, int vertices) {
+		int cornerCount = corners.length / 2;
+		double[] lengths = new double[cornerCount];
+		double perimeter = 0.0;
+		for (int c = 0; c < cornerCount; c++) {
+			int next = (c + 1) % cornerCount;
+			lengths[c] = Math.hypot(corners[2 * next] - corners[2 * c], corners[2 * next + 1] - corners[2 * c + 1]);
+			perimeter += lengths[c];
+		}
+
+		float[] xy = new float[2 * vertices];
+		int edge = 0;
+		double edgeStart = 0.0;
+		for (int i = 0; i < vertices; i++) {
+			double s = perimeter * i / vertices;
+			while (edge < cornerCount - 1 && s >= edgeStart + lengths[edge]) {
+				edgeStart += lengths[edge];
+				edge++;
+			}
+			int next = (edge + 1) % cornerCount;
+			double t = (lengths[edge] > 0.0) ? (s - edgeStart) / lengths[edge] : 0.0;
+			xy[2 * i] = (float) (corners[2 * edge] + t * (corners[2 * next] - corners[2 * edge]));
+			xy[2 * i + 1] = (float) (corners[2 * edge + 1] + t * (corners[2 * next + 1] - corners[2 * edge + 1]));
+		}
+		return xy;
+	}
+
+	/** Cache key; the scale is compared by its bits, like {@link Float#equals(Object)}. */
+	private static final class Key {
+		private final int id;
+		private final int vertices;
+		private final int scaleBits;
+
+		Key(int id, int vertices, float scale) {
+			this.id = id;
+			this.vertices = vertices;
+			this.scaleBits = Float.floatToIntBits(scale);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return id == other.id && vertices == other.vertices && scaleBits == other.scaleBits;
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * id + vertices) * 31 + scaleBits;
+		}
+	}
+
+}
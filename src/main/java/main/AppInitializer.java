@@ -1,11 +1,28 @@
 package main;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
+
+import audio.AudioPipeline;
+import audio.AudioSource;
+import audio.BeatDetector;
+import audio.CaptureSource;
+import audio.FileSource;
+import audio.SpectrumAnalyzer;
+import audio.SyntheticSource;
+import layerdata.Layer;
+import layerdata.Shape;
+import rendering.OffscreenTarget;
 import rendering.Quad;
 import rendering.ShaderProgram;
+import utility.AsyncTextureLoader;
+import utility.TextureAtlas;
 import utility.Utils;
 
 import static org.lwjgl.glfw.GLFW.*;
@@ -23,9 +40,18 @@ public class AppInitializer {
     private long window;
     private int vaoId;
     private int textureId;
+    private TextureAtlas textureAtlas;
+    private AsyncTextureLoader textureLoader;
     private ShaderProgram shader;
+    private ShaderProgram instancedShader;
+    private int shapeVaoId;
+    private int shapePointCount;
+    private AudioPipeline audio;
     private float FPS;
+    private int refreshRate;
     private boolean debugMode;
+    private boolean exportMode;
+    private OffscreenTarget offscreenTarget;
 
     /**
      * Initializes the window, OpenGL context, shader program, texture and quad.
@@ -33,8 +59,14 @@ public class AppInitializer {
     public void init() {
         Config cfg = Config.get();
         this.debugMode = cfg.DEBUG_MODE;
+        this.exportMode = cfg.EXPORT_MODE;
+        // Standard output carries the frames when exporting to "-"; log to standard error instead
+        if (exportMode && "-".equals(cfg.exportPath)) System.setOut(System.err);
 
         GLFWErrorCallback.createPrint(System.err).set();
+        // Without a display server only the null platform can create a context, through OSMesa
+        boolean noDisplay = exportMode && cfg.EXPORT_NO_DISPLAY && glfwPlatformSupported(GLFW_PLATFORM_NULL);
+        if (noDisplay) glfwInitHint(GLFW_PLATFORM, GLFW_PLATFORM_NULL);
         if (!glfwInit()) {
             throw new IllegalStateException("Failed to initialize GLFW");
         }
@@ -43,10 +75,14 @@ public class AppInitializer {
         glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
         glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
         // For macOS: glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GL_TRUE);
+        if (exportMode) {
+            glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+            if (noDisplay) glfwWindowHint(GLFW_CONTEXT_CREATION_API, GLFW_OSMESA_CONTEXT_API);
+        }
 
         long monitor = NULL;
 
-        if (cfg.fullscreen && !debugMode) {
+        if (cfg.fullscreen && !debugMode && !exportMode) {
             if (cfg.SURFACE_MODE) cfg.virtualWidth = cfg.surfaceVirtualWidth;
 
             PointerBuffer monitors = glfwGetMonitors();
@@ -63,21 +99,59 @@ public class AppInitializer {
             cfg.windowHeight = vidMode.height();
         }
 
+        long refreshMonitor = (monitor != NULL) ? monitor : glfwGetPrimaryMonitor();
+        GLFWVidMode refreshMode = (refreshMonitor != NULL) ? glfwGetVideoMode(refreshMonitor) : null;
+        refreshRate = (refreshMode != null) ? refreshMode.refreshRate() : 0;
+
         window = createWindow(cfg.windowWidth, cfg.windowHeight, cfg.WINDOW_TITLE, monitor);
 
         glfwMakeContextCurrent(window);
-        glfwSwapInterval(cfg.V_SYNC);
-        glfwShowWindow(window);
+        if (exportMode) {
+            glfwSwapInterval(0);
+        } else {
+            glfwSwapInterval(cfg.V_SYNC);
+            glfwShowWindow(window);
+        }
 
         GL.createCapabilities();
 
+        if (exportMode) {
+            offscreenTarget = new OffscreenTarget(cfg.windowWidth, cfg.windowHeight);
+            System.out.println("Offscreen target created: " + cfg.windowWidth + "x" + cfg.windowHeight
+                    + " (" + glGetString(GL_RENDERER) + ")");
+        }
+
         glViewport(0, 0, cfg.windowWidth, cfg.windowHeight);
         glEnable(GL_BLEND);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
         shader = new ShaderProgram();
         vaoId = Quad.createQuad();
-        textureId = Utils.loadTexture(cfg.TEXTURE_PATH);
+        if (cfg.ASYNC_TEXTURES) {
+            textureLoader = new AsyncTextureLoader(cfg.TEXTURE_CACHE_DIR,
+                    Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+            File[] files = cfg.TEXTURE_ATLAS ? Utils.listTextures(cfg.TEXTURE_DIR) : new File[] {new File(cfg.TEXTURE_PATH)};
+            textureAtlas = textureLoader.loadAtlas(files);
+            textureId = textureAtlas.getTextureId();
+        } else if (cfg.TEXTURE_ATLAS) {
+            textureAtlas = Utils.loadTextureAtlas(cfg.TEXTURE_DIR);
+            textureId = textureAtlas.getTextureId();
+        } else {
+            textureId = Utils.loadTexture(cfg.TEXTURE_PATH);
+        }
+
+        if (cfg.RENDER_PATH == 1) {
+            instancedShader = new ShaderProgram(ShaderProgram.INSTANCED_VERTEX_SHADER,
+                    ShaderProgram.INSTANCED_FRAGMENT_SHADER);
+        } else if (cfg.RENDER_PATH == 2) {
+            instancedShader = new ShaderProgram(ShaderProgram.PROJECTED_VERTEX_SHADER,
+                    ShaderProgram.INSTANCED_FRAGMENT_SHADER);
+            Shape shape = Layer.createShape(cfg.shapeId, cfg.shapeVertices, cfg.shapeScale);
+            shapeVaoId = Quad.createShapeQuads(shape);
+            shapePointCount = shape.size();
+        }
+
+        audio = createAudioPipeline(cfg);
 
         FPS = debugMode ? cfg.debugFps : cfg.fps;
         if (debugMode) cfg.initZ = cfg.debugInitZ;
@@ -102,6 +176,43 @@ public class AppInitializer {
         return handle;
     }
 
+    /**
+     * Creates the audio input selected by {@link Config#AUDIO_SOURCE}.
+     * Falls back to no audio if the capture device cannot be opened.
+     *
+     * @param cfg Global configuration
+     * @return The audio pipeline, or null if audio input is disabled
+     */
+    private AudioPipeline createAudioPipeline(Config cfg) {
+        AudioSource source;
+        switch (cfg.AUDIO_SOURCE) {
+            case 1:
+                try {
+                    source = new CaptureSource(cfg);
+                } catch (IllegalStateException e) {
+                    System.err.println(e.getMessage() + ", continuing without audio input");
+                    return null;
+                }
+                break;
+            case 2:
+                source = new SyntheticSource(cfg.SAMPLE_RATE, cfg.SYNTHETIC_BPM);
+                break;
+            case 3:
+                Path path = Paths.get(cfg.audioFilePath);
+                source = path.toString().toLowerCase().endsWith(".wav")
+                        ? new FileSource(path, cfg.audioFileLoop)
+                        : new FileSource(path, cfg.audioFileLoop, cfg.SAMPLE_RATE,
+                                cfg.RAW_PCM_CHANNELS, cfg.RAW_PCM_BITS, false);
+                break;
+            default:
+                return null;
+        }
+        // Analyze at the source's rate; files may differ from SAMPLE_RATE
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(cfg.FFT_SIZE, source.getSampleRate(),
+                cfg.SPECTRUM_BANDS, cfg.BAND_MIN_FREQUENCY, cfg.BAND_MAX_FREQUENCY);
+        return new AudioPipeline(source, analyzer, new BeatDetector(cfg.SPECTRUM_BANDS, cfg));
+    }
+
     /**
      * @return The GLFW window handle
      */
@@ -123,6 +234,20 @@ public class AppInitializer {
         return textureId;
     }
 
+    /**
+     * @return The texture atlas behind {@link #getTextureId()}, or null for a single texture
+     */
+    public TextureAtlas getTextureAtlas() {
+        return textureAtlas;
+    }
+
+    /**
+     * @return The loader still uploading the texture in the background, or null if it was loaded synchronously
+     */
+    public AsyncTextureLoader getTextureLoader() {
+        return textureLoader;
+    }
+
     /**
      * @return The compiled shader program object
      */
@@ -130,6 +255,34 @@ public class AppInitializer {
         return shader;
     }
 
+    /**
+     * @return The VAO ID of the static shape mesh (0 unless the GPU projected path is enabled)
+     */
+    public int getShapeVaoId() {
+        return shapeVaoId;
+    }
+
+    /**
+     * @return Number of sprites per layer in the static shape mesh
+     */
+    public int getShapePointCount() {
+        return shapePointCount;
+    }
+
+    /**
+     * @return The shader program object of the active instanced path, or null if instancing is disabled
+     */
+    public ShaderProgram getInstancedShader() {
+        return instancedShader;
+    }
+
+    /**
+     * @return The audio input pipeline, or null if audio input is disabled
+     */
+    public AudioPipeline getAudio() {
+        return audio;
+    }
+
     /**
      * @return Target frames per second
      */
@@ -137,6 +290,27 @@ public class AppInitializer {
         return FPS;
     }
 
+    /**
+     * @return Refresh rate of the monitor the window is shown on (primary monitor in windowed mode), 0 if unknown
+     */
+    public int getRefreshRate() {
+        return refreshRate;
+    }
+
+    /**
+     * @return The framebuffer rendered into instead of the window, or null unless in export mode
+     */
+    public OffscreenTarget getOffscreenTarget() {
+        return offscreenTarget;
+    }
+
+    /**
+     * @return True if frames are rendered offscreen and exported instead of shown
+     */
+    public boolean isExportMode() {
+        return exportMode;
+    }
+
     /**
      * @return True if the application is running in debug mode
      */
@@ -2,17 +2,19 @@ package main;
 
 import static org.lwjgl.glfw.GLFW.GLFW_CONTEXT_VERSION_MAJOR;
 import static org.lwjgl.glfw.GLFW.GLFW_CONTEXT_VERSION_MINOR;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_F3;
 import static org.lwjgl.glfw.GLFW.GLFW_OPENGL_CORE_PROFILE;
 import static org.lwjgl.glfw.GLFW.GLFW_OPENGL_PROFILE;
+import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
 import static org.lwjgl.glfw.GLFW.glfwCreateWindow;
 import static org.lwjgl.glfw.GLFW.glfwDestroyWindow;
 import static org.lwjgl.glfw.GLFW.glfwGetMonitors;
 import static org.lwjgl.glfw.GLFW.glfwGetPrimaryMonitor;
-import static org.lwjgl.glfw.GLFW.glfwGetTime;
 import static org.lwjgl.glfw.GLFW.glfwGetVideoMode;
 import static org.lwjgl.glfw.GLFW.glfwInit;
 import static org.lwjgl.glfw.GLFW.glfwMakeContextCurrent;
 import static org.lwjgl.glfw.GLFW.glfwPollEvents;
+import static org.lwjgl.glfw.GLFW.glfwSetKeyCallback;
 import static org.lwjgl.glfw.GLFW.glfwShowWindow;
 import static org.lwjgl.glfw.GLFW.glfwSwapBuffers;
 import static org.lwjgl.glfw.GLFW.glfwSwapInterval;
@@ -33,13 +35,28 @@ import static org.lwjgl.opengl.GL20.glDeleteProgram;
 import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
+import java.lang.management.ManagementFactory;
+
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.opengl.GL;
 
+import audio.AudioPipeline;
+import rendering.FrameExporter;
+import rendering.GLStateCache;
+import rendering.GpuTimer;
+import rendering.OffscreenTarget;
 import rendering.Quad;
 import rendering.Renderer;
 import rendering.ShaderProgram;
+import rendering.SimulationLoop;
+import rendering.StatsOverlay;
+import utility.AsyncTextureLoader;
+import utility.Clock;
+import utility.FramePacer;
+import utility.FrameProfiler;
+import utility.SimulatedClock;
+import utility.TextureAtlas;
 import utility.Utils;
 
 /**
@@ -63,11 +80,36 @@ public class AppRunner {
      */
     private int vaoId;
 
+    /**
+     * Shader program handle of the active instanced path (0 if instancing is disabled).
+     */
+    private int instancedShaderProgram;
+
+    /**
+     * VAO handle of the static shape mesh (0 unless the GPU projected path is enabled).
+     */
+    private int shapeVaoId;
+
+    /**
+     * Number of sprites per layer in the static shape mesh.
+     */
+    private int shapePointCount;
+
     /**
      * OpenGL texture handle.
      */
     private int textureId;
 
+    /**
+     * Images packed into {@link #textureId}, or null if it holds a single image.
+     */
+    private TextureAtlas textureAtlas;
+
+    /**
+     * Uploads the texture once its background decoding finishes, or null if it is loaded.
+     */
+    private AsyncTextureLoader textureLoader;
+
     /**
      * Target FPS for the render loop.
      */
@@ -78,6 +120,56 @@ public class AppRunner {
      */
     private Renderer renderer;
 
+    /**
+     * Audio input and spectrum analysis, or null without audio input.
+     */
+    private AudioPipeline audio;
+
+    /**
+     * Scene updates on a separate thread, or null if the scene is updated in {@link #loop()}.
+     */
+    private SimulationLoop simulation;
+
+    /**
+     * Decides the update steps per frame and waits for the next frame.
+     */
+    private FramePacer pacer;
+
+    /**
+     * Frame-phase timings, or null if profiling is disabled.
+     */
+    private FrameProfiler profiler;
+
+    /**
+     * GPU timings of the render passes, or null if profiling or GPU timing is disabled.
+     */
+    private GpuTimer gpuTimer;
+
+    /**
+     * On-screen frame time graph, or null if profiling is disabled.
+     */
+    private StatsOverlay statsOverlay;
+
+    /**
+     * Draws the frame time graph if true; toggled with F3.
+     */
+    private boolean showStatsOverlay;
+
+    /**
+     * Shadow copy of the GL state shared by everything drawing in the loop.
+     */
+    private GLStateCache glState;
+
+    /**
+     * Framebuffer rendered into in export mode, or null if frames go to the window.
+     */
+    private OffscreenTarget offscreenTarget;
+
+    /**
+     * Clock the scene timers run on: GLFW time, or one step per exported frame in export mode.
+     */
+    private Clock clock;
+
     /**
      * Shader program manager.
      */
@@ -93,7 +185,11 @@ public class AppRunner {
      */
     public void run() {
         init();
-        loop();
+        if (offscreenTarget != null) {
+            exportLoop();
+        } else {
+            loop();
+        }
         cleanup();
     }
 
@@ -108,54 +204,244 @@ public class AppRunner {
         this.shader = initializer.getShader();
         this.shaderProgram = shader.getShaderProgram();
         this.vaoId = initializer.getVaoId();
+        if (initializer.getInstancedShader() != null) {
+            this.instancedShaderProgram = initializer.getInstancedShader().getShaderProgram();
+        }
+        this.shapeVaoId = initializer.getShapeVaoId();
+        this.shapePointCount = initializer.getShapePointCount();
         this.textureId = initializer.getTextureId();
+        this.textureAtlas = initializer.getTextureAtlas();
+        this.textureLoader = initializer.getTextureLoader();
         this.debugMode = initializer.isDebugMode();
         this.FPS = initializer.getFPS();
+        this.offscreenTarget = initializer.getOffscreenTarget();
+        this.clock = (offscreenTarget != null)
+                ? new SimulatedClock(1.0 / Config.get().exportFps)
+                : Clock.glfw();
 
+        this.glState = new GLStateCache();
         this.renderer = new Renderer(this, textureId, Config.get());
+
+        this.audio = initializer.getAudio();
+        if (audio != null) {
+            renderer.setAudio(audio);
+            audio.start();
+        }
+
+        Config cfg = Config.get();
+        double frameRate = FramePacer.chooseFrameRate(debugMode ? FPS : cfg.targetFrameRate,
+                initializer.getRefreshRate(), cfg.V_SYNC, FPS);
+        this.pacer = new FramePacer(FPS, frameRate, cfg.maxUpdateSteps);
+
+        if (cfg.profiling && offscreenTarget == null) {
+            double shownRate = FramePacer.shownFrameRate(frameRate, initializer.getRefreshRate(), cfg.V_SYNC, FPS);
+            this.profiler = new FrameProfiler(cfg, shownRate);
+            profiler.setPacer(pacer);
+            profiler.registerMBean();
+            if (cfg.gpuTiming) {
+                this.gpuTimer = new GpuTimer(profiler);
+                if (gpuTimer.isSupported()) {
+                    renderer.setGpuTimer(gpuTimer);
+                } else {
+                    System.out.println("[gpu] timer queries not supported, GPU pass timings disabled");
+                }
+            }
+            this.statsOverlay = new StatsOverlay(profiler, glState);
+            this.showStatsOverlay = cfg.showStatsOverlay;
+            glfwSetKeyCallback(window, (win, key, scancode, action, mods) -> {
+                if (key == GLFW_KEY_F3 && action == GLFW_PRESS) showStatsOverlay = !showStatsOverlay;
+            });
+        }
+
+        if (cfg.SIMULATION_THREAD && !debugMode && offscreenTarget == null) {
+            this.simulation = new SimulationLoop(renderer.getScene(), audio, profiler, cfg);
+            renderer.setSimulation(simulation);
+            simulation.start();
+        }
     }
 
     /**
      * Main rendering loop. Manages frame timing and calls update/render logic.
      */
     private void loop() {
-        double targetDeltaTime = 1.0 / FPS;
-        double lastTime = glfwGetTime();
-        double accumulator = 0.0;
-        
+        float dt = pacer.getStepSeconds();
+        boolean firstFrame = true;
+
         while (!glfwWindowShouldClose(window)) {
-            double currentTime = glfwGetTime();
-            double frameTime = currentTime - lastTime;
-            lastTime = currentTime;
-            accumulator += frameTime;
-            
-            // update
-            while (accumulator >= targetDeltaTime && !debugMode) {
-                renderer.update((float) targetDeltaTime);
-                accumulator -= targetDeltaTime;
+            long frameStart = System.nanoTime();
+
+            if (textureLoader != null && textureLoader.poll()) {
+                // The upload bound textures behind the state cache's back
+                glState.invalidate();
+                System.out.println("[startup] textures ready after " + ManagementFactory.getRuntimeMXBean().getUptime()
+                        + " ms (" + (textureLoader.isCacheHit() ? "cache" : "decoded") + ")");
+                textureLoader.shutdown();
+                textureLoader = null;
             }
+
+            // update; the pacer drains its accumulator even if the steps are skipped
+            int updateSteps = pacer.beginFrame();
+            if (debugMode || simulation != null) updateSteps = 0;
+            for (int i = 0; i < updateSteps; i++) {
+                if (audio != null) audio.update(dt);
+                renderer.update(dt);
+            }
+            long updateEnd = System.nanoTime();
             
             // rendering
             glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
             renderer.render();
-            
+            if (gpuTimer != null) gpuTimer.endFrame();
+            if (showStatsOverlay) statsOverlay.render();
+            long renderEnd = System.nanoTime();
             
             glfwSwapBuffers(window);
+            long swapEnd = System.nanoTime();
+            glState.endFrame();
             glfwPollEvents();
+
+            if (firstFrame) {
+                firstFrame = false;
+                System.out.println("[startup] first frame after " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms");
+            }
+
+            if (profiler != null) {
+                // With a simulation thread, that thread records the update phase itself
+                if (simulation == null) profiler.record(FrameProfiler.UPDATE, updateEnd - frameStart);
+                profiler.record(FrameProfiler.RENDER, renderEnd - updateEnd);
+                profiler.record(FrameProfiler.SWAP, swapEnd - renderEnd);
+                profiler.recordSprites(renderer.getDrawnSprites(), renderer.getCulledSprites());
+                profiler.endFrame(System.nanoTime() - frameStart, updateSteps);
+            }
+
+            pacer.waitForNextFrame();
+        }
+    }
+
+    /**
+     * Export loop. Renders {@link Config#exportFrames} frames offscreen, one fixed step of
+     * {@code 1 / exportFps} seconds each, and streams them to {@link Config#exportPath}.
+     * Runs as fast as rendering and readback allow; the wall clock only measures throughput.
+     */
+    private void exportLoop() {
+        Config cfg = Config.get();
+        SimulatedClock exportClock = (SimulatedClock) clock;
+        float dt = (float) exportClock.getStepSeconds();
+
+        // Every exported frame must show the real textures, not the placeholder
+        if (textureLoader != null) {
+            textureLoader.await();
+            glState.invalidate();
+            textureLoader.shutdown();
+            textureLoader = null;
+        }
+
+        FrameExporter exporter = new FrameExporter(offscreenTarget.getWidth(), offscreenTarget.getHeight(),
+                cfg.EXPORT_READBACK_BUFFERS, cfg.exportPath);
+        long reportStart = System.nanoTime();
+        long reportFrames = 0;
+
+        // Setup code may have bound other framebuffers since the target was created
+        offscreenTarget.bind();
+
+        try {
+            for (int frame = 0; frame < cfg.exportFrames && !glfwWindowShouldClose(window); frame++) {
+                if (frame > 0) {
+                    exportClock.advance();
+                    if (audio != null) audio.update(dt);
+                    renderer.update(dt);
+                }
+
+                glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+                renderer.render();
+                exporter.capture();
+                glState.endFrame();
+                glfwPollEvents();
+
+                long now = System.nanoTime();
+                if (now - reportStart >= 1_000_000_000L) {
+                    long frames = exporter.getFramesWritten() - reportFrames;
+                    System.out.printf("[export] frame %d/%d, %.1f fps%n", frame + 1, cfg.exportFrames,
+                            frames * 1e9 / (now - reportStart));
+                    reportStart = now;
+                    reportFrames = exporter.getFramesWritten();
+                }
+            }
+            exporter.finish();
+        } finally {
+            exporter.cleanup();
         }
+
+        double seconds = exporter.getElapsedNanos() / 1e9;
+        System.out.printf("[export] %d frames %dx%d in %.2f s: %.1f fps, %.1f MB/s, %d readback stalls (%.1f ms)%n",
+                exporter.getFramesWritten(), offscreenTarget.getWidth(), offscreenTarget.getHeight(), seconds,
+                exporter.getFramesWritten() / seconds, exporter.getBytesWritten() / 1e6 / seconds,
+                exporter.getStalls(), exporter.getStallNanos() / 1e6);
+        // Equal for two exports with the same seed, audio file and frame count
+        System.out.printf("[export] final scene state %016x (seed %d)%n",
+                renderer.getScene().stateHash(), cfg.randomSeed);
     }
 
     /**
      * Cleans up all OpenGL and GLFW resources before shutdown.
      */
     private void cleanup() {
+        if (textureLoader != null) textureLoader.shutdown();
+        boolean simulationStopped = (simulation == null) || simulation.stop();
+        if (audio != null) {
+            // a running simulation step may still read the sources
+            if (simulationStopped) {
+                audio.close();
+            } else {
+                System.err.println("Simulation thread still running, leaving the audio pipeline open");
+            }
+        }
+        if (gpuTimer != null) gpuTimer.cleanup();
+        if (profiler != null) {
+            statsOverlay.cleanup();
+            profiler.unregisterMBean();
+        }
+        renderer.cleanup();
+        if (offscreenTarget != null) offscreenTarget.cleanup();
         glDeleteProgram(shaderProgram);
+        if (instancedShaderProgram != 0) glDeleteProgram(instancedShaderProgram);
+        if (shapeVaoId != 0) glDeleteVertexArrays(shapeVaoId);
         glDeleteVertexArrays(vaoId);
         glDeleteTextures(textureId);
         glfwDestroyWindow(window);
         glfwTerminate();
     }
 
+    /**
+     * Returns the texture atlas the texture was built from, or null for a single texture.
+     */
+    public TextureAtlas getTextureAtlas() {
+        return textureAtlas;
+    }
+
+    /**
+     * Returns the clock the scene timers run on: the GLFW clock, or the simulated
+     * time of the exported frame in export mode.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the framebuffer frames are drawn into: the offscreen target in export mode,
+     * otherwise 0 for the window.
+     */
+    public int getTargetFramebuffer() {
+        return (offscreenTarget != null) ? offscreenTarget.getFramebufferId() : 0;
+    }
+
+    /**
+     * Returns the GL state cache that program, vertex array, texture and uniform calls go through.
+     */
+    public GLStateCache getGlState() {
+        return glState;
+    }
+
     /**
      * Returns the OpenGL shader program ID.
      */
@@ -170,6 +456,27 @@ public class AppRunner {
         return vaoId;
     }
 
+    /**
+     * Returns the shader program ID of the active instanced path (0 if instancing is disabled).
+     */
+    public int getInstancedShaderProgram() {
+        return instancedShaderProgram;
+    }
+
+    /**
+     * Returns the VAO ID of the static shape mesh used by the GPU projected path.
+     */
+    public int getShapeVaoId() {
+        return shapeVaoId;
+    }
+
+    /**
+     * Returns the number of sprites per layer in the static shape mesh.
+     */
+    public int getShapePointCount() {
+        return shapePointCount;
+    }
+
     /**
      * Application entry point.
      */
@@ -21,12 +21,133 @@ public final class Config {
 
     public int screenIndex = 0;
 
+    // fixed update rate
     public float fps = 120.0f;
 
+    // frames per second to pace to; 0 follows the monitor refresh rate reported by GLFW.
+    // With vsync on and a target at or above the refresh rate, the swap paces alone.
+    public float targetFrameRate = 0.0f;
+    // most update steps per frame; a longer backlog is dropped instead of caught up
+    public int maxUpdateSteps = 5;
+
     public final int V_SYNC = 1;
 
+    /**
+     * 0: per-sprite uniforms and one draw call per sprite (fallback)
+     * 1: instanced; all sprites in one instance buffer and a single draw call
+     * 2: GPU projected; shape uploaded once, only z/angle/color per layer each frame
+     */
+    public final int RENDER_PATH = 1;
+
+    // skip sprites whose quad lies outside the viewport and layers whose sprites are smaller
+    // than minSpritePixels output pixels; path 2 culls whole layers only
+    public boolean cullSprites = true;
+    public float minSpritePixels = 1.0f;
+
+    // paths 0 and 1 rotate and project sprites with the JDK Vector API (AVX2, AVX-512) if the JVM runs
+    // with --add-modules jdk.incubator.vector, otherwise with the scalar loop
+    public boolean vectorProjection = true;
+
+    // paths 1 and 2: layers beyond lodDistance are rendered in groups of LOD_GROUP_SIZE into
+    // LOD_TEXTURE_SIZE^2 impostor textures and drawn as one quad per group; an impostor is
+    // rendered again once it is off by more than lodMaxErrorPixels output pixels or recolored
+    public boolean layerLod = true;
+    public float lodDistance = 3000.0f;
+    public final int LOD_GROUP_SIZE = 8;
+    public final int LOD_TEXTURE_SIZE = 256;
+    public float lodMaxErrorPixels = 1.0f;
+
+    // instance data of paths 1 and 2 goes through a triple-buffered ring; map it persistently
+    // if GL_ARB_buffer_storage is available, false forces the per-frame unsynchronized mapping
+    public final boolean PERSISTENT_MAPPING = true;
+
+    // update the scene on its own thread at simulationRate and render interpolated snapshots
+    public final boolean SIMULATION_THREAD = false;
+    public float simulationRate = 120.0f;
+
+    // move and rotate layers on updateThreads fork/join workers (0: one per core) once the scene
+    // holds parallelUpdateThreshold layers; smaller scenes stay serial, see LayerUpdateBenchmark
+    public boolean parallelUpdate = true;
+    public int updateThreads = 0;
+    public int parallelUpdateThreshold = 8192;
+
     // paths available: "src/main/res/~.png" ~ galaxy, time, kai;
     public final String TEXTURE_PATH = "src/main/res/galaxy.png";
+    // pack every PNG of TEXTURE_DIR into one atlas so layers can switch images without rebinds;
+    // TEXTURE_PATH then only picks the image to start with
+    public final boolean TEXTURE_ATLAS = true;
+    public final String TEXTURE_DIR = "src/main/res";
+    // decode textures on worker threads and show a placeholder until they are uploaded;
+    // decoded, premipmapped atlases are kept in TEXTURE_CACHE_DIR for the next start
+    public final boolean ASYNC_TEXTURES = true;
+    public final String TEXTURE_CACHE_DIR = "texture-cache";
+    // </editor-fold>
+
+    /**
+     * ===== AUDIO SETTINGS =====
+     */
+    // <editor-fold desc="AUDIO SETTINGS">
+    /**
+     * 0: no audio input, fixed animation only
+     * 1: OpenAL capture device (microphone / line-in)
+     * 2: synthetic test signal, for machines without audio hardware
+     * 3: WAV or raw PCM file, memory-mapped (rehearsals, regression runs)
+     */
+    public final int AUDIO_SOURCE = 1;
+
+    // null selects the default capture device
+    public final String CAPTURE_DEVICE = null;
+    public final int CAPTURE_BUFFER_SAMPLES = 8192;
+
+    public final float SYNTHETIC_BPM = 120.0f;
+
+    // *.wav files carry their format; any other file is read as raw PCM with the RAW_PCM_* format
+    public String audioFilePath = "src/main/res/show.wav";
+    public boolean audioFileLoop = true;
+    public final int RAW_PCM_CHANNELS = 2;
+    public final int RAW_PCM_BITS = 16;
+
+    public final int SAMPLE_RATE = 48000;
+
+    // samples per spectrum frame; power of two
+    public final int FFT_SIZE = 2048;
+
+    public final int SPECTRUM_BANDS = 16;
+    public final float BAND_MIN_FREQUENCY = 40.0f;
+    public final float BAND_MAX_FREQUENCY = 16000.0f;
+
+    // extra layer speed at full-scale bass
+    public float spectrumSpeedBoost = 400.0f;
+
+    // beat detection: threshold = mean flux + sensitivity * standard deviation over the history
+    public final float BEAT_SENSITIVITY = 1.5f;
+    public final int BEAT_HISTORY_SIZE = 60;
+    public final float BEAT_MIN_INTERVAL = 0.25f;
+
+    // rotation mode advances every beatsPerMode beats; the mode timer only covers silence
+    public int beatsPerMode = 16;
+    // tempo at which the layer speed equals IDLE_SPEED
+    public float referenceBpm = 120.0f;
+    public boolean recolorOnBeat = true;
+    // with a texture atlas, every beat gives new layers the next image
+    public boolean switchImageOnBeat = true;
+    // </editor-fold>
+
+    /**
+     * ===== EXPORT SETTINGS =====
+     */
+    // render windowWidth x windowHeight offscreen at a fixed timestep and write raw RGBA frames,
+    // bottom row first, instead of showing a window; use a file audio source for a repeatable show
+    public final boolean EXPORT_MODE = false;
+    // <editor-fold desc="EXPORT SETTINGS">
+    // "-" writes to standard output, e.g. for a pipe into ffmpeg
+    public String exportPath = "export.rgba";
+    public int exportFrames = 600;
+    public float exportFps = 60.0f;
+    // pixel buffers the readback cycles through; frames are written this many frames minus one late
+    public final int EXPORT_READBACK_BUFFERS = 3;
+    // create the context without a display server (GLFW null platform with OSMesa) if GLFW supports it
+    public final boolean EXPORT_NO_DISPLAY = true;
     // </editor-fold>
 
     /**
@@ -38,6 +159,14 @@ public final class Config {
 
     public int debugInitZ = 500;
     public final float[] DEBUG_RGBA = {1.0f, 1.0f, 1.0f, 1.0f};
+
+    // frame-phase timings; the overlay is toggled with F3, 0 disables the periodic log line
+    public boolean profiling = true;
+    public boolean showStatsOverlay = false;
+    public float statsLogInterval = 10.0f;
+    // GL_TIME_ELAPSED queries around the layer and fade passes, logged next to the CPU phases;
+    // skipped without timer query support (e.g. some software renderers)
+    public boolean gpuTiming = true;
     // </editor-fold>
 
     /**
@@ -81,6 +210,21 @@ public final class Config {
     public float layerOscillationSpeed = 0.8f;
     public float layerSwingAmplitude = 30.0f;
 
+    // layer shape: 0 the classic 16-point pattern, 1 triangle, 2 square, 3 circle, 4 cross, 5 star;
+    // shapeVertices sprites spaced evenly along the outline and shapeScale the outline radius
+    // in model units, both ignored by 0
+    public int shapeId = 0;
+    public int shapeVertices = 24;
+    public float shapeScale = 300.0f;
+
+    // table-based sin/cos for the rotations; error bound (2*pi/size)^2/8, i.e. ~3e-7 for 4096 entries
+    public boolean fastTrig = true;
+    public int trigTableSize = 4096;
+
+    // seed of the random layer colors; 0 draws a new seed every start, any other value
+    // replays the same colors for the same frame sequence (regression captures, benchmarks)
+    public long randomSeed = 0L;
+
     // </editor-fold>
 
     private Config() {}
@@ -1,9 +1,10 @@
 package rendering;
 
-import java.util.ArrayList;
+import java.util.SplittableRandom;
 
-import layerdata.Layer;
+import layerdata.LayerStore;
 import main.Config;
+import utility.TrigTable;
 
 /**
  * Encapsulates all non‑rendering effects: fade‑in, whole‑scene rotation,
@@ -11,7 +12,7 @@ import main.Config;
  */
 public class Effects {
 	
-	Renderer renderer;
+	Scene scene;
 
 	private float fadeAlpha;
 	private float fadeSpeed;
@@ -30,12 +31,25 @@ public class Effects {
 	private float wholeRotationTime;
 
 	private float layerRotationSpeed, layerOscillationSpeed, layerSwingAmplitude;
-	
-	public Effects(Renderer renderer, Config cfg) {
-		this.renderer = renderer;
-		initializeSettings(cfg);
 
+	private float spectrumSpeedBoost;
+	private float referenceBpm;
+
+	/** Lookup table for sin/cos, or null to use {@link Math} */
+	private TrigTable trigTable;
 
+	/** Source of the layer colors; owned by this instance, so seeded runs repeat exactly */
+	private final SplittableRandom random;
+
+	/**
+	 * @param scene   the scene whose speed and rotation mode the effects read and drive
+	 * @param cfg     global configuration object
+	 * @param random  generator for the layer colors, not shared with other threads
+	 */
+	public Effects(Scene scene, Config cfg, SplittableRandom random) {
+		this.scene = scene;
+		this.random = random;
+		initializeSettings(cfg);
 	}
 
 	/**
@@ -64,26 +78,30 @@ public class Effects {
 		this.layerOscillationSpeed = cfg.layerOscillationSpeed;
 		this.layerSwingAmplitude = cfg.layerSwingAmplitude;
 
+		this.spectrumSpeedBoost = cfg.spectrumSpeedBoost;
+		this.referenceBpm = cfg.referenceBpm;
+
+		this.trigTable = cfg.fastTrig ? new TrigTable(cfg.trigTableSize) : null;
 	}
 
 	/**
-	 * Spawns initial layers evenly spaced between initFrontZ and renderer.initZ.
+	 * Spawns initial layers evenly spaced between initFrontZ and scene.initZ.
+	 * Layers are pushed nearest first, so the queue ends up in depth order.
+	 *
+	 * @param layers  the (empty) store to fill
 	 */
-	public ArrayList<Layer> createInitialLayers() {
+	public void createInitialLayers(LayerStore layers) {
 		int currentZ = initFrontLayerDistance;
-		ArrayList<Layer> layers = new ArrayList<>();
 		
 		while(currentZ < initZ) {
-        	float[] rgba = generateRandomRGBA();
-            layers.add(new Layer(rgba, currentZ));
+            int slot = layers.pushFront(currentZ);
+        	generateRandomRGBA(layers.colors(), slot * LayerStore.COLOR_STRIDE);
             currentZ += layerDistance;
 		}
-		
-		return layers;
 	}
 
 	/**
-	 * Advances the fade‑in animation and ramps renderer.speed toward idleSpeed.
+	 * Advances the fade‑in animation and ramps scene.speed toward idleSpeed.
 	 */
     public void updateFadeAlpha(float deltaTime) {
     	fadeAlpha -= fadeSpeed * deltaTime;
@@ -91,11 +109,43 @@ public class Effects {
     		fadeAlpha = 0.0f;
             initialized = true;
         }
-    	if(renderer.speed < idleSpeed) {
-    		renderer.speed += 1.0f;
+    	if(scene.speed < idleSpeed) {
+    		scene.speed += 1.0f;
         }
     }
 
+	/**
+	 * Derives the layer speed from the current audio: idle speed scaled by the tempo
+	 * relative to the reference tempo, plus a boost proportional to the average
+	 * magnitude of the lowest quarter of the bands.
+	 *
+	 * @param bands  band magnitudes from {@link audio.SpectrumAnalyzer}, lowest band first
+	 * @param bpm    estimated tempo, or 0 if unknown
+	 * @return       the layer speed in z units per second
+	 */
+	public float calculateSpectrumSpeed(float[] bands, float bpm) {
+		int bassBands = Math.max(1, bands.length / 4);
+		float bass = 0.0f;
+		for (int b = 0; b < bassBands; b++) {
+			bass += bands[b];
+		}
+		bass = Math.min(1.0f, bass / bassBands);
+		float tempoScale = (bpm > 0.0f) ? bpm / referenceBpm : 1.0f;
+		return idleSpeed * tempoScale + spectrumSpeedBoost * bass;
+	}
+
+	/**
+	 * Gives every layer a fresh random color, e.g. on a beat.
+	 *
+	 * @param layers  the store whose color column to rewrite
+	 */
+	public void recolorLayers(LayerStore layers) {
+		float[] colors = layers.colors();
+		for (int i = 0; i < layers.size(); i++) {
+			generateRandomRGBA(colors, layers.slot(i) * LayerStore.COLOR_STRIDE);
+		}
+	}
+
 	/**
 	 * @return true once fade‑in has completed
 	 */
@@ -111,15 +161,16 @@ public class Effects {
     }
 
 	/**
-	 * @return a random RGBA array with alpha clamped to a minimum
+	 * Writes a random RGBA color with alpha clamped to a minimum.
+	 *
+	 * @param rgba    destination array, e.g. the color column of a {@link LayerStore}
+	 * @param offset  index of the red component in {@code rgba}
 	 */
-	public float[] generateRandomRGBA() {
-    	float alpha = clampAlpha((float) Math.random());
-    	float[] rgba = {(float) Math.random(), 
-    			(float) Math.random(), 
-    			(float) Math.random(),
-				alpha};
-    	return rgba;
+	public void generateRandomRGBA(float[] rgba, int offset) {
+    	rgba[offset]     = random.nextFloat();
+    	rgba[offset + 1] = random.nextFloat();
+    	rgba[offset + 2] = random.nextFloat();
+    	rgba[offset + 3] = clampAlpha(random.nextFloat());
     }
 
 	/**
@@ -150,7 +201,7 @@ public class Effects {
 	 */
 	public float calculateRotationAngle(float rotationAngle, float deltaTime) {
 		
-        switch(renderer.rotationMode) {
+        switch(scene.rotationMode) {
     	case 1:
 			// Clockwise constant rotation
     		rotationAngle -= wholeRotationSpeed * deltaTime;
@@ -162,7 +213,7 @@ public class Effects {
     	case 3:
 			// Oscillating rotation: sin wave between ±swingAmplitude
     	    wholeRotationTime += deltaTime;
-    	    rotationAngle = (float) (Math.sin(wholeRotationTime * wholeOscillationSpeed) * wholeSwingAmplitude);
+    	    rotationAngle = sin(wholeRotationTime * wholeOscillationSpeed) * wholeSwingAmplitude;
     		break;
         }
 
@@ -182,14 +233,15 @@ public class Effects {
 	 * </ul>
 	 * The result is normalized into [0,360).
 	 *
-	 * @param layer      the layer whose rotation to update; its internal time field
-	 *                   is advanced for oscillation modes
+	 * @param layers     the store holding the layer; its time column is advanced
+	 *                   for oscillation modes
+	 * @param slot       the slot of the layer whose rotation to update
 	 * @param deltaTime  elapsed time since last frame, in seconds
 	 * @return           the updated rotation angle in degrees for this layer, wrapped to [0,360)
 	 */
-	public float calculateLayerAngle(Layer layer, float deltaTime) {
-		float rotationAngle = layer.getRotationAngle();
-		switch(renderer.rotationMode) {
+	public float calculateLayerAngle(LayerStore layers, int slot, float deltaTime) {
+		float rotationAngle = layers.angles()[slot];
+		switch(scene.rotationMode) {
 		case 4:
 			// Clockwise rotation per layer
 	    	rotationAngle -= layerRotationSpeed * deltaTime;
@@ -200,8 +252,9 @@ public class Effects {
 	        break;
 		case 6:
 			// Oscillating rotation per layer: sin wave
-			layer.time += deltaTime;
-		    rotationAngle = (float) (Math.sin(layer.time * layerOscillationSpeed) * layerSwingAmplitude);
+			float[] time = layers.times();
+			time[slot] += deltaTime;
+		    rotationAngle = sin(time[slot] * layerOscillationSpeed) * layerSwingAmplitude;
 		    break;
 	    }
 
@@ -214,21 +267,44 @@ public class Effects {
 
 	/**
 	 * Precomputes cos/sin for a given angle in degrees.
-	 * @return float[]{cos(angle), sin(angle)}
+	 * Without rotation (mode 0) the identity {1, 0} is written.
+	 *
+	 * @param rotationAngle  the angle in degrees
+	 * @param cosSin         caller-owned storage receiving {cos(angle), sin(angle)}
 	 */
-	public float[] getAngles(float rotationAngle) {
-        if(renderer.rotationMode > 0) {
-        	return calculateAngles(rotationAngle);
+	public void getAngles(float rotationAngle, float[] cosSin) {
+        if(scene.rotationMode > 0) {
+        	calculateAngles(rotationAngle, cosSin);
+        	return;
         }
-        return new float[]{1.0f, 0.0f};
+        cosSin[0] = 1.0f;
+        cosSin[1] = 0.0f;
 	}
-	
-	public float[] calculateAngles(float rotationAngle) {
-		float[] angles = new float[2];
+
+	/**
+	 * Computes cos/sin for a given angle in degrees, from the lookup table in fast trig mode.
+	 *
+	 * @param rotationAngle  the angle in degrees
+	 * @param cosSin         caller-owned storage receiving {cos(angle), sin(angle)}
+	 */
+	public void calculateAngles(float rotationAngle, float[] cosSin) {
+		if(trigTable != null) {
+			trigTable.sinCos(rotationAngle, cosSin, 0);
+			return;
+		}
 		float angleRad = (float) Math.toRadians(rotationAngle);
-		angles[0] = (float) Math.cos(angleRad);
-		angles[1] = (float) Math.sin(angleRad);
-		return angles;
+		cosSin[0] = (float) Math.cos(angleRad);
+		cosSin[1] = (float) Math.sin(angleRad);
+	}
+
+	/**
+	 * Sine of an angle in radians, from the lookup table in fast trig mode.
+	 */
+	private float sin(float radians) {
+		if(trigTable != null) {
+			return trigTable.sinRadians(radians);
+		}
+		return (float) Math.sin(radians);
 	}
 
 }
@@ -0,0 +1,225 @@
+package rendering;
+
+import static org.lwjgl.opengl.GL11.GL_RGBA;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL11.glReadPixels;
+import static org.lwjgl.opengl.GL15.GL_STREAM_READ;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL15.glUnmapBuffer;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER;
+import static org.lwjgl.opengl.GL30.GL_MAP_READ_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.GL_ALREADY_SIGNALED;
+import static org.lwjgl.opengl.GL32.GL_SYNC_FLUSH_COMMANDS_BIT;
+import static org.lwjgl.opengl.GL32.GL_SYNC_GPU_COMMANDS_COMPLETE;
+import static org.lwjgl.opengl.GL32.GL_TIMEOUT_EXPIRED;
+import static org.lwjgl.opengl.GL32.GL_WAIT_FAILED;
+import static org.lwjgl.opengl.GL32.glClientWaitSync;
+import static org.lwjgl.opengl.GL32.glDeleteSync;
+import static org.lwjgl.opengl.GL32.glFenceSync;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Streams rendered frames as raw RGBA to a file or to standard output.
+ * <p>
+ * {@link #capture()} only queues a {@code glReadPixels} into the next of a ring of pixel
+ * buffer objects, which returns immediately. The frame is mapped and written
+ * {@code buffers - 1} frames later, when the GPU has long finished the copy, so the
+ * readback overlaps with rendering instead of stalling it. A fence per buffer tells
+ * whether that is actually the case; {@link #getStalls()} counts the times it was not.
+ * </p>
+ * <p>
+ * Rows are written bottom-up, as GL stores them. For ffmpeg:
+ * {@code ffmpeg -f rawvideo -pix_fmt rgba -s WxH -r FPS -i export.rgba -vf vflip out.mp4}.
+ * </p>
+ */
+public class FrameExporter {
+
+    /** Nanoseconds a single wait for a fence may block before it is repeated. */
+    private static final long FENCE_TIMEOUT = 1_000_000_000L;
+
+    private final int width;
+    private final int height;
+    private final int frameBytes;
+    private final int[] pbos;
+    private final long[] fences;
+    private final WritableByteChannel out;
+    private final boolean closeOut;
+
+    private long captured = 0;
+    private long written = 0;
+    private long stalls = 0;
+    private long stallNanos = 0;
+    private long startNanos;
+    private long endNanos;
+
+    /**
+     * Creates the pixel buffers and opens the output.
+     *
+     * @param width    frame width in pixels
+     * @param height   frame height in pixels
+     * @param buffers  pixel buffers in the ring; frames are written this many frames minus one late
+     * @param path     output file, or {@code "-"} for standard output (e.g. a pipe into ffmpeg);
+     *                 log output must then be redirected, see {@link main.AppInitializer#init()}
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    public FrameExporter(int width, int height, int buffers, String path) {
+        this.width = width;
+        this.height = height;
+        this.frameBytes = width * height * 4;
+        this.pbos = new int[Math.max(buffers, 2)];
+        this.fences = new long[pbos.length];
+
+        if ("-".equals(path)) {
+            // The file descriptor itself; System.out may be redirected to keep log lines out of the frames
+            out = new FileOutputStream(FileDescriptor.out).getChannel();
+            closeOut = false;
+        } else {
+            try {
+                out = new FileOutputStream(path).getChannel();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open export file " + path, e);
+            }
+            closeOut = true;
+        }
+
+        for (int i = 0; i < pbos.length; i++) {
+            pbos[i] = glGenBuffers();
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, pbos[i]);
+            glBufferData(GL_PIXEL_PACK_BUFFER, frameBytes, GL_STREAM_READ);
+        }
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+    }
+
+    /**
+     * Queues the readback of the bound read framebuffer and writes out the oldest
+     * frame in the ring if the ring is full. Call after rendering a frame.
+     */
+    public void capture() {
+        if (captured == 0) startNanos = System.nanoTime();
+        int slot = (int) (captured % pbos.length);
+        if (captured >= pbos.length) {
+            writeOut(slot);
+        }
+
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, pbos[slot]);
+        glReadPixels(0, 0, width, height, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+        fences[slot] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        captured++;
+    }
+
+    /**
+     * Writes out all frames still in the ring and closes the output file.
+     */
+    public void finish() {
+        for (long frame = written; frame < captured; frame++) {
+            writeOut((int) (frame % pbos.length));
+        }
+        endNanos = System.nanoTime();
+        if (!closeOut) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close export output", e);
+        }
+    }
+
+    /**
+     * Waits for the copy into the given buffer, then maps it and writes the frame.
+     */
+    private void writeOut(int slot) {
+        long fence = fences[slot];
+        if (fence != NULL) {
+            int status = glClientWaitSync(fence, 0, 0);
+            if (status != GL_ALREADY_SIGNALED) {
+                long start = System.nanoTime();
+                while (status == GL_TIMEOUT_EXPIRED) {
+                    status = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT);
+                }
+                stalls++;
+                stallNanos += System.nanoTime() - start;
+                if (status == GL_WAIT_FAILED) {
+                    System.err.println("Readback fence wait failed");
+                }
+            }
+            glDeleteSync(fence);
+            fences[slot] = NULL;
+        }
+
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, pbos[slot]);
+        ByteBuffer pixels = glMapBufferRange(GL_PIXEL_PACK_BUFFER, 0, frameBytes, GL_MAP_READ_BIT);
+        try {
+            if (pixels == null) throw new IllegalStateException("Failed to map readback buffer");
+            while (pixels.hasRemaining()) {
+                out.write(pixels);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write export frame " + written, e);
+        } finally {
+            if (pixels != null) glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+        }
+        written++;
+    }
+
+    /**
+     * @return frames written to the output so far
+     */
+    public long getFramesWritten() {
+        return written;
+    }
+
+    /**
+     * @return bytes written to the output so far
+     */
+    public long getBytesWritten() {
+        return written * frameBytes;
+    }
+
+    /**
+     * @return number of times a frame was not read back yet when it was due to be written
+     */
+    public long getStalls() {
+        return stalls;
+    }
+
+    /**
+     * @return total nanoseconds spent waiting for readbacks
+     */
+    public long getStallNanos() {
+        return stallNanos;
+    }
+
+    /**
+     * @return nanoseconds from the first capture to {@link #finish()}, or up to now before that
+     */
+    public long getElapsedNanos() {
+        if (captured == 0) return 0;
+        return (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    /**
+     * Deletes the pixel buffers and fences. Call {@link #finish()} first to keep the queued frames.
+     */
+    public void cleanup() {
+        for (int i = 0; i < pbos.length; i++) {
+            if (fences[i] != NULL) {
+                glDeleteSync(fences[i]);
+                fences[i] = NULL;
+            }
+        }
+        glDeleteBuffers(pbos);
+    }
+
+}
@@ -0,0 +1,228 @@
+package rendering;
+
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL11.glBindTexture;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL20.glUniform1f;
+import static org.lwjgl.opengl.GL20.glUniform2f;
+import static org.lwjgl.opengl.GL20.glUniform4f;
+import static org.lwjgl.opengl.GL20.glUseProgram;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shadow copy of the GL state the render loop changes every frame: the current program,
+ * vertex array, active texture unit, the 2D texture of each unit and the float uniforms
+ * of each program. A call that would set a value the GL already holds is skipped.
+ * <p>
+ * The cache only knows about calls made through it. State starts out unknown, so the first
+ * call of each kind is always issued; code that changes the same state directly has to call
+ * {@link #invalidate()} afterwards. Issued and skipped calls are counted in total and for
+ * the last completed frame.
+ * </p>
+ */
+public class GLStateCache {
+
+    private static final int UNKNOWN = -1;
+    private static final int MAX_TEXTURE_UNITS = 16;
+
+    private int program = UNKNOWN;
+    private int vertexArray = UNKNOWN;
+    private int activeUnit = UNKNOWN;
+    private final int[] textures = new int[MAX_TEXTURE_UNITS];
+
+    /** Uniform values per program, and those of the current program */
+    private final Map<Integer, UniformValues> uniforms = new HashMap<>();
+    private UniformValues currentUniforms;
+
+    private long issued = 0;
+    private long skipped = 0;
+    private long frameStartIssued = 0;
+    private long frameStartSkipped = 0;
+    private long frameIssued = 0;
+    private long frameSkipped = 0;
+
+    /**
+     * Creates a cache with all state unknown.
+     */
+    public GLStateCache() {
+        invalidate();
+    }
+
+    /**
+     * Forgets all cached state, so the next call of each kind is issued again.
+     * Uniform values are kept: they belong to the programs and cannot change behind the cache.
+     */
+    public void invalidate() {
+        program = UNKNOWN;
+        vertexArray = UNKNOWN;
+        activeUnit = UNKNOWN;
+        currentUniforms = null;
+        Arrays.fill(textures, UNKNOWN);
+    }
+
+    /**
+     * {@code glUseProgram} unless the program is already current.
+     */
+    public void useProgram(int id) {
+        if (program == id) {
+            skipped++;
+            return;
+        }
+        glUseProgram(id);
+        issued++;
+        program = id;
+        currentUniforms = uniforms.computeIfAbsent(id, k -> new UniformValues());
+    }
+
+    /**
+     * {@code glBindVertexArray} unless the vertex array is already bound.
+     */
+    public void bindVertexArray(int id) {
+        if (vertexArray == id) {
+            skipped++;
+            return;
+        }
+        glBindVertexArray(id);
+        issued++;
+        vertexArray = id;
+    }
+
+    /**
+     * Binds a 2D texture to a texture unit, selecting the unit first if needed.
+     *
+     * @param unit  texture unit index, 0 for {@code GL_TEXTURE0}
+     * @param id    texture to bind, 0 to unbind
+     */
+    public void bindTexture2D(int unit, int id) {
+        if (textures[unit] == id) {
+            skipped++;
+            return;
+        }
+        if (activeUnit != unit) {
+            glActiveTexture(GL_TEXTURE0 + unit);
+            issued++;
+            activeUnit = unit;
+        }
+        glBindTexture(GL_TEXTURE_2D, id);
+        issued++;
+        textures[unit] = id;
+    }
+
+    /**
+     * {@code glUniform1f} on the current program unless the uniform already holds the value.
+     */
+    public void uniform1f(int location, float x) {
+        if (location < 0) return;
+        UniformValues u = currentUniforms;
+        if (u != null && u.matches(location, x, 0.0f, 0.0f, 0.0f)) {
+            skipped++;
+            return;
+        }
+        glUniform1f(location, x);
+        issued++;
+        if (u != null) u.set(location, x, 0.0f, 0.0f, 0.0f);
+    }
+
+    /**
+     * {@code glUniform2f} on the current program unless the uniform already holds the value.
+     */
+    public void uniform2f(int location, float x, float y) {
+        if (location < 0) return;
+        UniformValues u = currentUniforms;
+        if (u != null && u.matches(location, x, y, 0.0f, 0.0f)) {
+            skipped++;
+            return;
+        }
+        glUniform2f(location, x, y);
+        issued++;
+        if (u != null) u.set(location, x, y, 0.0f, 0.0f);
+    }
+
+    /**
+     * {@code glUniform4f} on the current program unless the uniform already holds the value.
+     */
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        if (location < 0) return;
+        UniformValues u = currentUniforms;
+        if (u != null && u.matches(location, x, y, z, w)) {
+            skipped++;
+            return;
+        }
+        glUniform4f(location, x, y, z, w);
+        issued++;
+        if (u != null) u.set(location, x, y, z, w);
+    }
+
+    /**
+     * Closes the counters of the current frame. Called once per frame after the swap.
+     */
+    public void endFrame() {
+        frameIssued = issued - frameStartIssued;
+        frameSkipped = skipped - frameStartSkipped;
+        frameStartIssued = issued;
+        frameStartSkipped = skipped;
+    }
+
+    /**
+     * @return calls passed on to the GL since start
+     */
+    public long getIssuedCalls() {
+        return issued;
+    }
+
+    /**
+     * @return calls skipped because the state was already set, since start
+     */
+    public long getSkippedCalls() {
+        return skipped;
+    }
+
+    /**
+     * @return calls passed on to the GL in the last completed frame
+     */
+    public long getFrameIssuedCalls() {
+        return frameIssued;
+    }
+
+    /**
+     * @return calls skipped in the last completed frame
+     */
+    public long getFrameSkippedCalls() {
+        return frameSkipped;
+    }
+
+    /**
+     * Last values written to the uniforms of one program, four floats per location.
+     */
+    private static final class UniformValues {
+
+        private float[] values = new float[16 * 4];
+        private boolean[] known = new boolean[16];
+
+        boolean matches(int location, float x, float y, float z, float w) {
+            if (location >= known.length || !known[location]) return false;
+            int i = location * 4;
+            return values[i] == x && values[i + 1] == y && values[i + 2] == z && values[i + 3] == w;
+        }
+
+        void set(int location, float x, float y, float z, float w) {
+            if (location >= known.length) {
+                int size = Math.max(location + 1, known.length * 2);
+                known = Arrays.copyOf(known, size);
+                values = Arrays.copyOf(values, size * 4);
+            }
+            int i = location * 4;
+            values[i] = x;
+            values[i + 1] = y;
+            values[i + 2] = z;
+            values[i + 3] = w;
+            known[location] = true;
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package rendering;
+
+import static org.lwjgl.opengl.GL11.GL_FALSE;
+import static org.lwjgl.opengl.GL15.GL_QUERY_COUNTER_BITS;
+import static org.lwjgl.opengl.GL15.GL_QUERY_RESULT;
+import static org.lwjgl.opengl.GL15.GL_QUERY_RESULT_AVAILABLE;
+import static org.lwjgl.opengl.GL15.glBeginQuery;
+import static org.lwjgl.opengl.GL15.glDeleteQueries;
+import static org.lwjgl.opengl.GL15.glEndQuery;
+import static org.lwjgl.opengl.GL15.glGenQueries;
+import static org.lwjgl.opengl.GL15.glGetQueryObjecti;
+import static org.lwjgl.opengl.GL15.glGetQueryi;
+import static org.lwjgl.opengl.GL33.GL_TIME_ELAPSED;
+import static org.lwjgl.opengl.GL33.glGetQueryObjecti64;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import utility.FrameProfiler;
+
+/**
+ * Measures the GPU time of the render passes with {@code GL_TIME_ELAPSED} queries.
+ * <p>
+ * Every pass of a frame gets its own query object from a ring of {@link #FRAMES} frames.
+ * Results are only read once {@code GL_QUERY_RESULT_AVAILABLE} reports them ready, usually
+ * a frame or two later, so reading never waits for the GPU. If a query is still pending
+ * when its slot comes around again, that pass goes unmeasured for the frame instead.
+ * Finished timings are recorded into the {@link FrameProfiler} next to the CPU phases.
+ * </p>
+ * <p>
+ * Without timer query support (no GL 3.3 or {@code GL_ARB_timer_query}, or a counter
+ * with 0 bits as some software renderers report) every method does nothing.
+ * </p>
+ */
+public class GpuTimer {
+
+    /** Pass drawing all layers. */
+    public static final int LAYERS = 0;
+    /** Pass drawing the fade overlay. */
+    public static final int FADE = 1;
+    private static final int PASSES = 2;
+    private static final int[] PROFILER_PHASES = {FrameProfiler.GPU_LAYERS, FrameProfiler.GPU_FADE};
+
+    /** Frames whose queries may be in flight at once. */
+    public static final int FRAMES = 4;
+
+    private final FrameProfiler profiler;
+    private final boolean supported;
+
+    private final int[][] queries = new int[FRAMES][PASSES];
+    private final boolean[][] pending = new boolean[FRAMES][PASSES];
+    private int frame = 0;
+    private int activePass = -1;
+
+    private long skippedPasses = 0;
+
+    /**
+     * Creates the query objects if the context supports timer queries.
+     *
+     * @param profiler  receives the pass timings
+     */
+    public GpuTimer(FrameProfiler profiler) {
+        this.profiler = profiler;
+        GLCapabilities caps = GL.getCapabilities();
+        this.supported = (caps.OpenGL33 || caps.GL_ARB_timer_query)
+                && glGetQueryi(GL_TIME_ELAPSED, GL_QUERY_COUNTER_BITS) > 0;
+        if (supported) {
+            for (int f = 0; f < FRAMES; f++) {
+                glGenQueries(queries[f]);
+            }
+        }
+    }
+
+    /**
+     * Starts timing a pass of the current frame. Passes must not overlap.
+     *
+     * @param pass  {@link #LAYERS} or {@link #FADE}
+     */
+    public void begin(int pass) {
+        if (!supported) return;
+        if (pending[frame][pass]) {
+            // The result from FRAMES frames ago is still not back
+            skippedPasses++;
+            return;
+        }
+        glBeginQuery(GL_TIME_ELAPSED, queries[frame][pass]);
+        activePass = pass;
+    }
+
+    /**
+     * Ends the pass started with {@link #begin(int)}.
+     */
+    public void end() {
+        if (activePass < 0) return;
+        glEndQuery(GL_TIME_ELAPSED);
+        pending[frame][activePass] = true;
+        activePass = -1;
+    }
+
+    /**
+     * Records every result that has become available and moves on to the next frame's
+     * queries. Call once per frame after the last pass.
+     */
+    public void endFrame() {
+        if (!supported) return;
+        for (int f = 0; f < FRAMES; f++) {
+            for (int p = 0; p < PASSES; p++) {
+                if (!pending[f][p]) continue;
+                int query = queries[f][p];
+                if (glGetQueryObjecti(query, GL_QUERY_RESULT_AVAILABLE) == GL_FALSE) continue;
+                profiler.record(PROFILER_PHASES[p], glGetQueryObjecti64(query, GL_QUERY_RESULT));
+                pending[f][p] = false;
+            }
+        }
+        frame = (frame + 1) % FRAMES;
+    }
+
+    /**
+     * @return true if the context supports timer queries and passes are measured
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * @return passes left unmeasured because their query slot was still waiting for a result
+     */
+    public long getSkippedPasses() {
+        return skippedPasses;
+    }
+
+    /**
+     * Deletes the query objects.
+     */
+    public void cleanup() {
+        if (!supported) return;
+        for (int f = 0; f < FRAMES; f++) {
+            glDeleteQueries(queries[f]);
+        }
+    }
+
+}
@@ -0,0 +1,359 @@
+package rendering;
+
+import java.util.Arrays;
+
+import layerdata.LayerStore;
+import main.Config;
+
+/**
+ * Decides which distant layers are drawn as impostors and when an impostor must be redrawn.
+ * <p>
+ * Layers are grouped by spawn serial: serials {@code [b * groupSize, (b + 1) * groupSize)}
+ * form group {@code b}. Groups keep their members while they move, only the newest group
+ * grows as layers spawn, so most groups stay unchanged for many frames. Starting with the
+ * farthest layer, every group whose nearest layer is beyond the LOD distance, and whose
+ * screen footprint fits the impostor texture, is covered by an impostor; the first group
+ * that fails ends the far field.
+ * </p>
+ * <p>
+ * A covered group is rendered once into its texture and then drawn as a single quad,
+ * scaled by {@code z0 / z} of its nearest layer as it approaches and turned by the angle
+ * that layer turned since. Global rotation (modes 1-3) and constant per-layer rotation
+ * (modes 4 and 5) turn a group as a whole, so the quad can follow them. The group is
+ * marked stale and rendered again when its members, a color or an image changed, when
+ * the quad is magnified past one texel per output pixel, or when the cached image is
+ * further than the error bound from where the sprites really are: the layers of a group
+ * do not scale uniformly with depth, may turn apart (mode 6), and the sprites themselves
+ * should stay upright instead of turning with the quad.
+ * </p>
+ * <p>
+ * Contains no GL calls; the {@link Renderer} owns the textures.
+ * </p>
+ */
+public class ImpostorPlanner {
+
+    /** Smallest color change that shows in an 8-bit framebuffer. */
+    private static final float COLOR_EPSILON = 1.0f / 255.0f;
+
+    private final int groupSize;
+    private final float lodDistance;
+    private final int textureSize;
+    private final float focalLength;
+    private final float baseScale;
+    private final float halfWidth;
+    private final float halfHeight;
+    /** Output pixels per virtual viewport pixel. */
+    private final float pixelsPerUnit;
+    /** Error bound in virtual viewport pixels. */
+    private final float maxError;
+
+    /** State each texture slot was rendered with; group b uses slot b % slots. */
+    private final int slots;
+    private final int[] block;
+    private final int[] count;
+    private final float[] referenceZ;
+    private final float[] regionX;
+    private final float[] regionY;
+    /** Per cached layer, groupSize entries per slot: depth, effective angle, image, color. */
+    private final float[] depths;
+    private final float[] angles;
+    private final int[] images;
+    private final float[] colors;
+
+    /** Groups covered in the current frame, farthest first. */
+    private int groupCount;
+    private final int[] groupFirst;
+    private final int[] groupLength;
+    private final int[] groupSlot;
+    private final boolean[] groupStale;
+    private final float[] groupScale;
+    private final float[] groupTurn;
+
+    private int coveredLayers;
+    private long rerenders;
+
+    /**
+     * Creates a planner from the LOD settings, camera and viewports in the configuration.
+     *
+     * @param cfg       global configuration object
+     * @param capacity  capacity of the layer stores to plan for
+     */
+    public ImpostorPlanner(Config cfg, int capacity) {
+        this(capacity, cfg.LOD_GROUP_SIZE, cfg.lodDistance, cfg.LOD_TEXTURE_SIZE, cfg.lodMaxErrorPixels,
+                cfg.FOCAL_LENGTH, cfg.BASE_IMAGE_SCALE, cfg.virtualWidth, cfg.virtualHeight, cfg.windowHeight);
+    }
+
+    /**
+     * Creates a planner.
+     *
+     * @param capacity        capacity of the layer stores to plan for
+     * @param groupSize       layers per impostor
+     * @param lodDistance     only layers beyond this depth are covered
+     * @param textureSize     impostor texture width and height in texels
+     * @param maxErrorPixels  largest drift of a cached image, in output pixels
+     * @param focalLength     distance of the image plane from the camera
+     * @param baseScale       sprite size at the image plane
+     * @param viewportWidth   virtual viewport width in pixels
+     * @param viewportHeight  virtual viewport height in pixels
+     * @param outputHeight    height of the framebuffer the viewport is drawn into, in pixels
+     */
+    public ImpostorPlanner(int capacity, int groupSize, float lodDistance, int textureSize, float maxErrorPixels,
+            float focalLength, float baseScale, int viewportWidth, int viewportHeight, int outputHeight) {
+        this.groupSize = groupSize;
+        this.lodDistance = lodDistance;
+        this.textureSize = textureSize;
+        this.focalLength = focalLength;
+        this.baseScale = baseScale;
+        this.halfWidth = viewportWidth / 2.0f;
+        this.halfHeight = viewportHeight / 2.0f;
+        this.pixelsPerUnit = (float) outputHeight / viewportHeight;
+        this.maxError = maxErrorPixels / pixelsPerUnit;
+
+        // Live layers span at most capacity / groupSize + 1 blocks; one spare keeps slots unique
+        this.slots = capacity / groupSize + 2;
+        this.block = new int[slots];
+        this.count = new int[slots];
+        this.referenceZ = new float[slots];
+        this.regionX = new float[slots];
+        this.regionY = new float[slots];
+        this.depths = new float[slots * groupSize];
+        this.angles = new float[slots * groupSize];
+        this.images = new int[slots * groupSize];
+        this.colors = new float[slots * groupSize * LayerStore.COLOR_STRIDE];
+        Arrays.fill(block, -1);
+
+        this.groupFirst = new int[slots];
+        this.groupLength = new int[slots];
+        this.groupSlot = new int[slots];
+        this.groupStale = new boolean[slots];
+        this.groupScale = new float[slots];
+        this.groupTurn = new float[slots];
+    }
+
+    /**
+     * Finds the groups to draw as impostors this frame. Stale groups are recorded as if
+     * they were rendered with the given state, so the caller must render every group
+     * {@link #isStale(int)} reports.
+     *
+     * @param layers         the layers to draw
+     * @param rotationMode   rotation mode, see {@link Scene}
+     * @param rotationAngle  global rotation angle in degrees, used in modes 1-3
+     * @return               number of layers, counted from the farthest, covered by impostors
+     */
+    public int plan(LayerStore layers, int rotationMode, float rotationAngle) {
+        float[] z = layers.depths();
+        int[] serials = layers.serials();
+        float outerRadius = layers.getShape().outerRadius();
+        int size = layers.size();
+
+        groupCount = 0;
+        int first = 0;
+        while (first < size) {
+            int b = serials[layers.slot(first)] / groupSize;
+            int end = first + 1;
+            while (end < size && serials[layers.slot(end)] / groupSize == b) end++;
+            int length = end - first;
+
+            float nearZ = z[layers.slot(end - 1)];
+            if (nearZ <= lodDistance) break;
+            float radius = regionRadius(outerRadius, nearZ);
+            if (2.0f * radius * pixelsPerUnit > textureSize) break;
+
+            int slot = b % slots;
+            boolean stale = block[slot] != b || count[slot] != length
+                    || isOff(slot, layers, first, length, rotationMode, rotationAngle, outerRadius);
+            if (stale) {
+                capture(slot, b, layers, first, length, rotationMode, rotationAngle);
+                regionX[slot] = radius / halfWidth;
+                regionY[slot] = radius / halfHeight;
+                rerenders++;
+            }
+
+            groupFirst[groupCount] = first;
+            groupLength[groupCount] = length;
+            groupSlot[groupCount] = slot;
+            groupStale[groupCount] = stale;
+            groupScale[groupCount] = referenceZ[slot] / nearZ;
+            groupTurn[groupCount] = stale ? 0.0f : turn(slot, layers, first, length, rotationMode, rotationAngle);
+            groupCount++;
+            first = end;
+        }
+        coveredLayers = first;
+        return first;
+    }
+
+    /**
+     * Radius around the center, in virtual pixels, that holds every sprite of a layer at
+     * the given depth, sprite corners included.
+     */
+    private float regionRadius(float outerRadius, float z) {
+        float computedScale = focalLength / z;
+        return outerRadius * computedScale + 0.70710677f * computedScale * baseScale * halfHeight;
+    }
+
+    /**
+     * Tests whether the scaled and turned impostor of a group with unchanged members is
+     * visibly off from the layers it stands for.
+     */
+    private boolean isOff(int slot, LayerStore layers, int first, int length,
+            int rotationMode, float rotationAngle, float outerRadius) {
+        float[] z = layers.depths();
+        float[] layerAngles = layers.angles();
+        float[] layerColors = layers.colors();
+        int[] layerImages = layers.images();
+        float reach = outerRadius * focalLength;
+        float nearZ = z[layers.slot(first + length - 1)];
+        float scale = referenceZ[slot] / nearZ;
+
+        if (2.0f * regionY[slot] * halfHeight * scale * pixelsPerUnit > textureSize) return true;
+
+        // The sprites turn with the quad, the nearest ones by their corners the most
+        float turn = turn(slot, layers, first, length, rotationMode, rotationAngle);
+        float spriteRadius = 0.70710677f * focalLength / nearZ * baseScale * halfHeight;
+        if (radians(turn) * spriteRadius > maxError) return true;
+
+        for (int k = 0; k < length; k++) {
+            int s = layers.slot(first + k);
+            int cached = slot * groupSize + k;
+            // The quad puts the outermost point at reach * scale / z0 instead of reach / z
+            if (Math.abs(reach / z[s] - reach * scale / depths[cached]) > maxError) return true;
+            float angle = effectiveAngle(rotationMode, rotationAngle, layerAngles[s]);
+            if (radians(angle - angles[cached] - turn) * reach / z[s] > maxError) return true;
+            if (layerImages[s] != images[cached]) return true;
+            int c = s * LayerStore.COLOR_STRIDE;
+            int cc = cached * LayerStore.COLOR_STRIDE;
+            for (int i = 0; i < LayerStore.COLOR_STRIDE; i++) {
+                if (Math.abs(layerColors[c + i] - colors[cc + i]) > COLOR_EPSILON) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return degrees the nearest layer of a group turned since its impostor was rendered
+     */
+    private float turn(int slot, LayerStore layers, int first, int length, int rotationMode, float rotationAngle) {
+        int nearest = layers.slot(first + length - 1);
+        float angle = effectiveAngle(rotationMode, rotationAngle, layers.angles()[nearest]);
+        return angle - angles[slot * groupSize + length - 1];
+    }
+
+    private void capture(int slot, int b, LayerStore layers, int first, int length,
+            int rotationMode, float rotationAngle) {
+        block[slot] = b;
+        count[slot] = length;
+        referenceZ[slot] = layers.depths()[layers.slot(first + length - 1)];
+        for (int k = 0; k < length; k++) {
+            int s = layers.slot(first + k);
+            int cached = slot * groupSize + k;
+            depths[cached] = layers.depths()[s];
+            angles[cached] = effectiveAngle(rotationMode, rotationAngle, layers.angles()[s]);
+            images[cached] = layers.images()[s];
+            System.arraycopy(layers.colors(), s * LayerStore.COLOR_STRIDE,
+                    colors, cached * LayerStore.COLOR_STRIDE, LayerStore.COLOR_STRIDE);
+        }
+    }
+
+    /**
+     * @return the angle in degrees a layer is drawn at, as {@link SpriteProjector} picks it
+     */
+    private static float effectiveAngle(int rotationMode, float rotationAngle, float layerAngle) {
+        if (rotationMode >= 1 && rotationMode <= 3) return rotationAngle;
+        if (rotationMode >= 4) return layerAngle;
+        return 0.0f;
+    }
+
+    /**
+     * @return the size of an angle difference in degrees, in radians within [0, pi]
+     */
+    private static float radians(float degrees) {
+        float d = Math.abs(degrees) % 360.0f;
+        return (float) Math.toRadians(Math.min(d, 360.0f - d));
+    }
+
+    /**
+     * @return number of texture slots; the renderer needs one impostor texture per slot
+     */
+    public int getSlotCount() {
+        return slots;
+    }
+
+    /**
+     * @return number of groups covered in the current frame
+     */
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * @return depth index of the farthest layer of the group
+     */
+    public int getGroupFirst(int group) {
+        return groupFirst[group];
+    }
+
+    /**
+     * @return number of layers in the group
+     */
+    public int getGroupLength(int group) {
+        return groupLength[group];
+    }
+
+    /**
+     * @return texture slot holding the group's impostor
+     */
+    public int getGroupSlot(int group) {
+        return groupSlot[group];
+    }
+
+    /**
+     * @return true if the group must be rendered into its texture this frame
+     */
+    public boolean isStale(int group) {
+        return groupStale[group];
+    }
+
+    /**
+     * @return factor to scale the impostor quad by, 1 on the frame it was rendered
+     */
+    public float getGroupScale(int group) {
+        return groupScale[group];
+    }
+
+    /**
+     * @return counterclockwise angle in radians to turn the impostor quad by, 0 on the frame
+     *         it was rendered
+     */
+    public float getGroupTurn(int group) {
+        return (float) Math.toRadians(groupTurn[group]);
+    }
+
+    /**
+     * @return half width of the group's texture in NDC units at scale 1
+     */
+    public float getRegionX(int group) {
+        return regionX[groupSlot[group]];
+    }
+
+    /**
+     * @return half height of the group's texture in NDC units at scale 1
+     */
+    public float getRegionY(int group) {
+        return regionY[groupSlot[group]];
+    }
+
+    /**
+     * @return layers covered by impostors in the current frame
+     */
+    public int getCoveredLayers() {
+        return coveredLayers;
+    }
+
+    /**
+     * @return impostors rendered since start
+     */
+    public long getRerenders() {
+        return rerenders;
+    }
+
+}
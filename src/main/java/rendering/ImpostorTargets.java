@@ -0,0 +1,112 @@
+package rendering;
+
+import static org.lwjgl.opengl.GL11.GL_LINEAR;
+import static org.lwjgl.opengl.GL11.GL_RGBA;
+import static org.lwjgl.opengl.GL11.GL_RGBA8;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_MAG_FILTER;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_MIN_FILTER;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_WRAP_S;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_WRAP_T;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL11.glBindTexture;
+import static org.lwjgl.opengl.GL11.glDeleteTextures;
+import static org.lwjgl.opengl.GL11.glGenTextures;
+import static org.lwjgl.opengl.GL11.glGetInteger;
+import static org.lwjgl.opengl.GL11.glTexImage2D;
+import static org.lwjgl.opengl.GL11.glTexParameteri;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL30.GL_COLOR_ATTACHMENT0;
+import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER;
+import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER_BINDING;
+import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER_COMPLETE;
+import static org.lwjgl.opengl.GL30.glBindFramebuffer;
+import static org.lwjgl.opengl.GL30.glCheckFramebufferStatus;
+import static org.lwjgl.opengl.GL30.glDeleteFramebuffers;
+import static org.lwjgl.opengl.GL30.glFramebufferTexture2D;
+import static org.lwjgl.opengl.GL30.glGenFramebuffers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The textures impostors are rendered into: one RGBA8 texture with its own framebuffer
+ * per {@link ImpostorPlanner} slot. Colors are stored with premultiplied alpha, so an
+ * impostor blends like the layers it replaces.
+ */
+public class ImpostorTargets {
+
+    private final int size;
+    private final int[] framebufferIds;
+    private final int[] textureIds;
+
+    /**
+     * Creates the textures and framebuffers and restores the framebuffer bound before,
+     * e.g. the export target.
+     *
+     * @param slots  number of impostors, see {@link ImpostorPlanner#getSlotCount()}
+     * @param size   texture width and height in texels
+     * @throws IllegalStateException if a framebuffer is incomplete
+     */
+    public ImpostorTargets(int slots, int size) {
+        this.size = size;
+        this.framebufferIds = new int[slots];
+        this.textureIds = new int[slots];
+
+        int previous = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        glGenTextures(textureIds);
+        glGenFramebuffers(framebufferIds);
+        for (int i = 0; i < slots; i++) {
+            glBindTexture(GL_TEXTURE_2D, textureIds[i]);
+            glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, size, size, 0, GL_RGBA, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+
+            glBindFramebuffer(GL_FRAMEBUFFER, framebufferIds[i]);
+            glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, textureIds[i], 0);
+            int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+            if (status != GL_FRAMEBUFFER_COMPLETE) {
+                glBindFramebuffer(GL_FRAMEBUFFER, previous);
+                cleanup();
+                throw new IllegalStateException("Impostor framebuffer incomplete: 0x" + Integer.toHexString(status));
+            }
+        }
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glBindFramebuffer(GL_FRAMEBUFFER, previous);
+    }
+
+    /**
+     * Makes the framebuffer of a slot the target of draw calls. The caller sets the viewport.
+     *
+     * @param slot  impostor slot
+     */
+    public void bind(int slot) {
+        glBindFramebuffer(GL_FRAMEBUFFER, framebufferIds[slot]);
+    }
+
+    /**
+     * @param slot  impostor slot
+     * @return      the texture holding the slot's impostor
+     */
+    public int getTextureId(int slot) {
+        return textureIds[slot];
+    }
+
+    /**
+     * @return texture width and height in texels
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Binds the default framebuffer again and deletes the framebuffers and textures.
+     */
+    public void cleanup() {
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        glDeleteFramebuffers(framebufferIds);
+        glDeleteTextures(textureIds);
+    }
+
+}
@@ -0,0 +1,106 @@
+package rendering;
+
+import static org.lwjgl.opengl.GL11.GL_RGBA8;
+import static org.lwjgl.opengl.GL30.GL_COLOR_ATTACHMENT0;
+import static org.lwjgl.opengl.GL30.GL_DEPTH24_STENCIL8;
+import static org.lwjgl.opengl.GL30.GL_DEPTH_STENCIL_ATTACHMENT;
+import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER;
+import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER_COMPLETE;
+import static org.lwjgl.opengl.GL30.GL_RENDERBUFFER;
+import static org.lwjgl.opengl.GL30.glBindFramebuffer;
+import static org.lwjgl.opengl.GL30.glBindRenderbuffer;
+import static org.lwjgl.opengl.GL30.glCheckFramebufferStatus;
+import static org.lwjgl.opengl.GL30.glDeleteFramebuffers;
+import static org.lwjgl.opengl.GL30.glDeleteRenderbuffers;
+import static org.lwjgl.opengl.GL30.glFramebufferRenderbuffer;
+import static org.lwjgl.opengl.GL30.glGenFramebuffers;
+import static org.lwjgl.opengl.GL30.glGenRenderbuffers;
+import static org.lwjgl.opengl.GL30.glRenderbufferStorage;
+
+/**
+ * Framebuffer object with an RGBA8 color and a depth/stencil renderbuffer.
+ * <p>
+ * Replaces the window's default framebuffer in export mode: hidden windows and
+ * software contexts (OSMesa, llvmpipe) do not guarantee a readable back buffer,
+ * a framebuffer object always has one of the requested size.
+ * </p>
+ */
+public class OffscreenTarget {
+
+    private final int width;
+    private final int height;
+    private final int framebufferId;
+    private final int colorId;
+    private final int depthId;
+
+    /**
+     * Creates the framebuffer and leaves it bound.
+     *
+     * @param width   width in pixels
+     * @param height  height in pixels
+     * @throws IllegalStateException if the framebuffer is incomplete
+     */
+    public OffscreenTarget(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        colorId = glGenRenderbuffers();
+        glBindRenderbuffer(GL_RENDERBUFFER, colorId);
+        glRenderbufferStorage(GL_RENDERBUFFER, GL_RGBA8, width, height);
+
+        depthId = glGenRenderbuffers();
+        glBindRenderbuffer(GL_RENDERBUFFER, depthId);
+        glRenderbufferStorage(GL_RENDERBUFFER, GL_DEPTH24_STENCIL8, width, height);
+        glBindRenderbuffer(GL_RENDERBUFFER, 0);
+
+        framebufferId = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, framebufferId);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_RENDERBUFFER, colorId);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_STENCIL_ATTACHMENT, GL_RENDERBUFFER, depthId);
+
+        int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+        if (status != GL_FRAMEBUFFER_COMPLETE) {
+            cleanup();
+            throw new IllegalStateException("Offscreen framebuffer incomplete: 0x" + Integer.toHexString(status));
+        }
+    }
+
+    /**
+     * Makes this framebuffer the target of draw calls and {@code glReadPixels}.
+     */
+    public void bind() {
+        glBindFramebuffer(GL_FRAMEBUFFER, framebufferId);
+    }
+
+    /**
+     * @return the framebuffer object, e.g. to bind it again after drawing into another one
+     */
+    public int getFramebufferId() {
+        return framebufferId;
+    }
+
+    /**
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Binds the default framebuffer again and deletes the framebuffer and its renderbuffers.
+     */
+    public void cleanup() {
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        glDeleteFramebuffers(framebufferId);
+        glDeleteRenderbuffers(colorId);
+        glDeleteRenderbuffers(depthId);
+    }
+
+}
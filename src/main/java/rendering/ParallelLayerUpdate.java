@@ -0,0 +1,126 @@
+package rendering;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the per-layer part of a {@link Scene} update into chunks of depth indices and
+ * runs them on a fork/join pool.
+ * <p>
+ * Moving a layer and advancing its rotation only touch that layer's slot, so chunks need
+ * no synchronization and the result is bit for bit the one of the serial loop. Removal
+ * and spawning change the ring itself; the scene does them on the calling thread after
+ * the chunks joined, in the same order as before. Scenes below the threshold stay serial,
+ * where forking would cost more than it saves; see {@code LayerUpdateBenchmark} for the
+ * crossover.
+ * </p>
+ * <p>
+ * The pool is created on first use and kept, so steady-state frames only pay for the
+ * task objects. Its workers are daemon threads and need no shutdown.
+ * </p>
+ */
+public class ParallelLayerUpdate {
+
+    /** Fewest layers a task processes; smaller chunks cost more to schedule than to run. */
+    public static final int MIN_CHUNK = 512;
+
+    /**
+     * Work on the depth indices {@code [from, to)} of a layer store.
+     */
+    @FunctionalInterface
+    public interface Range {
+        void apply(int from, int to);
+    }
+
+    private final int threads;
+    private final int threshold;
+    private ForkJoinPool pool;
+
+    /**
+     * @param threads    worker threads; 0 for one per available processor
+     * @param threshold  fewest layers to update in parallel
+     */
+    public ParallelLayerUpdate(int threads, int threshold) {
+        this.threads = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        this.threshold = Math.max(threshold, 0);
+    }
+
+    /**
+     * @param layerCount  layers to update
+     * @return            true if {@link #run(int, Range)} would split the work
+     */
+    public boolean appliesTo(int layerCount) {
+        return threads > 1 && layerCount >= threshold && layerCount > MIN_CHUNK;
+    }
+
+    /**
+     * Applies the work to all depth indices {@code [0, layerCount)} and returns when every
+     * chunk has finished. Runs serially on the calling thread if the count is below the
+     * threshold.
+     *
+     * @param layerCount  layers to update
+     * @param work        called once per chunk, from any thread
+     */
+    public void run(int layerCount, Range work) {
+        if (!appliesTo(layerCount)) {
+            work.apply(0, layerCount);
+            return;
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool(threads, p -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                t.setName("layer-update-" + t.getPoolIndex());
+                return t;
+            }, null, false);
+        }
+        // A few chunks per thread even out the layers that rotate and those that do not
+        int chunk = Math.max(MIN_CHUNK, (layerCount + threads * 4 - 1) / (threads * 4));
+        pool.invoke(new Chunk(work, 0, layerCount, chunk));
+    }
+
+    /**
+     * @return worker threads of the pool
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return fewest layers updated in parallel
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Halves its range until it is at most one chunk long.
+     */
+    private static final class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Range work;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        Chunk(Range work, int from, int to, int chunk) {
+            this.work = work;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                work.apply(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunk(work, from, mid, chunk), new Chunk(work, mid, to, chunk));
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package rendering;
+
+/**
+ * Rotates shape points and projects them into NDC, the inner loop of
+ * {@link SpriteProjector#project}.
+ * <p>
+ * Works on packed x and y arrays: point {@code i} becomes
+ * {@code ndcX[i] = (cos * xs[i] - sin * ys[i]) * kx} and
+ * {@code ndcY[i] = (sin * xs[i] + cos * ys[i]) * ky}, where {@code kx} and {@code ky} are
+ * the layer's {@code focalLength / z} divided by half the viewport width and height.
+ * Every implementation computes these exact operations in this order, so they agree to
+ * the bit.
+ * </p>
+ */
+public interface ProjectionKernel {
+
+    /**
+     * Rotates and projects {@code count} points.
+     *
+     * @param xs     model-space x coordinates
+     * @param ys     model-space y coordinates
+     * @param count  number of points
+     * @param cos    cosine of the rotation angle
+     * @param sin    sine of the rotation angle
+     * @param kx     NDC units per model unit along x
+     * @param ky     NDC units per model unit along y
+     * @param ndcX   receives the NDC x coordinates
+     * @param ndcY   receives the NDC y coordinates
+     */
+    void project(float[] xs, float[] ys, int count, float cos, float sin, float kx, float ky,
+            float[] ndcX, float[] ndcY);
+
+    /**
+     * @return short description for logs and benchmark output, e.g. {@code "vector 256-bit"}
+     */
+    String name();
+
+    /**
+     * Picks the fastest kernel the JVM supports.
+     *
+     * @param vector  true to use the JDK Vector API if the JVM was started with
+     *                {@code --add-modules jdk.incubator.vector}
+     * @return        the SIMD kernel if requested and available, otherwise the scalar one
+     */
+    static ProjectionKernel create(boolean vector) {
+        if (vector && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return new VectorProjectionKernel();
+            } catch (LinkageError e) {
+                System.err.println("Vector projection unavailable, using scalar: " + e);
+            }
+        }
+        return new ScalarProjectionKernel();
+    }
+
+}
@@ -10,12 +10,24 @@ import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
 import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
 import static org.lwjgl.opengl.GL30.glBindVertexArray;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+import layerdata.Shape;
 
 /**
  * Provides a method to generate a simple textured quad for rendering.
  */
 public class Quad {
 
+    /** Floats per sprite instance: offset (x, y), scale, color (r, g, b, a), UV rectangle (u, v, w, h). */
+    public static final int INSTANCE_FLOATS = 11;
+
+    /** Floats per layer instance: z, rotation angle in degrees, color (r, g, b, a), UV rectangle (u, v, w, h). */
+    public static final int LAYER_INSTANCE_FLOATS = 10;
+
+    /** Floats per vertex of the static shape mesh: position, texCoords, shape point. */
+    private static final int SHAPE_VERTEX_FLOATS = 6;
+
     /**
      * Creates a VAO and VBO for a quad made of two triangles with position and texture coordinates.
      *
@@ -54,4 +66,115 @@ public class Quad {
         return vao;
     }
 
+    /**
+     * Creates a VAO holding one quad per shape point. Every vertex repeats the model-space
+     * point of its sprite, so the vertex shader can rotate and project the whole shape
+     * without any per-point data from the CPU.
+     *
+     * @param shape The model-space coordinates shared by all layers.
+     * @return The generated VAO ID.
+     */
+    public static int createShapeQuads(Shape shape) {
+        float[] corners = {
+            // Position      // TexCoords
+            -0.5f,  0.5f,    0.0f, 1.0f,
+            -0.5f, -0.5f,    0.0f, 0.0f,
+             0.5f, -0.5f,    1.0f, 0.0f,
+
+             0.5f, -0.5f,    1.0f, 0.0f,
+             0.5f,  0.5f,    1.0f, 1.0f,
+            -0.5f,  0.5f,    0.0f, 1.0f
+        };
+
+        float[] vertices = new float[shape.size() * 6 * SHAPE_VERTEX_FLOATS];
+        int i = 0;
+        for (int p = 0; p < shape.size(); p++) {
+            for (int c = 0; c < corners.length; c += 4) {
+                vertices[i++] = corners[c];
+                vertices[i++] = corners[c + 1];
+                vertices[i++] = corners[c + 2];
+                vertices[i++] = corners[c + 3];
+                vertices[i++] = shape.getX(p);
+                vertices[i++] = shape.getY(p);
+            }
+        }
+
+        int vao = glGenVertexArrays();
+        int vbo = glGenBuffers();
+        int stride = SHAPE_VERTEX_FLOATS * Float.BYTES;
+
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+
+        // Attribut 0: Position (2 float-Werte)
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, stride, 0);
+        glEnableVertexAttribArray(0);
+        // Attribut 1: TexCoords (2 float-Werte)
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, stride, 2 * Float.BYTES);
+        glEnableVertexAttribArray(1);
+        // Attribut 2: Formpunkt im Modellraum (2 float-Werte)
+        glVertexAttribPointer(2, 2, GL_FLOAT, false, stride, 4 * Float.BYTES);
+        glEnableVertexAttribArray(2);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+
+        return vao;
+    }
+
+    /**
+     * Points the per-sprite instance attributes of the bound quad VAO at the buffer bound
+     * to {@code GL_ARRAY_BUFFER}, starting at the given byte offset.
+     *
+     * @param offset Byte offset of the first instance.
+     */
+    public static void bindInstanceAttributes(long offset) {
+        int stride = INSTANCE_FLOATS * Float.BYTES;
+
+        // Attribut 2: Offset in NDC (2 float-Werte)
+        glVertexAttribPointer(2, 2, GL_FLOAT, false, stride, offset);
+        glEnableVertexAttribArray(2);
+        glVertexAttribDivisor(2, 1);
+        // Attribut 3: Scale (1 float-Wert)
+        glVertexAttribPointer(3, 1, GL_FLOAT, false, stride, offset + 2 * Float.BYTES);
+        glEnableVertexAttribArray(3);
+        glVertexAttribDivisor(3, 1);
+        // Attribut 4: Layer-Farbe (4 float-Werte)
+        glVertexAttribPointer(4, 4, GL_FLOAT, false, stride, offset + 3 * Float.BYTES);
+        glEnableVertexAttribArray(4);
+        glVertexAttribDivisor(4, 1);
+        // Attribut 5: UV-Rechteck im Atlas (4 float-Werte)
+        glVertexAttribPointer(5, 4, GL_FLOAT, false, stride, offset + 7 * Float.BYTES);
+        glEnableVertexAttribArray(5);
+        glVertexAttribDivisor(5, 1);
+    }
+
+    /**
+     * Points the per-layer instance attributes of the bound shape VAO at the buffer bound
+     * to {@code GL_ARRAY_BUFFER}, starting at the given byte offset.
+     *
+     * @param offset Byte offset of the first instance.
+     */
+    public static void bindLayerInstanceAttributes(long offset) {
+        int stride = LAYER_INSTANCE_FLOATS * Float.BYTES;
+
+        // Attribut 3: Layer-Z (1 float-Wert)
+        glVertexAttribPointer(3, 1, GL_FLOAT, false, stride, offset);
+        glEnableVertexAttribArray(3);
+        glVertexAttribDivisor(3, 1);
+        // Attribut 4: Rotationswinkel in Grad (1 float-Wert)
+        glVertexAttribPointer(4, 1, GL_FLOAT, false, stride, offset + Float.BYTES);
+        glEnableVertexAttribArray(4);
+        glVertexAttribDivisor(4, 1);
+        // Attribut 5: Layer-Farbe (4 float-Werte)
+        glVertexAttribPointer(5, 4, GL_FLOAT, false, stride, offset + 2 * Float.BYTES);
+        glEnableVertexAttribArray(5);
+        glVertexAttribDivisor(5, 1);
+        // Attribut 6: UV-Rechteck im Atlas (4 float-Werte)
+        glVertexAttribPointer(6, 4, GL_FLOAT, false, stride, offset + 6 * Float.BYTES);
+        glEnableVertexAttribArray(6);
+        glVertexAttribDivisor(6, 1);
+    }
+
 }
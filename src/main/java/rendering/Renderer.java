@@ -1,71 +1,96 @@
 package rendering;
 
-import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL11.GL_COLOR_BUFFER_BIT;
+import static org.lwjgl.opengl.GL11.GL_ONE;
+import static org.lwjgl.opengl.GL11.GL_ONE_MINUS_SRC_ALPHA;
+import static org.lwjgl.opengl.GL11.GL_SRC_ALPHA;
 import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
-import static org.lwjgl.opengl.GL11.glBindTexture;
+import static org.lwjgl.opengl.GL11.glBlendFunc;
+import static org.lwjgl.opengl.GL11.glClear;
 import static org.lwjgl.opengl.GL11.glDrawArrays;
-import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
-import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL11.glViewport;
+import static org.lwjgl.opengl.GL14.glBlendFuncSeparate;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
 import static org.lwjgl.opengl.GL20.glGetUniformLocation;
-import static org.lwjgl.opengl.GL20.glUniform1f;
-import static org.lwjgl.opengl.GL20.glUniform2f;
-import static org.lwjgl.opengl.GL20.glUniform4f;
-import static org.lwjgl.opengl.GL20.glUseProgram;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER;
+import static org.lwjgl.opengl.GL30.glBindFramebuffer;
+import static org.lwjgl.opengl.GL31.glDrawArraysInstanced;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.FloatBuffer;
 
-import layerdata.Coordinate2D;
+import org.lwjgl.system.MemoryUtil;
+
+import audio.AudioPipeline;
+import layerdata.LayerStore;
 import main.AppRunner;
-import layerdata.Layer;
 import main.Config;
-import utility.Timer;
+import utility.TextureAtlas;
 
 /**
  * Main renderer for the audio visualizer.
- * Controls layer spawning, movement along Z, global rotation, fade‑in/out overlay,
- * and submits draw calls to OpenGL.
+ * Advances the {@link Scene} (layer spawning, movement along Z, rotation, fade‑in)
+ * and submits its layers and the fade overlay to OpenGL.
  */
 public class Renderer {
 
     AppRunner ar;
-    Effects effects;
-    Timer timer;
 
     private int uAspect;
     private int uOffset;
     private int uScale;
     private int uLayerColor;
+    private int uUvRect;
+    private int uRotation;
+    private int uInstancedAspect;
+    private int uProjectedAspect;
+    private int uFocalLength;
+    private int uBaseScale;
+    private int uHalfViewport;
+
+    /** 0: per-sprite uniforms, 1: instanced, 2: GPU projected (see {@link Config#RENDER_PATH}) */
+    private int renderPath;
+
+    /** Off-heap staging buffer for the per-sprite uniforms of path 0, grown on demand */
+    private FloatBuffer instanceData;
+
+    /** Ring the instance data of paths 1 and 2 is written into, or null for path 0 */
+    private StreamingBuffer instanceStream;
 
     private int windowWidth, windowHeight;
+
+    /** Size of the framebuffer frames are drawn into, for restoring the viewport */
+    private int outputWidth, outputHeight;
+
+    /** Distant layer groups drawn as impostors, or null without LOD (path 0 or disabled) */
+    private ImpostorPlanner impostors;
+    private ImpostorTargets impostorTargets;
+    /** Instance range of every group rendered into its impostor this frame */
+    private int[] impostorStart;
+    private int[] impostorCount;
+
+    /** Sprites submitted and culled in the last frame, over all draws */
+    private int drawnSprites;
+    private int culledSprites;
     
     private final int textureId;
-    private float baseScale;
 
-    /** All active layers in depth order (0 = frontmost) */
-    private List<Layer> layers;
+    /** Skips program, vertex array, texture and uniform calls that change nothing */
+    private final GLStateCache gl;
 
-    private int initZ;
-    private int layerDistance;
-    private int removeLayerDistance;
-    private float zAccumulator;
+    /** Simulation state drawn by this renderer */
+    private final Scene scene;
 
-    private float focalLength;
-    private float rotationAngle;
-    float speed;
+    /** CPU rotation and projection of the sprite paths */
+    private final SpriteProjector projector;
 
-    /**
-     * 0: no rotation
-     * 1-3: whole shape rotates; 1: clockwise; 2: counterclockwise; 3: back and forth
-     * 4-6: every layer has rotation; 4: counterclockwise; 5; clockwise; 6: back and forth
-     * 7: no rotation but keeps layer rotation
-     */
-    int rotationMode = 0;
+    /** GPU time of the layer and fade passes, or null if not measured */
+    private GpuTimer gpuTimer;
 
-    // animation calibrated for initZ = 10000 and timer 10.0 seconds
-    int[] rotationAnimation = {0, 1, 2, 2, 1, 4, 5, 4, 5, 7, 7, 6, 6, 7, 7};
-    int animationCounter = 0;
+    /** Snapshots from the simulation thread, or null if the scene is updated on this thread */
+    private SnapshotExchange snapshots;
+    private long simulationStepNanos;
+    private SceneSnapshot interpolated;
 
     /**
      * Constructs the renderer, loads settings, spawns initial layers or debug layer.
@@ -77,18 +102,26 @@ public class Renderer {
     public Renderer(AppRunner ar, int textureId, Config cfg) {
         this.ar = ar;
     	this.textureId = textureId;
+        this.gl = ar.getGlState();
 
         initializeSettings(cfg);
 
-        timer = new Timer(10.0);
-        
-        effects = new Effects(this, cfg);
-        
-        if(ar.debugMode) {
-        	layers = new ArrayList<>();
-        	layers.add(new Layer(cfg.DEBUG_RGBA, cfg.debugInitZ));
-        } else {
-            layers = effects.createInitialLayers();
+        scene = new Scene(cfg, ar.debugMode, ar.getClock());
+        projector = new SpriteProjector(cfg, scene.getEffects());
+
+        if(cfg.layerLod && renderPath != 0) {
+            impostors = new ImpostorPlanner(cfg, scene.getLayers().capacity());
+            impostorTargets = new ImpostorTargets(impostors.getSlotCount(), cfg.LOD_TEXTURE_SIZE);
+            impostorStart = new int[impostors.getSlotCount()];
+            impostorCount = new int[impostors.getSlotCount()];
+            // The targets were created with direct texture binds
+            gl.invalidate();
+        }
+
+        TextureAtlas atlas = ar.getTextureAtlas();
+        if(atlas != null) {
+            projector.setImageRects(atlas.getUvRects());
+            scene.setImages(atlas.getImageCount(), Math.max(0, atlas.indexOf(cfg.TEXTURE_PATH)));
         }
     }
 
@@ -100,33 +133,32 @@ public class Renderer {
     private void initializeSettings(Config cfg) {
         this.windowWidth = cfg.virtualWidth;
         this.windowHeight = cfg.virtualHeight;
+        this.outputWidth = cfg.windowWidth;
+        this.outputHeight = cfg.windowHeight;
 
-        this.baseScale = cfg.BASE_IMAGE_SCALE;
-
-        this.initZ = cfg.initZ;
-        this.layerDistance = cfg.LAYER_DISTANCE;
-        this.removeLayerDistance = cfg.REMOVE_LAYER_DISTANCE;
-
-        this.focalLength = cfg.FOCAL_LENGTH;
-
-        this.speed = cfg.START_SPEED;
-
-        this.zAccumulator = 0.0f;
-        this.rotationAngle = 0.0f;
-
-        if(rotationMode < 0) {
-            rotationMode = 0;
-        }
-        else if(rotationMode > 6) {
-            rotationMode = 0;
-        }
+        this.renderPath = cfg.RENDER_PATH;
 
         int prog = ar.getShaderProgram();
         uAspect     = glGetUniformLocation(prog, "aspect");
         uOffset     = glGetUniformLocation(prog, "offset");
         uScale      = glGetUniformLocation(prog, "scale");
         uLayerColor = glGetUniformLocation(prog, "layerColor");
-
+        uUvRect     = glGetUniformLocation(prog, "uvRect");
+        uRotation   = glGetUniformLocation(prog, "rotation");
+
+        if(renderPath == 2) {
+            int projected = ar.getInstancedShaderProgram();
+            uProjectedAspect = glGetUniformLocation(projected, "aspect");
+            uFocalLength     = glGetUniformLocation(projected, "focalLength");
+            uBaseScale       = glGetUniformLocation(projected, "baseScale");
+            uHalfViewport    = glGetUniformLocation(projected, "halfViewport");
+            instanceStream = new StreamingBuffer(256 * Quad.LAYER_INSTANCE_FLOATS, cfg.PERSISTENT_MAPPING);
+        } else if(renderPath == 1) {
+            uInstancedAspect = glGetUniformLocation(ar.getInstancedShaderProgram(), "aspect");
+            instanceStream = new StreamingBuffer(1024 * Quad.INSTANCE_FLOATS, cfg.PERSISTENT_MAPPING);
+        } else {
+            instanceData = MemoryUtil.memAllocFloat(1024 * Quad.INSTANCE_FLOATS);
+        }
     }
 
     /**
@@ -135,145 +167,357 @@ public class Renderer {
      * @param deltaTime  seconds since last frame
      */
     public void update(float deltaTime) {
+        scene.update(deltaTime);
+    }
 
-        // Rotate mode cycling
-    	if(timer.isElapsed()) {
-    		timer.reset();
-            /*
-    		if(rotationMode < 7) {
-    			rotationMode++;
-    		} else {
-                rotationMode = 0;
-            }*/
-            if(animationCounter >= rotationAnimation.length) animationCounter = 0;
-            rotationMode = rotationAnimation[animationCounter];
-            animationCounter++;
-    	}
-
-        // Fade-in until complete
-    	if(!effects.isInitialized()) {
-    		effects.updateFadeAlpha(deltaTime);
-    	}
-    	
-    	int newLayers = 0;
-    	Layer removeLayer = null;
-
-        // Move layers and spawn new ones at fixed Z intervals
-    	float zMovement = speed * deltaTime;
-    	zAccumulator += zMovement;
-
-    	while (zAccumulator >= layerDistance) {
-    	    zAccumulator -= layerDistance;
-    	    newLayers++;
-    	}
-    	
-    	for (Layer layer : layers) {
-
-            layer.setZ(layer.getZ() - zMovement);
-            if(layer.getZ() < removeLayerDistance) {
-                removeLayer = layer;
-            }
+    /**
+     * Attaches the audio input. From then on its spectrum and tempo drive the layer speed,
+     * and its beats drive rotation mode changes and layer colors.
+     *
+     * @param audio  the pipeline; must be updated before every {@link #update(float)}
+     */
+    public void setAudio(AudioPipeline audio) {
+        scene.setAudio(audio);
+    }
 
-    	    if (rotationMode >= 4) {
-    	        layer.setRotationAngle(effects.calculateLayerAngle(layer, deltaTime));
-    	    }
-    	}
-        
-        for(int l = 0; l < newLayers; l++) {
-        	float[] rgba = effects.generateRandomRGBA();
-            layers.add(0, new Layer(rgba, initZ));
-        }
-        
-        if(removeLayer != null) {
-        	layers.remove(removeLayer);
-        }
-        
-        if(rotationMode >= 1 && rotationMode <= 3) {
-        	rotationAngle = effects.calculateRotationAngle(rotationAngle, deltaTime);
-        }
+    /**
+     * Switches to drawing the snapshots of a simulation thread instead of the scene itself.
+     * From then on {@link #update(float)} must not be called; each frame renders the state
+     * one simulation step in the past, interpolated between the two newest snapshots.
+     *
+     * @param simulation  the running simulation of this renderer's scene
+     */
+    public void setSimulation(SimulationLoop simulation) {
+        this.snapshots = simulation.getExchange();
+        this.simulationStepNanos = simulation.getStepNanos();
+        this.interpolated = new SceneSnapshot(scene);
+    }
+
+    /**
+     * Measures the GPU time of the layer pass and the fade overlay from now on.
+     *
+     * @param gpuTimer  the timer; its {@link GpuTimer#endFrame()} is left to the caller
+     */
+    public void setGpuTimer(GpuTimer gpuTimer) {
+        this.gpuTimer = gpuTimer;
+    }
+
+    /**
+     * @return sprites submitted in the last frame
+     */
+    public int getDrawnSprites() {
+        return drawnSprites;
+    }
+
+    /**
+     * @return sprites culled before submission in the last frame
+     */
+    public int getCulledSprites() {
+        return culledSprites;
+    }
+
+    /**
+     * @return layers drawn as impostors in the last frame
+     */
+    public int getImpostorLayers() {
+        return (impostors != null) ? impostors.getCoveredLayers() : 0;
+    }
+
+    /**
+     * @return impostors rendered into their textures since start
+     */
+    public long getImpostorRerenders() {
+        return (impostors != null) ? impostors.getRerenders() : 0;
+    }
+
+    /**
+     * @return the simulation state drawn by this renderer
+     */
+    public Scene getScene() {
+        return scene;
     }
 
     /**
      * Renders all layers and (if still fading) the fullscreen fade overlay.
      */
     public void render() {
-        glUseProgram(ar.getShaderProgram()); 
+        boolean fading;
+        float fadeAlpha;
+        if(gpuTimer != null) gpuTimer.begin(GpuTimer.LAYERS);
+        if(snapshots != null) {
+            snapshots.acquire();
+            interpolated.interpolate(snapshots.getPrevious(), snapshots.getCurrent(),
+                    System.nanoTime() - simulationStepNanos);
+            renderLayers(interpolated.getLayers(), interpolated.getRotationMode(), interpolated.getRotationAngle());
+            fading = !interpolated.isInitialized();
+            fadeAlpha = interpolated.getFadeAlpha();
+        } else {
+            renderLayers(scene.getLayers(), scene.getRotationMode(), scene.getRotationAngle());
+            fading = !scene.getEffects().isInitialized();
+            fadeAlpha = scene.getEffects().getFadeAlpha();
+        }
+        if(gpuTimer != null) gpuTimer.end();
 
-        glUniform1f(uAspect, (float) windowWidth / windowHeight);
-        
-        glActiveTexture(GL_TEXTURE0);
-        glBindTexture(GL_TEXTURE_2D, textureId);
-        
-        float centerX = windowWidth / 2.0f;
-        float centerY = windowHeight / 2.0f;
+        // Draw fade overlay last
+        if(fading && !ar.debugMode) {
+            if(gpuTimer != null) gpuTimer.begin(GpuTimer.FADE);
+            gl.useProgram(ar.getShaderProgram());
+        	renderFadeLayer(fadeAlpha);
+            if(gpuTimer != null) gpuTimer.end();
+        }
+    }
+
+    /**
+     * Draws the given layers with the configured render path.
+     */
+    private void renderLayers(LayerStore layers, int rotationMode, float rotationAngle) {
+        if(renderPath == 0) {
+            renderSprites(layers, rotationMode, rotationAngle);
+        } else {
+            renderInstancedLayers(layers, rotationMode, rotationAngle, renderPath == 2);
+        }
+    }
+
+    /**
+     * Rotates and projects every sprite on the CPU, then submits them one by one.
+     */
+    private void renderSprites(LayerStore layers, int rotationMode, float rotationAngle) {
+        gl.useProgram(ar.getShaderProgram());
+        gl.uniform1f(uAspect, (float) windowWidth / windowHeight);
         
-        float cosAngle = 1.0f;
-        float sinAngle = 0.0f;
-
-        // Precompute global rotation if needed
-        if(rotationMode >= 1 && rotationMode <= 3) {
-    		float[] angles = effects.getAngles(rotationAngle);
-            cosAngle = angles[0];
-            sinAngle = angles[1];
+        gl.bindTexture2D(0, textureId);
+
+        int floats = SpriteProjector.spriteCount(layers) * Quad.INSTANCE_FLOATS;
+        drawnSprites = 0;
+        culledSprites = 0;
+        if(floats == 0) return;
+
+        ensureInstanceCapacity(floats);
+        instanceData.clear();
+        int spriteCount = projector.project(layers, rotationMode, rotationAngle, instanceData);
+        instanceData.flip();
+        countSprites();
+
+        gl.bindVertexArray(ar.getVaoId());
+        for (int i = 0; i < spriteCount; i++) {
+            int base = i * Quad.INSTANCE_FLOATS;
+            gl.uniform4f(uLayerColor, instanceData.get(base + 3), instanceData.get(base + 4),
+                    instanceData.get(base + 5), instanceData.get(base + 6));
+            gl.uniform2f(uOffset, instanceData.get(base), instanceData.get(base + 1));
+            gl.uniform1f(uScale, instanceData.get(base + 2));
+            gl.uniform4f(uUvRect, instanceData.get(base + 7), instanceData.get(base + 8),
+                    instanceData.get(base + 9), instanceData.get(base + 10));
+            glDrawArrays(GL_TRIANGLES, 0, 6);
         }
+    }
 
-        // Draw each layer
-        for (Layer layer : layers) {
-            glUniform4f(uLayerColor, layer.getColor()[0], layer.getColor()[1], layer.getColor()[2], layer.getColor()[3]);
+    /**
+     * Draws the layers with instanced calls: path 1 projects every sprite on the CPU,
+     * path 2 sends only z, effective rotation angle and color per layer and the vertex
+     * shader rotates and projects the static shape mesh itself.
+     * <p>
+     * With LOD, the distant layer groups the {@link ImpostorPlanner} picks are drawn as
+     * one textured quad each; stale groups are first rendered into their textures. All
+     * instances of the frame, impostor contents included, go into one mapped region.
+     * </p>
+     *
+     * @param projected  true for the GPU projected path
+     */
+    private void renderInstancedLayers(LayerStore layers, int rotationMode, float rotationAngle, boolean projected) {
+        useInstancedProgram(projected, (float) windowWidth / windowHeight, 1.0f, 1.0f);
+        gl.bindTexture2D(0, textureId);
+
+        int stride = projected ? Quad.LAYER_INSTANCE_FLOATS : Quad.INSTANCE_FLOATS;
+        int maxInstances = projected ? layers.size() : SpriteProjector.spriteCount(layers);
+        drawnSprites = 0;
+        culledSprites = 0;
+        if(maxInstances == 0) return;
+
+        int covered = (impostors != null) ? impostors.plan(layers, rotationMode, rotationAngle) : 0;
+        int groups = (impostors != null) ? impostors.getGroupCount() : 0;
+
+        // Project straight into the mapped region, no staging copy
+        FloatBuffer out = instanceStream.map(maxInstances * stride);
+        for (int g = 0; g < groups; g++) {
+            if(!impostors.isStale(g)) continue;
+            impostorStart[g] = out.position() / stride;
+            if(!projected) projector.setRegion(impostors.getRegionX(g), impostors.getRegionY(g));
+            impostorCount[g] = writeInstances(layers, impostors.getGroupFirst(g), impostors.getGroupLength(g),
+                    rotationMode, rotationAngle, projected, out);
+        }
+        projector.setRegion(1.0f, 1.0f);
+        int directStart = out.position() / stride;
+        int directCount = writeInstances(layers, covered, layers.size() - covered,
+                rotationMode, rotationAngle, projected, out);
+        long offset = instanceStream.unmap();
+
+        int vao = projected ? ar.getShapeVaoId() : ar.getVaoId();
+        int vertexCount = projected ? 6 * ar.getShapePointCount() : 6;
+        if(groups > 0) {
+            renderImpostors(vao, vertexCount, offset, stride, projected);
+            useInstancedProgram(projected, (float) windowWidth / windowHeight, 1.0f, 1.0f);
+            gl.bindTexture2D(0, textureId);
+        }
 
-            float layerZ = layer.getZ();
-            float computedScale = focalLength / layerZ;
-            float finalScale = computedScale * baseScale;
+        drawInstanceRange(vao, vertexCount, offset + (long) directStart * stride * Float.BYTES, directCount, projected);
+        instanceStream.fence();
+    }
 
-            // Per-layer override rotation
-            if(rotationMode >= 4) {
-                float[] angles = effects.getAngles(layer.getRotationAngle());
-                cosAngle = angles[0];
-                sinAngle = angles[1];
-            }
+    /**
+     * Writes the instances of a range of layers for path 1 or 2 and counts their sprites.
+     *
+     * @return number of instances written
+     */
+    private int writeInstances(LayerStore layers, int first, int count, int rotationMode, float rotationAngle,
+            boolean projected, FloatBuffer out) {
+        int written = projected
+                ? projector.packLayers(layers, first, count, rotationMode, rotationAngle, out)
+                : projector.project(layers, first, count, rotationMode, rotationAngle, out);
+        countSprites();
+        return written;
+    }
+
+    /**
+     * Adds the sprite counts of the last projector call to the frame's totals.
+     */
+    private void countSprites() {
+        drawnSprites += projector.getDrawnSprites();
+        culledSprites += projector.getCulledSprites();
+    }
 
-            for (Coordinate2D coord : layer.getCoordinates()) {
-
-                // Rotate point
-                float rotatedX = cosAngle * coord.x - sinAngle * coord.y;
-                float rotatedY = sinAngle * coord.x + cosAngle * coord.y;
-
-                // Project & offset to screen
-                float screenX = centerX + (rotatedX * computedScale);
-                float screenY = centerY - (rotatedY * computedScale);
-                
-                float ndcX = (screenX / (windowWidth / 2.0f)) - 1.0f;
-                float ndcY = 1.0f - (screenY / (windowHeight / 2.0f));
-
-                glUniform2f(uOffset, ndcX, ndcY);
-                glUniform1f(uScale, finalScale);
-                
-                glBindVertexArray(ar.getVaoId());
-                glDrawArrays(GL_TRIANGLES, 0, 6);
-                glBindVertexArray(0);
+    /**
+     * Renders the stale impostors into their textures, then draws every impostor of the
+     * frame as one scaled and turned quad into the target framebuffer.
+     * <p>
+     * Impostor textures hold premultiplied color: the layers are blended into a cleared
+     * texture with alpha accumulated as {@code ONE, ONE_MINUS_SRC_ALPHA}, and the quad is
+     * blended the same way, which gives the same result as drawing the layers directly.
+     * </p>
+     *
+     * @param offset  byte offset of the frame's instances in the stream
+     */
+    private void renderImpostors(int vao, int vertexCount, long offset, int stride, boolean projected) {
+        int groups = impostors.getGroupCount();
+        boolean rendered = false;
+        for (int g = 0; g < groups; g++) {
+            if(!impostors.isStale(g)) continue;
+            if(!rendered) {
+                glViewport(0, 0, impostorTargets.getSize(), impostorTargets.getSize());
+                glBlendFuncSeparate(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+                gl.bindTexture2D(0, textureId);
+                rendered = true;
             }
+            impostorTargets.bind(impostors.getGroupSlot(g));
+            glClear(GL_COLOR_BUFFER_BIT);
+            // The texture is square in pixels, so the sprites need no aspect correction
+            useInstancedProgram(projected, 1.0f, impostors.getRegionX(g), impostors.getRegionY(g));
+            drawInstanceRange(vao, vertexCount, offset + (long) impostorStart[g] * stride * Float.BYTES,
+                    impostorCount[g], projected);
+        }
+        if(rendered) {
+            glBindFramebuffer(GL_FRAMEBUFFER, ar.getTargetFramebuffer());
+            glViewport(0, 0, outputWidth, outputHeight);
         }
 
-        // Draw fade overlay last
-        if(!effects.isInitialized() && !ar.debugMode) {
-        	renderFadeLayer();
+        glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+        gl.useProgram(ar.getShaderProgram());
+        gl.uniform1f(uAspect, (float) windowWidth / windowHeight);
+        gl.uniform2f(uOffset, 0.0f, 0.0f);
+        gl.uniform4f(uLayerColor, 1.0f, 1.0f, 1.0f, 1.0f);
+        gl.uniform4f(uUvRect, 0.0f, 0.0f, 1.0f, 1.0f);
+        gl.bindVertexArray(ar.getVaoId());
+        for (int g = 0; g < groups; g++) {
+            gl.bindTexture2D(0, impostorTargets.getTextureId(impostors.getGroupSlot(g)));
+            // The quad spans [-0.5, 0.5]; at scale 1 it covers the region the texture was rendered from
+            gl.uniform1f(uScale, 2.0f * impostors.getRegionY(g) * impostors.getGroupScale(g));
+            gl.uniform1f(uRotation, impostors.getGroupTurn(g));
+            glDrawArrays(GL_TRIANGLES, 0, 6);
         }
-        
+        gl.uniform1f(uRotation, 0.0f);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
     }
-    
-    public void renderFadeLayer() {
-        float fadeAlpha = effects.getFadeAlpha();
 
-        glBindTexture(GL_TEXTURE_2D, 0);
+    /**
+     * Selects the program of the instanced path and sets its uniforms.
+     *
+     * @param aspect   width / height of the output in pixels
+     * @param regionX  half width of the viewport region drawn, see {@link SpriteProjector#setRegion(float, float)}
+     * @param regionY  half height of the viewport region drawn
+     */
+    private void useInstancedProgram(boolean projected, float aspect, float regionX, float regionY) {
+        gl.useProgram(ar.getInstancedShaderProgram());
+        if(projected) {
+            gl.uniform1f(uProjectedAspect, aspect);
+            gl.uniform1f(uFocalLength, projector.getFocalLength());
+            gl.uniform1f(uBaseScale, projector.getBaseScale() / regionY);
+            gl.uniform2f(uHalfViewport, windowWidth / 2.0f * regionX, windowHeight / 2.0f * regionY);
+        } else {
+            gl.uniform1f(uInstancedAspect, aspect);
+        }
+    }
 
-        glUniform4f(uLayerColor, 0.0f, 0.0f, 0.0f, fadeAlpha);
-        glUniform2f(uOffset, 0.0f, 0.0f);
-        glUniform1f(uScale, 2.0f);
-        glUniform1f(uAspect, 1.0f);
+    /**
+     * Grows the instance staging buffer to hold at least the given number of floats.
+     */
+    private void ensureInstanceCapacity(int floats) {
+        if(instanceData.capacity() < floats) {
+            instanceData = MemoryUtil.memRealloc(instanceData, Math.max(floats, instanceData.capacity() * 2));
+        }
+    }
 
-        glBindVertexArray(ar.getVaoId());
+    /**
+     * Points the instance attributes of the VAO at a range of the unmapped stream region
+     * and draws its instances with a single call. The caller fences the region after the
+     * last draw.
+     *
+     * @param offset           byte offset of the first instance in the stream
+     * @param layerAttributes  true for the per-layer attributes of the shape VAO
+     */
+    private void drawInstanceRange(int vao, int vertexCount, long offset, int instanceCount, boolean layerAttributes) {
+        if(instanceCount == 0) return;
+        gl.bindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, instanceStream.getBufferId());
+        if(layerAttributes) {
+            Quad.bindLayerInstanceAttributes(offset);
+        } else {
+            Quad.bindInstanceAttributes(offset);
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        glDrawArraysInstanced(GL_TRIANGLES, 0, vertexCount, instanceCount);
+    }
+
+    /**
+     * Darkens the whole viewport with the given alpha.
+     */
+    public void renderFadeLayer(float fadeAlpha) {
+        gl.bindTexture2D(0, 0);
+
+        gl.uniform4f(uLayerColor, 0.0f, 0.0f, 0.0f, fadeAlpha);
+        gl.uniform2f(uOffset, 0.0f, 0.0f);
+        gl.uniform1f(uScale, 2.0f);
+        gl.uniform1f(uAspect, 1.0f);
+
+        gl.bindVertexArray(ar.getVaoId());
         glDrawArrays(GL_TRIANGLES, 0, 6);
-        glBindVertexArray(0);
+    }
+
+    /**
+     * Releases off-heap memory and the streaming buffer owned by the renderer.
+     */
+    public void cleanup() {
+        if(impostorTargets != null) {
+            impostorTargets.cleanup();
+            impostorTargets = null;
+        }
+        if(instanceStream != null) {
+            instanceStream.cleanup();
+            instanceStream = null;
+        }
+        if(instanceData != null) {
+            MemoryUtil.memFree(instanceData);
+            instanceData = null;
+        }
     }
 
 }
@@ -0,0 +1,25 @@
+package rendering;
+
+/**
+ * Plain loop over the points; the fallback without the Vector API and the reference
+ * the vector kernel is tested against.
+ */
+public class ScalarProjectionKernel implements ProjectionKernel {
+
+    @Override
+    public void project(float[] xs, float[] ys, int count, float cos, float sin, float kx, float ky,
+            float[] ndcX, float[] ndcY) {
+        for (int i = 0; i < count; i++) {
+            float x = xs[i];
+            float y = ys[i];
+            ndcX[i] = (cos * x - sin * y) * kx;
+            ndcY[i] = (sin * x + cos * y) * ky;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+}
@@ -0,0 +1,363 @@
+package rendering;
+
+import java.util.SplittableRandom;
+
+import audio.AudioPipeline;
+import layerdata.Layer;
+import layerdata.LayerStore;
+import layerdata.Shape;
+import main.Config;
+import utility.Clock;
+import utility.Timer;
+
+/**
+ * Simulation state of the visualizer: the layer store, layer speed, rotation mode
+ * and global rotation angle, advanced by {@link #update(float)}.
+ * <p>
+ * The scene knows nothing about OpenGL; the {@link Renderer} reads it to draw a frame.
+ * That keeps the per-step work runnable headless, e.g. in benchmarks.
+ * </p>
+ */
+public class Scene {
+
+    /** Seconds between rotation mode changes while no beats arrive. */
+    public static final double MODE_DURATION = 10.0;
+
+    final Effects effects;
+    private final Timer timer;
+
+    /** All active layers in depth order (0 = farthest, back = nearest) */
+    private final LayerStore layers;
+
+    private int initZ;
+    private int layerDistance;
+    private int removeLayerDistance;
+    private float zAccumulator;
+
+    private float rotationAngle;
+    float speed;
+
+    /** Splits the per-layer update across threads for large scenes, or null to stay serial */
+    private ParallelLayerUpdate parallelUpdate;
+    private final ParallelLayerUpdate.Range moveRange = this::moveLayers;
+    /** z movement and time step of the update in progress, read by {@link #moveLayers(int, int)} */
+    private float stepMovement;
+    private float stepSeconds;
+
+    /** Audio input driving speed, mode changes and colors, or null without audio */
+    private AudioPipeline audio;
+    private int beatsPerMode;
+    private int beatsSinceModeChange = 0;
+    private boolean recolorOnBeat;
+
+    /** Number of texture atlas images, the image new layers get and whether beats advance it */
+    private int imageCount = 1;
+    private int currentImage = 0;
+    private boolean switchImageOnBeat;
+
+    /**
+     * 0: no rotation
+     * 1-3: whole shape rotates; 1: clockwise; 2: counterclockwise; 3: back and forth
+     * 4-6: every layer has rotation; 4: counterclockwise; 5; clockwise; 6: back and forth
+     * 7: no rotation but keeps layer rotation
+     */
+    int rotationMode = 0;
+
+    // animation calibrated for initZ = 10000 and timer 10.0 seconds
+    int[] rotationAnimation = {0, 1, 2, 2, 1, 4, 5, 4, 5, 7, 7, 6, 6, 7, 7};
+    int animationCounter = 0;
+
+    /**
+     * Creates the scene with the shape selected by {@link Config#shapeId}, a mode timer on the given clock and
+     * colors seeded from {@link Config#randomSeed}.
+     *
+     * @param cfg        global configuration object
+     * @param debugMode  true to show a single static debug layer instead of the animation
+     * @param clock      clock of the mode timer, e.g. {@link Clock#glfw()}
+     */
+    public Scene(Config cfg, boolean debugMode, Clock clock) {
+        this(cfg, Layer.createShape(cfg.shapeId, cfg.shapeVertices, cfg.shapeScale), debugMode,
+                new Timer(MODE_DURATION, clock), createRandom(cfg.randomSeed));
+    }
+
+    /**
+     * Creates the scene with colors seeded from {@link Config#randomSeed}.
+     *
+     * @param cfg        global configuration object
+     * @param shape      the shape shared by all layers
+     * @param debugMode  true to show a single static debug layer instead of the animation
+     * @param modeTimer  timer cycling the rotation mode during silence
+     */
+    public Scene(Config cfg, Shape shape, boolean debugMode, Timer modeTimer) {
+        this(cfg, shape, debugMode, modeTimer, createRandom(cfg.randomSeed));
+    }
+
+    /**
+     * Creates the scene and spawns the initial layers or the debug layer.
+     *
+     * @param cfg        global configuration object
+     * @param shape      the shape shared by all layers
+     * @param debugMode  true to show a single static debug layer instead of the animation
+     * @param modeTimer  timer cycling the rotation mode during silence
+     * @param random     generator for the layer colors; the scene takes ownership
+     */
+    public Scene(Config cfg, Shape shape, boolean debugMode, Timer modeTimer, SplittableRandom random) {
+        initializeSettings(cfg);
+        this.timer = modeTimer;
+        this.effects = new Effects(this, cfg, random);
+
+        layers = new LayerStore(LayerStore.capacityFor(initZ, layerDistance), shape);
+        if(debugMode) {
+            layers.pushFront(cfg.debugInitZ);
+            Layer debugLayer = layers.view(0);
+            debugLayer.setColor(cfg.DEBUG_RGBA);
+        } else {
+            effects.createInitialLayers(layers);
+        }
+    }
+
+    /**
+     * @param seed  seed of the generator, or 0 for a new seed on every call
+     * @return      a generator for {@link #Scene(Config, Shape, boolean, Timer, SplittableRandom)}
+     */
+    public static SplittableRandom createRandom(long seed) {
+        return (seed != 0L) ? new SplittableRandom(seed) : new SplittableRandom();
+    }
+
+    /**
+     * Initializes all parameters according to global configuration
+     *
+     * @param cfg global configuration object
+     */
+    private void initializeSettings(Config cfg) {
+        this.initZ = cfg.initZ;
+        this.layerDistance = cfg.LAYER_DISTANCE;
+        this.removeLayerDistance = cfg.REMOVE_LAYER_DISTANCE;
+
+        this.speed = cfg.START_SPEED;
+
+        this.zAccumulator = 0.0f;
+        this.rotationAngle = 0.0f;
+
+        this.beatsPerMode = cfg.beatsPerMode;
+        this.recolorOnBeat = cfg.recolorOnBeat;
+        this.switchImageOnBeat = cfg.switchImageOnBeat;
+        if(cfg.parallelUpdate) {
+            setParallelUpdate(cfg.updateThreads, cfg.parallelUpdateThreshold);
+        }
+
+        if(rotationMode < 0) {
+            rotationMode = 0;
+        }
+        else if(rotationMode > 6) {
+            rotationMode = 0;
+        }
+    }
+
+    /**
+     * Updates scene state: fade, rotation, layer movement & spawn.
+     *
+     * @param deltaTime  seconds since last update
+     */
+    public void update(float deltaTime) {
+
+        boolean beat = audio != null && audio.getBeatDetector().isBeat();
+        if(beat) beatsSinceModeChange++;
+
+        // Rotate mode cycling: driven by beats, the timer takes over during silence
+        if(timer.isElapsed() || (beat && beatsSinceModeChange >= beatsPerMode)) {
+            beatsSinceModeChange = 0;
+            timer.reset();
+            if(animationCounter >= rotationAnimation.length) animationCounter = 0;
+            rotationMode = rotationAnimation[animationCounter];
+            animationCounter++;
+        }
+
+        // Fade-in until complete
+        if(!effects.isInitialized()) {
+            effects.updateFadeAlpha(deltaTime);
+        } else if(audio != null) {
+            speed = effects.calculateSpectrumSpeed(audio.getBands(), audio.getBeatDetector().getBpm());
+        }
+
+        if(beat && recolorOnBeat) {
+            effects.recolorLayers(layers);
+        }
+        if(beat && switchImageOnBeat) {
+            currentImage = (currentImage + 1) % imageCount;
+        }
+
+        int newLayers = 0;
+
+        // Move layers and spawn new ones at fixed Z intervals
+        float zMovement = speed * deltaTime;
+        zAccumulator += zMovement;
+
+        while (zAccumulator >= layerDistance) {
+            zAccumulator -= layerDistance;
+            newLayers++;
+        }
+
+        stepMovement = zMovement;
+        stepSeconds = deltaTime;
+        if(parallelUpdate != null) {
+            parallelUpdate.run(layers.size(), moveRange);
+        } else {
+            moveLayers(0, layers.size());
+        }
+
+        // Removal and spawning change the ring and stay on this thread, after all layers moved.
+        // Layers are depth ordered, so every layer past the camera sits at the back
+        while(!layers.isEmpty() && layers.backZ() < removeLayerDistance) {
+            layers.popBack();
+        }
+
+        for(int l = 0; l < newLayers; l++) {
+            int slot = layers.pushFront(initZ);
+            effects.generateRandomRGBA(layers.colors(), slot * LayerStore.COLOR_STRIDE);
+            layers.images()[slot] = currentImage;
+        }
+
+        if(rotationMode >= 1 && rotationMode <= 3) {
+            rotationAngle = effects.calculateRotationAngle(rotationAngle, deltaTime);
+        }
+    }
+
+    /**
+     * Moves the layers with depth indices {@code [from, to)} by the current step and
+     * advances their rotation. Touches only their own slots, so ranges may run concurrently.
+     */
+    private void moveLayers(int from, int to) {
+        float[] depths = layers.depths();
+        float[] angles = layers.angles();
+        for (int i = from; i < to; i++) {
+            int slot = layers.slot(i);
+
+            depths[slot] -= stepMovement;
+
+            if (rotationMode >= 4) {
+                angles[slot] = effects.calculateLayerAngle(layers, slot, stepSeconds);
+            }
+        }
+    }
+
+    /**
+     * Moves and rotates the layers on a fork/join pool once the scene holds at least
+     * {@code threshold} layers. Results are the same as with the serial update.
+     *
+     * @param threads    worker threads; 0 for one per available processor, 1 to stay serial
+     * @param threshold  fewest layers to update in parallel
+     */
+    public void setParallelUpdate(int threads, int threshold) {
+        this.parallelUpdate = new ParallelLayerUpdate(threads, threshold);
+    }
+
+    /**
+     * Attaches the audio input. From then on its spectrum and tempo drive the layer speed,
+     * and its beats drive rotation mode changes and layer colors.
+     *
+     * @param audio  the pipeline; must be updated before every {@link #update(float)}
+     */
+    public void setAudio(AudioPipeline audio) {
+        this.audio = audio;
+    }
+
+    /**
+     * Sets the number of texture atlas images layers can show. All current layers and
+     * new ones show {@code first} until a beat advances to the next image.
+     *
+     * @param count  number of images, at least 1
+     * @param first  index of the image to start with
+     */
+    public void setImages(int count, int first) {
+        if(count < 1 || first < 0 || first >= count) {
+            throw new IllegalArgumentException("Invalid image " + first + " of " + count);
+        }
+        this.imageCount = count;
+        this.currentImage = first;
+        int[] images = layers.images();
+        for (int i = 0; i < layers.size(); i++) {
+            images[layers.slot(i)] = first;
+        }
+    }
+
+    /**
+     * @return the atlas image new layers get
+     */
+    public int getCurrentImage() {
+        return currentImage;
+    }
+
+    /**
+     * @return all active layers in depth order
+     */
+    public LayerStore getLayers() {
+        return layers;
+    }
+
+    /**
+     * @return the effect helper owned by this scene
+     */
+    public Effects getEffects() {
+        return effects;
+    }
+
+    /**
+     * @return the current rotation mode, see {@link #rotationMode}
+     */
+    public int getRotationMode() {
+        return rotationMode;
+    }
+
+    /**
+     * @return the global rotation angle in degrees, used in modes 1-3
+     */
+    public float getRotationAngle() {
+        return rotationAngle;
+    }
+
+    /**
+     * @return the layer speed in z units per second
+     */
+    public float getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Hashes everything a frame is drawn from: rotation mode and angle, speed and every
+     * layer's depth, angle, color and image, in depth order. Two runs with the same seed,
+     * clock and update steps give the same sequence of hashes, so regression captures
+     * can compare them instead of pixels.
+     *
+     * @return 64-bit hash of the current state
+     */
+    public long stateHash() {
+        long h = mix(0x9E3779B97F4A7C15L, rotationMode);
+        h = mix(h, Float.floatToIntBits(rotationAngle));
+        h = mix(h, Float.floatToIntBits(speed));
+        h = mix(h, layers.size());
+
+        float[] depths = layers.depths();
+        float[] angles = layers.angles();
+        float[] colors = layers.colors();
+        int[] images = layers.images();
+        for (int i = 0; i < layers.size(); i++) {
+            int slot = layers.slot(i);
+            h = mix(h, Float.floatToIntBits(depths[slot]));
+            h = mix(h, Float.floatToIntBits(angles[slot]));
+            int c = slot * LayerStore.COLOR_STRIDE;
+            for (int k = 0; k < LayerStore.COLOR_STRIDE; k++) {
+                h = mix(h, Float.floatToIntBits(colors[c + k]));
+            }
+            h = mix(h, images[slot]);
+        }
+        return h;
+    }
+
+    /** Folds one value into the hash (multiply-xorshift, as in SplitMix64). */
+    private static long mix(long h, int value) {
+        h = (h ^ value) * 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+}
@@ -0,0 +1,160 @@
+package rendering;
+
+import layerdata.LayerStore;
+import layerdata.Shape;
+
+/**
+ * Copy of everything the renderer needs from a {@link Scene} at one point in time:
+ * the layers, rotation mode and angle, and the fade state.
+ * <p>
+ * Snapshots are preallocated and filled in place, so publishing and interpolating
+ * never allocate. They are exchanged between the simulation and the GL thread through
+ * a {@link SnapshotExchange}; a snapshot is only ever accessed by one thread at a time.
+ * </p>
+ */
+public class SceneSnapshot {
+
+    private final LayerStore layers;
+    private int rotationMode;
+    private float rotationAngle;
+    private float fadeAlpha;
+    private boolean initialized;
+
+    /** {@link System#nanoTime()} the state belongs to. */
+    private long timeNanos;
+
+    /**
+     * Creates an empty snapshot.
+     *
+     * @param capacity  layer capacity of the scenes to capture
+     * @param shape     shape of the scenes to capture
+     */
+    public SceneSnapshot(int capacity, Shape shape) {
+        this.layers = new LayerStore(capacity, shape);
+    }
+
+    /**
+     * Creates an empty snapshot fitting the given scene.
+     *
+     * @param scene  the scene that will be captured
+     */
+    public SceneSnapshot(Scene scene) {
+        this(scene.getLayers().capacity(), scene.getLayers().getShape());
+    }
+
+    /**
+     * Copies the current state of a scene.
+     *
+     * @param scene      the scene to capture
+     * @param timeNanos  {@link System#nanoTime()} the state belongs to
+     */
+    public void capture(Scene scene, long timeNanos) {
+        layers.copyFrom(scene.getLayers());
+        rotationMode = scene.getRotationMode();
+        rotationAngle = scene.getRotationAngle();
+        fadeAlpha = scene.getEffects().getFadeAlpha();
+        initialized = scene.getEffects().isInitialized();
+        this.timeNanos = timeNanos;
+    }
+
+    /**
+     * Fills this snapshot with the state between two others. Layers present in both are
+     * matched by their serial number and get interpolated depth and rotation; layers only
+     * present in {@code to} are taken as they are. Colors and the rotation mode come from
+     * {@code to}.
+     *
+     * @param from       the older snapshot
+     * @param to         the newer snapshot
+     * @param timeNanos  the point in time to reconstruct; clamped to [from, to]
+     */
+    public void interpolate(SceneSnapshot from, SceneSnapshot to, long timeNanos) {
+        long span = to.timeNanos - from.timeNanos;
+        float alpha = span > 0 ? (float) (timeNanos - from.timeNanos) / span : 1.0f;
+        alpha = Math.max(0.0f, Math.min(1.0f, alpha));
+
+        layers.copyFrom(to.layers);
+        rotationMode = to.rotationMode;
+        initialized = to.initialized;
+        fadeAlpha = from.fadeAlpha + (to.fadeAlpha - from.fadeAlpha) * alpha;
+        this.timeNanos = from.timeNanos + (long) (span * (double) alpha);
+
+        boolean sameMode = from.rotationMode == to.rotationMode;
+        rotationAngle = sameMode ? lerpAngle(from.rotationAngle, to.rotationAngle, alpha) : to.rotationAngle;
+
+        LayerStore older = from.layers;
+        if (alpha >= 1.0f || older.isEmpty()) return;
+
+        int[] serials = layers.serials();
+        float[] depths = layers.depths();
+        float[] angles = layers.angles();
+        int newestOlder = older.serials()[older.slot(0)];
+        for (int i = 0; i < layers.size(); i++) {
+            int slot = layers.slot(i);
+            // Serials grow towards the front, so the older position follows from the difference
+            int index = newestOlder - serials[slot];
+            if (index < 0 || index >= older.size()) continue;
+
+            int olderSlot = older.slot(index);
+            depths[slot] = older.depths()[olderSlot] + (depths[slot] - older.depths()[olderSlot]) * alpha;
+            if (sameMode) {
+                angles[slot] = lerpAngle(older.angles()[olderSlot], angles[slot], alpha);
+            }
+        }
+    }
+
+    /**
+     * Interpolates between two angles in degrees along the shorter arc, wrapped to [0,360).
+     */
+    static float lerpAngle(float from, float to, float alpha) {
+        float delta = to - from;
+        if (delta > 180.0f) delta -= 360.0f;
+        if (delta < -180.0f) delta += 360.0f;
+        float angle = from + delta * alpha;
+        if (angle >= 360.0f) angle -= 360.0f;
+        if (angle < 0.0f) angle += 360.0f;
+        return angle;
+    }
+
+    /**
+     * @return the captured layers; do not modify
+     */
+    public LayerStore getLayers() {
+        return layers;
+    }
+
+    /**
+     * @return the captured rotation mode
+     */
+    public int getRotationMode() {
+        return rotationMode;
+    }
+
+    /**
+     * @return the captured global rotation angle in degrees
+     */
+    public float getRotationAngle() {
+        return rotationAngle;
+    }
+
+    /**
+     * @return the captured alpha of the fade overlay
+     */
+    public float getFadeAlpha() {
+        return fadeAlpha;
+    }
+
+    /**
+     * @return true if the fade-in had completed
+     */
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} the state belongs to
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+}
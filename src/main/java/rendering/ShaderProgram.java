@@ -18,17 +18,156 @@ import static org.lwjgl.opengl.GL20.glLinkProgram;
 import static org.lwjgl.opengl.GL20.glShaderSource;
 
 /**
- * Compiles and links a basic shader program consisting of a vertex and fragment shader.
+ * Compiles and links a shader program consisting of a vertex and fragment shader.
  */
 public class ShaderProgram {
 	
+	/**
+	 * Basic transformations for a single sprite, driven by uniforms.
+	 */
+	public static final String VERTEX_SHADER =
+		    "#version 330 core\n" +
+		    "layout(location = 0) in vec2 position;\n" +
+		    "layout(location = 1) in vec2 texCoords;\n" +
+		    "uniform float scale;\n" +
+		    "uniform float aspect;\n" +       // aspect = windowWidth / windowHeight
+		    "uniform vec2 offset;  // Offset in NDC\n" +
+		    "uniform vec4 uvRect;  // u, v, width, height im Atlas\n" +
+		    "uniform float rotation;  // radians, counterclockwise about the quad center; 0 unless set\n" +
+		    "out vec2 passTexCoords;\n" +
+		    "void main(){\n" +
+		    "    float c = cos(rotation);\n" +
+		    "    float s = sin(rotation);\n" +
+		    "    vec2 turned = vec2(c * position.x - s * position.y, s * position.x + c * position.y);\n" +
+		    "    // Teile die x-Komponente durch aspect, um das Seitenverhältnis zu korrigieren\n" +
+		    "    vec2 pos = vec2(turned.x / aspect, turned.y);\n" +
+		    "    gl_Position = vec4(pos * scale + offset, 0.0, 1.0);\n" +
+		    "    passTexCoords = uvRect.xy + texCoords * uvRect.zw;\n" +
+		    "}\n";
+
+	/**
+	 * Texture sampling tinted by the layer color uniform.
+	 */
+	public static final String FRAGMENT_SHADER =
+            "#version 330 core\n" +
+            "in vec2 passTexCoords;\n" +
+            "out vec4 outColor;\n" +
+            "uniform sampler2D texSampler;\n" +
+            "uniform vec4 layerColor;\n" +
+            "void main(){\n" +
+            "    outColor = texture(texSampler, passTexCoords) * layerColor;\n" +
+            "}\n";
+
+	/**
+	 * Same transformation as {@link #VERTEX_SHADER}, but offset, scale, color and UV rectangle
+	 * come from per-instance attributes, streamed through {@link StreamingBuffer} and bound
+	 * by {@link Quad#bindInstanceAttributes(long)}.
+	 */
+	public static final String INSTANCED_VERTEX_SHADER =
+		    "#version 330 core\n" +
+		    "layout(location = 0) in vec2 position;\n" +
+		    "layout(location = 1) in vec2 texCoords;\n" +
+		    "layout(location = 2) in vec2 instanceOffset;\n" +
+		    "layout(location = 3) in float instanceScale;\n" +
+		    "layout(location = 4) in vec4 instanceColor;\n" +
+		    "layout(location = 5) in vec4 instanceUvRect;\n" +
+		    "uniform float aspect;\n" +
+		    "out vec2 passTexCoords;\n" +
+		    "out vec4 passColor;\n" +
+		    "void main(){\n" +
+		    "    vec2 pos = vec2(position.x / aspect, position.y);\n" +
+		    "    gl_Position = vec4(pos * instanceScale + instanceOffset, 0.0, 1.0);\n" +
+		    "    passTexCoords = instanceUvRect.xy + texCoords * instanceUvRect.zw;\n" +
+		    "    passColor = instanceColor;\n" +
+		    "}\n";
+
+	/**
+	 * Rotates and projects every sprite of a layer on the GPU. Vertices come from
+	 * {@link Quad#createShapeQuads(layerdata.Shape)}, per-layer z, angle, color and UV rectangle from
+	 * {@link StreamingBuffer}, bound by {@link Quad#bindLayerInstanceAttributes(long)}.
+	 */
+	public static final String PROJECTED_VERTEX_SHADER =
+		    "#version 330 core\n" +
+		    "layout(location = 0) in vec2 position;\n" +
+		    "layout(location = 1) in vec2 texCoords;\n" +
+		    "layout(location = 2) in vec2 shapePoint;\n" +
+		    "layout(location = 3) in float layerZ;\n" +
+		    "layout(location = 4) in float layerAngle;  // degrees\n" +
+		    "layout(location = 5) in vec4 layerColor;\n" +
+		    "layout(location = 6) in vec4 layerUvRect;\n" +
+		    "uniform float aspect;\n" +
+		    "uniform float focalLength;\n" +
+		    "uniform float baseScale;\n" +
+		    "uniform vec2 halfViewport;  // virtual width / 2, virtual height / 2\n" +
+		    "out vec2 passTexCoords;\n" +
+		    "out vec4 passColor;\n" +
+		    "void main(){\n" +
+		    "    float angle = radians(layerAngle);\n" +
+		    "    float c = cos(angle);\n" +
+		    "    float s = sin(angle);\n" +
+		    "    vec2 rotated = vec2(c * shapePoint.x - s * shapePoint.y, s * shapePoint.x + c * shapePoint.y);\n" +
+		    "    float computedScale = focalLength / layerZ;\n" +
+		    "    vec2 offset = rotated * computedScale / halfViewport;\n" +
+		    "    vec2 pos = vec2(position.x / aspect, position.y);\n" +
+		    "    gl_Position = vec4(pos * computedScale * baseScale + offset, 0.0, 1.0);\n" +
+		    "    passTexCoords = layerUvRect.xy + texCoords * layerUvRect.zw;\n" +
+		    "    passColor = layerColor;\n" +
+		    "}\n";
+
+	/**
+	 * Texture sampling tinted by the color passed from the vertex stage.
+	 */
+	public static final String INSTANCED_FRAGMENT_SHADER =
+            "#version 330 core\n" +
+            "in vec2 passTexCoords;\n" +
+            "in vec4 passColor;\n" +
+            "out vec4 outColor;\n" +
+            "uniform sampler2D texSampler;\n" +
+            "void main(){\n" +
+            "    outColor = texture(texSampler, passTexCoords) * passColor;\n" +
+            "}\n";
+
+	/**
+	 * Untextured, per-vertex colored geometry given directly in NDC (statistics overlay).
+	 */
+	public static final String OVERLAY_VERTEX_SHADER =
+		    "#version 330 core\n" +
+		    "layout(location = 0) in vec2 position;\n" +
+		    "layout(location = 1) in vec4 color;\n" +
+		    "out vec4 passColor;\n" +
+		    "void main(){\n" +
+		    "    gl_Position = vec4(position, 0.0, 1.0);\n" +
+		    "    passColor = color;\n" +
+		    "}\n";
+
+	/**
+	 * Outputs the color passed from the vertex stage.
+	 */
+	public static final String OVERLAY_FRAGMENT_SHADER =
+            "#version 330 core\n" +
+            "in vec4 passColor;\n" +
+            "out vec4 outColor;\n" +
+            "void main(){\n" +
+            "    outColor = passColor;\n" +
+            "}\n";
+
 	int shaderProgram;
 
     /**
-     * Initializes the shader program upon construction.
+     * Initializes the default per-sprite shader program upon construction.
      */
 	public ShaderProgram() {
-		createShaderProgram();
+		this(VERTEX_SHADER, FRAGMENT_SHADER);
+	}
+
+    /**
+     * Initializes a shader program from the given sources upon construction.
+     *
+     * @param vertexShaderSource   GLSL source of the vertex stage
+     * @param fragmentShaderSource GLSL source of the fragment stage
+     */
+	public ShaderProgram(String vertexShaderSource, String fragmentShaderSource) {
+		createShaderProgram(vertexShaderSource, fragmentShaderSource);
 	}
 
     /**
@@ -39,35 +178,9 @@ public class ShaderProgram {
 	}
 
     /**
-     * Creates, compiles and links a shader program with basic transformations and texture sampling.
+     * Creates, compiles and links a shader program from the given sources.
      */
-    private void createShaderProgram() {
-    	String vertexShaderSource =
-    		    "#version 330 core\n" +
-    		    "layout(location = 0) in vec2 position;\n" +
-    		    "layout(location = 1) in vec2 texCoords;\n" +
-    		    "uniform float scale;\n" +
-    		    "uniform float aspect;\n" +       // aspect = windowWidth / windowHeight
-    		    "uniform vec2 offset;  // Offset in NDC\n" +
-    		    "out vec2 passTexCoords;\n" +
-    		    "void main(){\n" +
-    		    "    // Teile die x-Komponente durch aspect, um das Seitenverhältnis zu korrigieren\n" +
-    		    "    vec2 pos = vec2(position.x / aspect, position.y);\n" +
-    		    "    gl_Position = vec4(pos * scale + offset, 0.0, 1.0);\n" +
-    		    "    passTexCoords = texCoords;\n" +
-    		    "}\n";
-
-
-        String fragmentShaderSource =
-                "#version 330 core\n" +
-                "in vec2 passTexCoords;\n" +
-                "out vec4 outColor;\n" +
-                "uniform sampler2D texSampler;\n" +
-                "uniform vec4 layerColor;\n" + 
-                "void main(){\n" +
-                "    outColor = texture(texSampler, passTexCoords) * layerColor;\n" +
-                "}\n";
-
+    private void createShaderProgram(String vertexShaderSource, String fragmentShaderSource) {
         int vertexShader = glCreateShader(GL_VERTEX_SHADER);
         glShaderSource(vertexShader, vertexShaderSource);
         glCompileShader(vertexShader);
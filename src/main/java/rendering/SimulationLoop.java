@@ -0,0 +1,146 @@
+package rendering;
+
+import java.util.concurrent.locks.LockSupport;
+
+import audio.AudioPipeline;
+import main.Config;
+import utility.FrameProfiler;
+
+/**
+ * Runs the {@link Scene} update on its own thread at a fixed rate, independent of the
+ * display refresh and of buffer swaps blocking on vsync.
+ * <p>
+ * Every tick updates the audio pipeline and the scene by one fixed step; after each
+ * batch of ticks the state is captured into a {@link SceneSnapshot} stamped with the
+ * tick's nominal time and published through a {@link SnapshotExchange}. The GL thread
+ * renders by interpolating between the two newest snapshots. If the thread falls
+ * behind by more than {@link #MAX_CATCH_UP_STEPS} ticks, the backlog is dropped
+ * instead of spiraling.
+ * </p>
+ */
+public class SimulationLoop implements Runnable {
+
+    /** Most ticks run back to back before the schedule is reset. */
+    public static final int MAX_CATCH_UP_STEPS = 5;
+
+    private final Scene scene;
+    private final AudioPipeline audio;
+    private final FrameProfiler profiler;
+    private final SnapshotExchange exchange;
+
+    private final long stepNanos;
+    private final float stepSeconds;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Creates the loop for the simulation rate from the configuration.
+     *
+     * @param scene     the scene to update; must not be updated by anyone else while running
+     * @param audio     audio input updated before each step, or null
+     * @param profiler  receives the update time per batch, or null
+     * @param cfg       global configuration object
+     */
+    public SimulationLoop(Scene scene, AudioPipeline audio, FrameProfiler profiler, Config cfg) {
+        this(scene, audio, profiler, cfg.simulationRate);
+    }
+
+    /**
+     * Creates the loop.
+     *
+     * @param scene     the scene to update; must not be updated by anyone else while running
+     * @param audio     audio input updated before each step, or null
+     * @param profiler  receives the update time per batch, or null
+     * @param rate      steps per second
+     */
+    public SimulationLoop(Scene scene, AudioPipeline audio, FrameProfiler profiler, float rate) {
+        this.scene = scene;
+        this.audio = audio;
+        this.profiler = profiler;
+        this.exchange = new SnapshotExchange(scene);
+        this.stepNanos = (long) (1_000_000_000.0 / rate);
+        this.stepSeconds = 1.0f / rate;
+    }
+
+    /**
+     * Publishes the initial state and starts the simulation thread.
+     */
+    public void start() {
+        long now = System.nanoTime();
+        SceneSnapshot first = exchange.getBack();
+        first.capture(scene, now);
+        exchange.publish();
+
+        running = true;
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime() + stepNanos;
+        while (running) {
+            long now = System.nanoTime();
+            if (now < nextTick) {
+                LockSupport.parkNanos(nextTick - now);
+                continue;
+            }
+
+            int steps = 0;
+            long tickTime = nextTick;
+            while (now >= nextTick && steps < MAX_CATCH_UP_STEPS) {
+                if (audio != null) audio.update(stepSeconds);
+                scene.update(stepSeconds);
+                tickTime = nextTick;
+                nextTick += stepNanos;
+                steps++;
+            }
+            if (now >= nextTick) {
+                // Too far behind: drop the backlog instead of catching up forever
+                nextTick = now + stepNanos;
+            }
+
+            exchange.getBack().capture(scene, tickTime);
+            exchange.publish();
+
+            if (profiler != null) {
+                profiler.record(FrameProfiler.UPDATE, System.nanoTime() - now);
+            }
+        }
+    }
+
+    /**
+     * Stops the simulation thread and waits for it to finish.
+     *
+     * @return false if the wait was interrupted while the thread was still running; it may
+     *         then still read the scene and the audio pipeline
+     */
+    public boolean stop() {
+        running = false;
+        if (thread == null) return true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+
+    /**
+     * @return the exchange the snapshots are published through
+     */
+    public SnapshotExchange getExchange() {
+        return exchange;
+    }
+
+    /**
+     * @return length of one simulation step in nanoseconds
+     */
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+}
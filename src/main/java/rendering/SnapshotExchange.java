@@ -0,0 +1,87 @@
+package rendering;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free hand-over of {@link SceneSnapshot}s from one producer thread (the simulation)
+ * to one consumer thread (the renderer).
+ * <p>
+ * Four snapshots rotate between the parties: the producer owns one it writes into, one
+ * sits in the exchange, and the consumer keeps the two newest it has received so it can
+ * interpolate between them. {@link #publish()} and {@link #acquire()} each swap their
+ * buffer with the one in the exchange through a single atomic operation, so neither side
+ * ever waits for the other. A snapshot published while the consumer is busy simply
+ * replaces the unread one.
+ * </p>
+ */
+public class SnapshotExchange {
+
+    private static final int INDEX_MASK = 0b11;
+    private static final int FRESH = 0b100;
+
+    private final SceneSnapshot[] buffers = new SceneSnapshot[4];
+
+    /** Index of the snapshot in the exchange, with {@link #FRESH} set if it is unread. */
+    private final AtomicInteger exchange = new AtomicInteger(1);
+
+    /** Producer side. */
+    private int back = 0;
+
+    /** Consumer side. */
+    private int previous = 2;
+    private int current = 3;
+
+    /**
+     * Creates the exchange with four empty snapshots fitting the given scene.
+     *
+     * @param scene  the scene whose state will be exchanged
+     */
+    public SnapshotExchange(Scene scene) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new SceneSnapshot(scene);
+        }
+    }
+
+    /**
+     * Producer: returns the snapshot to fill before the next {@link #publish()}.
+     */
+    public SceneSnapshot getBack() {
+        return buffers[back];
+    }
+
+    /**
+     * Producer: hands the filled back snapshot to the consumer.
+     */
+    public void publish() {
+        back = exchange.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Consumer: takes the newest published snapshot, if any. It becomes
+     * {@link #getCurrent()}, the former current one becomes {@link #getPrevious()}.
+     *
+     * @return true if a new snapshot was received
+     */
+    public boolean acquire() {
+        if ((exchange.get() & FRESH) == 0) return false;
+        int fresh = exchange.getAndSet(previous) & INDEX_MASK;
+        previous = current;
+        current = fresh;
+        return true;
+    }
+
+    /**
+     * Consumer: the snapshot received before the current one.
+     */
+    public SceneSnapshot getPrevious() {
+        return buffers[previous];
+    }
+
+    /**
+     * Consumer: the newest received snapshot.
+     */
+    public SceneSnapshot getCurrent() {
+        return buffers[current];
+    }
+
+}
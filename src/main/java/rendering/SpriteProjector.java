@@ -0,0 +1,401 @@
+package rendering;
+
+import java.nio.FloatBuffer;
+
+import layerdata.LayerStore;
+import layerdata.Shape;
+import main.Config;
+
+/**
+ * CPU side of the sprite paths: rotates and projects every shape point of every layer
+ * of a {@link Scene} and writes the resulting instances into a buffer.
+ * <p>
+ * Contains no GL calls, so the same code feeds the renderer and runs headless in
+ * benchmarks. The caller provides a buffer with enough room, see
+ * {@link #spriteCount(Scene)}.
+ * </p>
+ * <p>
+ * With culling enabled, sprites are dropped before they reach the GPU: whole layers whose
+ * sprites would be smaller than the pixel threshold or whose shape ring lies entirely
+ * outside the viewport, and single sprites whose quad misses the NDC viewport. Near
+ * layers scale far past the screen, so this removes most of their overdraw. The counts
+ * of the last call are kept, see {@link #getDrawnSprites()} and {@link #getCulledSprites()}.
+ * </p>
+ */
+public class SpriteProjector {
+
+    private final float focalLength;
+    private final float baseScale;
+    private final int viewportWidth;
+    private final int viewportHeight;
+    private final Effects effects;
+
+    /** Texture atlas UV rectangle {u, v, w, h} per image; the whole texture without an atlas */
+    private float[] uvRects = {0.0f, 0.0f, 1.0f, 1.0f};
+
+    /** cos/sin of the current rotation, reused across calls */
+    private final float[] cosSin = new float[2];
+
+    /** Rotation and projection of the points of one layer */
+    private ProjectionKernel kernel = new ScalarProjectionKernel();
+    /** Packed coordinates of the shape last drawn, and the NDC coordinates of one layer */
+    private Shape packedShape;
+    private float[] shapeX = new float[0];
+    private float[] shapeY = new float[0];
+    private float[] ndcX = new float[0];
+    private float[] ndcY = new float[0];
+
+    /** Culling: enabled flag and smallest sprite height to draw, in NDC units */
+    private boolean cull = false;
+    private float minNdcSize = 0.0f;
+
+    /** Part of the viewport mapped onto the output, see {@link #setRegion(float, float)} */
+    private float regionX = 1.0f;
+    private float regionY = 1.0f;
+
+    /** Sprites written and rejected by the last projection */
+    private int drawnSprites;
+    private int culledSprites;
+
+    /**
+     * Creates a projector for the virtual viewport and camera from the configuration.
+     *
+     * @param cfg      global configuration object
+     * @param effects  provides cos/sin of the rotation angles
+     */
+    public SpriteProjector(Config cfg, Effects effects) {
+        this(cfg.FOCAL_LENGTH, cfg.BASE_IMAGE_SCALE, cfg.virtualWidth, cfg.virtualHeight, effects);
+        setCulling(cfg.cullSprites, cfg.minSpritePixels, cfg.windowHeight);
+        setKernel(ProjectionKernel.create(cfg.vectorProjection));
+    }
+
+    /**
+     * Creates a projector.
+     *
+     * @param focalLength     distance of the image plane from the camera
+     * @param baseScale       sprite size at the image plane
+     * @param viewportWidth   virtual viewport width in pixels
+     * @param viewportHeight  virtual viewport height in pixels
+     * @param effects         provides cos/sin of the rotation angles
+     */
+    public SpriteProjector(float focalLength, float baseScale, int viewportWidth, int viewportHeight, Effects effects) {
+        this.focalLength = focalLength;
+        this.baseScale = baseScale;
+        this.viewportWidth = viewportWidth;
+        this.viewportHeight = viewportHeight;
+        this.effects = effects;
+    }
+
+    /**
+     * Enables or disables culling.
+     *
+     * @param enabled       true to skip sprites that would not be visible
+     * @param minPixels     sprites smaller than this many output pixels are skipped
+     * @param outputHeight  height of the framebuffer the viewport is drawn into, in pixels
+     */
+    public void setCulling(boolean enabled, float minPixels, int outputHeight) {
+        this.cull = enabled;
+        // A sprite of scale s spans s NDC units, i.e. s * outputHeight / 2 pixels
+        this.minNdcSize = 2.0f * minPixels / outputHeight;
+    }
+
+    /**
+     * Replaces the kernel that rotates and projects the points; the scalar one by default.
+     *
+     * @param kernel  e.g. from {@link ProjectionKernel#create(boolean)}
+     */
+    public void setKernel(ProjectionKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * @return the kernel that rotates and projects the points
+     */
+    public ProjectionKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Maps the centered rectangle {@code [-x, x] * [-y, y]} of the viewport (NDC units)
+     * onto the whole output, e.g. to render distant layers into an impostor texture.
+     * Culling still tests against the full viewport. Only affects {@link #project};
+     * the GPU projected path zooms with its uniforms.
+     *
+     * @param x  half width of the region in NDC units; 1 for the whole viewport
+     * @param y  half height of the region in NDC units; 1 for the whole viewport
+     */
+    public void setRegion(float x, float y) {
+        this.regionX = x;
+        this.regionY = y;
+    }
+
+    /**
+     * Sets the UV rectangles of the atlas images layers refer to.
+     *
+     * @param uvRects  four floats per image: u, v, width, height
+     */
+    public void setImageRects(float[] uvRects) {
+        this.uvRects = uvRects;
+    }
+
+    /**
+     * @param scene  the scene to draw
+     * @return       number of sprites {@link #project} writes for the scene
+     */
+    public static int spriteCount(Scene scene) {
+        return spriteCount(scene.getLayers());
+    }
+
+    /**
+     * @param layers  the layers to draw
+     * @return        number of sprites {@link #project} writes for the layers
+     */
+    public static int spriteCount(LayerStore layers) {
+        return layers.size() * layers.getShape().size();
+    }
+
+    /**
+     * Writes one {@link Quad#INSTANCE_FLOATS} instance (NDC offset, scale, color,
+     * atlas UV rectangle) per visible sprite, farthest layer first.
+     *
+     * @param scene  the scene to draw
+     * @param out    receives the instances at its position; needs room for
+     *               {@link #spriteCount(Scene)} instances
+     * @return       the number of instances written
+     */
+    public int project(Scene scene, FloatBuffer out) {
+        return project(scene.getLayers(), scene.getRotationMode(), scene.getRotationAngle(), out);
+    }
+
+    /**
+     * Writes one {@link Quad#INSTANCE_FLOATS} instance per sprite of the given layers,
+     * e.g. of a {@link SceneSnapshot}.
+     *
+     * @param layers         the layers to draw
+     * @param rotationMode   rotation mode, see {@link Scene}
+     * @param rotationAngle  global rotation angle in degrees, used in modes 1-3
+     * @param out            receives the instances; needs room for {@link #spriteCount(LayerStore)}
+     * @return               the number of instances written
+     */
+    public int project(LayerStore layers, int rotationMode, float rotationAngle, FloatBuffer out) {
+        return project(layers, 0, layers.size(), rotationMode, rotationAngle, out);
+    }
+
+    /**
+     * Writes one {@link Quad#INSTANCE_FLOATS} instance per sprite of a range of layers.
+     *
+     * @param layers         the layers to draw
+     * @param first          depth index of the first layer to draw, 0 for the farthest
+     * @param count          number of layers to draw
+     * @param rotationMode   rotation mode, see {@link Scene}
+     * @param rotationAngle  global rotation angle in degrees, used in modes 1-3
+     * @param out            receives the instances; needs room for {@code count * shape size}
+     * @return               the number of instances written
+     */
+    public int project(LayerStore layers, int first, int count, int rotationMode, float rotationAngle,
+            FloatBuffer out) {
+
+        float halfViewportWidth = viewportWidth / 2.0f;
+        float halfViewportHeight = viewportHeight / 2.0f;
+        float aspect = (float) viewportWidth / viewportHeight;
+
+        float cosAngle = 1.0f;
+        float sinAngle = 0.0f;
+
+        // Precompute global rotation if needed
+        if(rotationMode >= 1 && rotationMode <= 3) {
+            effects.calculateAngles(rotationAngle, cosSin);
+            cosAngle = cosSin[0];
+            sinAngle = cosSin[1];
+        }
+
+        float[] depths = layers.depths();
+        float[] layerAngles = layers.angles();
+        float[] colors = layers.colors();
+        int[] images = layers.images();
+        Shape shape = layers.getShape();
+        packShape(shape);
+        int points = shape.size();
+        int drawn = 0;
+
+        float scaleFactor = 1.0f / regionY;
+
+        for (int i = first; i < first + count; i++) {
+            int slot = layers.slot(i);
+            int color = slot * LayerStore.COLOR_STRIDE;
+            int uv = images[slot] * 4;
+
+            float layerZ = depths[slot];
+            float computedScale = focalLength / layerZ;
+            float finalScale = computedScale * baseScale;
+
+            if(cull && isLayerInvisible(shape, computedScale, finalScale)) continue;
+            // The quad spans [-0.5, 0.5] * scale, x divided by the aspect ratio
+            float halfHeight = 0.5f * finalScale;
+            float halfWidth = halfHeight / aspect;
+
+            // Per-layer override rotation
+            if(rotationMode >= 4) {
+                effects.calculateAngles(layerAngles[slot], cosSin);
+                cosAngle = cosSin[0];
+                sinAngle = cosSin[1];
+            }
+
+            // Rotate and project all points of the layer, then write the visible ones
+            kernel.project(shapeX, shapeY, points, cosAngle, sinAngle,
+                    computedScale / halfViewportWidth, computedScale / halfViewportHeight, ndcX, ndcY);
+
+            for (int p = 0; p < points; p++) {
+                float x = ndcX[p];
+                float y = ndcY[p];
+
+                if(cull && (Math.abs(x) - halfWidth >= 1.0f || Math.abs(y) - halfHeight >= 1.0f)) continue;
+
+                out.put(x / regionX).put(y / regionY).put(finalScale * scaleFactor)
+                        .put(colors, color, LayerStore.COLOR_STRIDE)
+                        .put(uvRects, uv, 4);
+                drawn++;
+            }
+        }
+        drawnSprites = drawn;
+        culledSprites = count * shape.size() - drawn;
+        return drawn;
+    }
+
+    /**
+     * Copies the points of the shape into the packed arrays the kernel reads, unless they
+     * already hold it.
+     */
+    private void packShape(Shape shape) {
+        if(shape == packedShape) return;
+        int points = shape.size();
+        if(shapeX.length < points) {
+            shapeX = new float[points];
+            shapeY = new float[points];
+            ndcX = new float[points];
+            ndcY = new float[points];
+        }
+        for (int p = 0; p < points; p++) {
+            shapeX[p] = shape.getX(p);
+            shapeY[p] = shape.getY(p);
+        }
+        packedShape = shape;
+    }
+
+    /**
+     * Tests whether no sprite of a layer can be seen: all of them are below the pixel
+     * threshold, or even the shape point closest to the center, at any rotation, lies
+     * so far out that its quad cannot reach the viewport.
+     *
+     * @param computedScale  focal length / z of the layer
+     * @param finalScale     sprite scale of the layer
+     */
+    private boolean isLayerInvisible(Shape shape, float computedScale, float finalScale) {
+        if(finalScale < minNdcSize) return true;
+        float halfWidth = viewportWidth / 2.0f;
+        float halfHeight = viewportHeight / 2.0f;
+        // Quads are square in pixels: half a side is 0.5 * scale * halfHeight
+        float spriteRadius = 0.70710677f * finalScale * halfHeight;
+        float viewportRadius = (float) Math.sqrt(halfWidth * halfWidth + halfHeight * halfHeight);
+        return shape.innerRadius() * computedScale - spriteRadius > viewportRadius;
+    }
+
+    /**
+     * Writes one {@link Quad#LAYER_INSTANCE_FLOATS} instance (z, effective rotation angle,
+     * color, atlas UV rectangle) per layer for the GPU projected path, farthest layer first.
+     * Culling works on whole layers here; sprites of a visible layer are all drawn.
+     *
+     * @param scene  the scene to draw
+     * @param out    receives the instances at its position; needs room for one instance per layer
+     * @return       the number of instances written
+     */
+    public int packLayers(Scene scene, FloatBuffer out) {
+        return packLayers(scene.getLayers(), scene.getRotationMode(), scene.getRotationAngle(), out);
+    }
+
+    /**
+     * Writes one {@link Quad#LAYER_INSTANCE_FLOATS} instance per layer of the given layers,
+     * e.g. of a {@link SceneSnapshot}.
+     *
+     * @param layers         the layers to draw
+     * @param rotationMode   rotation mode, see {@link Scene}
+     * @param rotationAngle  global rotation angle in degrees, used in modes 1-3
+     * @param out            receives the instances; needs room for one instance per layer
+     * @return               the number of instances written
+     */
+    public int packLayers(LayerStore layers, int rotationMode, float rotationAngle, FloatBuffer out) {
+        return packLayers(layers, 0, layers.size(), rotationMode, rotationAngle, out);
+    }
+
+    /**
+     * Writes one {@link Quad#LAYER_INSTANCE_FLOATS} instance per layer of a range of layers.
+     *
+     * @param layers         the layers to draw
+     * @param first          depth index of the first layer to draw, 0 for the farthest
+     * @param count          number of layers to draw
+     * @param rotationMode   rotation mode, see {@link Scene}
+     * @param rotationAngle  global rotation angle in degrees, used in modes 1-3
+     * @param out            receives the instances; needs room for {@code count} instances
+     * @return               the number of instances written
+     */
+    public int packLayers(LayerStore layers, int first, int count, int rotationMode, float rotationAngle,
+            FloatBuffer out) {
+        float[] depths = layers.depths();
+        float[] layerAngles = layers.angles();
+        float[] colors = layers.colors();
+        int[] images = layers.images();
+        Shape shape = layers.getShape();
+        int written = 0;
+
+        for (int i = first; i < first + count; i++) {
+            int slot = layers.slot(i);
+            if(cull) {
+                float computedScale = focalLength / depths[slot];
+                if(isLayerInvisible(shape, computedScale, computedScale * baseScale)) continue;
+            }
+            float angle = 0.0f;
+            if(rotationMode >= 1 && rotationMode <= 3) {
+                angle = rotationAngle;
+            } else if(rotationMode >= 4) {
+                angle = layerAngles[slot];
+            }
+
+            out.put(depths[slot]).put(angle)
+                    .put(colors, slot * LayerStore.COLOR_STRIDE, LayerStore.COLOR_STRIDE)
+                    .put(uvRects, images[slot] * 4, 4);
+            written++;
+        }
+        drawnSprites = written * shape.size();
+        culledSprites = count * shape.size() - drawnSprites;
+        return written;
+    }
+
+    /**
+     * @return sprites written by the last {@link #project} or {@link #packLayers} call
+     */
+    public int getDrawnSprites() {
+        return drawnSprites;
+    }
+
+    /**
+     * @return sprites the last {@link #project} or {@link #packLayers} call culled
+     */
+    public int getCulledSprites() {
+        return culledSprites;
+    }
+
+    /**
+     * @return distance of the image plane from the camera
+     */
+    public float getFocalLength() {
+        return focalLength;
+    }
+
+    /**
+     * @return sprite size at the image plane
+     */
+    public float getBaseScale() {
+        return baseScale;
+    }
+
+}
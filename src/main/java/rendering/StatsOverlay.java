@@ -0,0 +1,159 @@
+package rendering;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
+import static org.lwjgl.opengl.GL11.glDrawArrays;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL20.glDeleteProgram;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import utility.FrameProfiler;
+
+/**
+ * Draws the recent frame times of a {@link FrameProfiler} as a bar graph in the lower
+ * left corner. One bar per frame, newest on the right; bars within the frame budget are
+ * green, longer ones red, and a white line marks the budget itself. The graph is scaled
+ * to two frame budgets, taller frames are clipped. A strip above the graph splits the GL
+ * state calls of the last frame into issued (orange) and skipped by the
+ * {@link GLStateCache} (blue).
+ * <p>
+ * All bars are written into one off-heap vertex buffer and drawn with a single call.
+ * </p>
+ */
+public class StatsOverlay {
+
+    /** Floats per vertex: position (x, y), color (r, g, b, a). */
+    private static final int VERTEX_FLOATS = 6;
+    private static final int VERTICES_PER_RECT = 6;
+
+    /** Graph area in NDC. */
+    private static final float LEFT = -0.98f;
+    private static final float BOTTOM = -0.98f;
+    private static final float WIDTH = 0.8f;
+    private static final float HEIGHT = 0.3f;
+    private static final float STRIP_HEIGHT = 0.02f;
+
+    private final FrameProfiler profiler;
+    private final GLStateCache gl;
+    private final ShaderProgram shader;
+    private final int vaoId;
+    private final int vboId;
+    private FloatBuffer vertices;
+
+    /**
+     * Creates the overlay shader and buffers. Requires a current GL context.
+     *
+     * @param profiler  source of the frame times
+     * @param gl        GL state cache to draw through and to report on
+     */
+    public StatsOverlay(FrameProfiler profiler, GLStateCache gl) {
+        this.profiler = profiler;
+        this.gl = gl;
+        this.shader = new ShaderProgram(ShaderProgram.OVERLAY_VERTEX_SHADER, ShaderProgram.OVERLAY_FRAGMENT_SHADER);
+        // background, budget line, two call strip parts and one bar per frame
+        this.vertices = MemoryUtil.memAllocFloat((FrameProfiler.HISTORY_SIZE + 4) * VERTICES_PER_RECT * VERTEX_FLOATS);
+
+        vaoId = glGenVertexArrays();
+        vboId = glGenBuffers();
+        int stride = VERTEX_FLOATS * Float.BYTES;
+
+        glBindVertexArray(vaoId);
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+
+        // Attribut 0: Position in NDC (2 float-Werte)
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, stride, 0);
+        glEnableVertexAttribArray(0);
+        // Attribut 1: Farbe (4 float-Werte)
+        glVertexAttribPointer(1, 4, GL_FLOAT, false, stride, 2 * Float.BYTES);
+        glEnableVertexAttribArray(1);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Draws the graph on top of the current frame.
+     */
+    public void render() {
+        float budget = profiler.getFrameBudgetMillis();
+        float msToHeight = HEIGHT / (2.0f * budget);
+        float barWidth = WIDTH / FrameProfiler.HISTORY_SIZE;
+
+        vertices.clear();
+        putRect(LEFT, BOTTOM, WIDTH, HEIGHT, 0.0f, 0.0f, 0.0f, 0.5f);
+
+        for (int i = 0; i < FrameProfiler.HISTORY_SIZE; i++) {
+            float ms = profiler.getRecentFrameTime(FrameProfiler.HISTORY_SIZE - 1 - i);
+            if (ms <= 0.0f) continue;
+            float height = Math.min(ms * msToHeight, HEIGHT);
+            if (ms <= budget) {
+                putRect(LEFT + i * barWidth, BOTTOM, barWidth, height, 0.2f, 0.9f, 0.3f, 0.8f);
+            } else {
+                putRect(LEFT + i * barWidth, BOTTOM, barWidth, height, 1.0f, 0.2f, 0.2f, 0.9f);
+            }
+        }
+
+        putRect(LEFT, BOTTOM + budget * msToHeight, WIDTH, 0.004f, 1.0f, 1.0f, 1.0f, 0.8f);
+
+        long issued = gl.getFrameIssuedCalls();
+        long total = issued + gl.getFrameSkippedCalls();
+        if (total > 0) {
+            float issuedWidth = WIDTH * issued / total;
+            float stripY = BOTTOM + HEIGHT + 0.01f;
+            putRect(LEFT, stripY, issuedWidth, STRIP_HEIGHT, 1.0f, 0.6f, 0.1f, 0.9f);
+            putRect(LEFT + issuedWidth, stripY, WIDTH - issuedWidth, STRIP_HEIGHT, 0.2f, 0.5f, 1.0f, 0.9f);
+        }
+
+        int vertexCount = vertices.position() / VERTEX_FLOATS;
+        vertices.flip();
+
+        gl.useProgram(shader.getShaderProgram());
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        gl.bindVertexArray(vaoId);
+        glDrawArrays(GL_TRIANGLES, 0, vertexCount);
+    }
+
+    private void putRect(float x, float y, float w, float h, float r, float g, float b, float a) {
+        putVertex(x, y + h, r, g, b, a);
+        putVertex(x, y, r, g, b, a);
+        putVertex(x + w, y, r, g, b, a);
+
+        putVertex(x + w, y, r, g, b, a);
+        putVertex(x + w, y + h, r, g, b, a);
+        putVertex(x, y + h, r, g, b, a);
+    }
+
+    private void putVertex(float x, float y, float r, float g, float b, float a) {
+        vertices.put(x).put(y).put(r).put(g).put(b).put(a);
+    }
+
+    /**
+     * Releases the GL objects and off-heap memory of the overlay.
+     */
+    public void cleanup() {
+        glDeleteProgram(shader.getShaderProgram());
+        glDeleteBuffers(vboId);
+        glDeleteVertexArrays(vaoId);
+        if (vertices != null) {
+            MemoryUtil.memFree(vertices);
+            vertices = null;
+        }
+    }
+
+}
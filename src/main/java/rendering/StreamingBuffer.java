@@ -0,0 +1,264 @@
+package rendering;
+
+import static org.lwjgl.opengl.ARBBufferStorage.GL_MAP_COHERENT_BIT;
+import static org.lwjgl.opengl.ARBBufferStorage.GL_MAP_PERSISTENT_BIT;
+import static org.lwjgl.opengl.ARBBufferStorage.glBufferStorage;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL15.glUnmapBuffer;
+import static org.lwjgl.opengl.GL30.GL_MAP_INVALIDATE_RANGE_BIT;
+import static org.lwjgl.opengl.GL30.GL_MAP_UNSYNCHRONIZED_BIT;
+import static org.lwjgl.opengl.GL30.GL_MAP_WRITE_BIT;
+import static org.lwjgl.opengl.GL30.nglMapBufferRange;
+import static org.lwjgl.opengl.GL32.GL_ALREADY_SIGNALED;
+import static org.lwjgl.opengl.GL32.GL_SYNC_FLUSH_COMMANDS_BIT;
+import static org.lwjgl.opengl.GL32.GL_SYNC_GPU_COMMANDS_COMPLETE;
+import static org.lwjgl.opengl.GL32.GL_TIMEOUT_EXPIRED;
+import static org.lwjgl.opengl.GL32.GL_WAIT_FAILED;
+import static org.lwjgl.opengl.GL32.glClientWaitSync;
+import static org.lwjgl.opengl.GL32.glDeleteSync;
+import static org.lwjgl.opengl.GL32.glFenceSync;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Ring of {@link #REGIONS} buffer regions for per-frame vertex data.
+ * <p>
+ * Each frame writes into the next region while the GPU may still read the regions of
+ * the previous frames. A fence sync placed after the draw calls of a region guards its
+ * reuse, so the CPU only waits if it gets more than {@code REGIONS - 1} frames ahead;
+ * no write ever forces the driver into an implicit synchronization or a buffer orphan.
+ * </p>
+ * <p>
+ * With {@code GL_ARB_buffer_storage} (core in 4.4) the buffer is mapped once, persistently
+ * and coherently, and the projection writes straight into it. On a plain 3.3 context the
+ * region is mapped every frame with {@code GL_MAP_UNSYNCHRONIZED_BIT} instead; the fences
+ * make that just as safe.
+ * </p>
+ * <p>
+ * Usage per frame: {@link #map(int)}, write, {@link #unmap()}, draw from
+ * {@link #getBufferId()} at the returned offset, {@link #fence()}.
+ * </p>
+ */
+public class StreamingBuffer {
+
+    /** Number of frames that may be in flight. */
+    public static final int REGIONS = 3;
+
+    /** Nanoseconds a single wait for a fence may block before it is repeated. */
+    private static final long FENCE_TIMEOUT = 1_000_000_000L;
+
+    private final boolean persistent;
+
+    private int bufferId;
+    private long regionBytes;
+    private final long[] fences = new long[REGIONS];
+    private int region = REGIONS - 1;
+
+    /** Persistent mapping: address of the whole buffer and one float view per region */
+    private long mappedAddress = NULL;
+    private final FloatBuffer[] regionViews = new FloatBuffer[REGIONS];
+
+    private boolean mapped;
+
+    private long fenceWaits = 0;
+    private long fenceWaitNanos = 0;
+
+    /**
+     * Creates the buffer, using persistent mapping if the context supports it.
+     *
+     * @param initialFloats  floats per region to allocate up front; grown on demand
+     * @param allowPersistent  false to always use the per-frame mapping
+     */
+    public StreamingBuffer(int initialFloats, boolean allowPersistent) {
+        GLCapabilities caps = GL.getCapabilities();
+        this.persistent = allowPersistent && (caps.OpenGL44 || caps.GL_ARB_buffer_storage);
+        allocate(Math.max(initialFloats, 1) * (long) Float.BYTES);
+    }
+
+    /**
+     * Waits until the next region is free and returns a view to write into.
+     *
+     * @param floats  number of floats the frame will write
+     * @return        buffer positioned at 0 with room for at least {@code floats} floats
+     */
+    public FloatBuffer map(int floats) {
+        if (mapped) throw new IllegalStateException("Region is still mapped");
+        region = (region + 1) % REGIONS;
+        waitForFence(region);
+
+        long bytes = Math.max(floats, 1) * (long) Float.BYTES;
+        if (bytes > regionBytes) {
+            grow(bytes);
+        }
+
+        mapped = true;
+        if (persistent) {
+            FloatBuffer view = regionViews[region];
+            view.clear();
+            return view;
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+        long address = nglMapBufferRange(GL_ARRAY_BUFFER, getOffset(), bytes,
+                GL_MAP_WRITE_BIT | GL_MAP_UNSYNCHRONIZED_BIT | GL_MAP_INVALIDATE_RANGE_BIT);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        if (address == NULL) {
+            mapped = false;
+            throw new IllegalStateException("Failed to map streaming buffer");
+        }
+        return MemoryUtil.memFloatBuffer(address, (int) (bytes / Float.BYTES));
+    }
+
+    /**
+     * Ends the writes of this frame.
+     *
+     * @return byte offset of the written region in {@link #getBufferId()}
+     */
+    public long unmap() {
+        if (!mapped) throw new IllegalStateException("No region is mapped");
+        mapped = false;
+        if (!persistent) {
+            glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+        return getOffset();
+    }
+
+    /**
+     * Marks the current region as in use by the draw calls issued so far.
+     * Must be called after the last draw that reads the region.
+     */
+    public void fence() {
+        if (fences[region] != NULL) {
+            glDeleteSync(fences[region]);
+        }
+        fences[region] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+    }
+
+    /**
+     * Blocks until the GPU has finished reading the given region.
+     */
+    private void waitForFence(int r) {
+        long fence = fences[r];
+        if (fence == NULL) return;
+
+        int status = glClientWaitSync(fence, 0, 0);
+        if (status != GL_ALREADY_SIGNALED) {
+            long start = System.nanoTime();
+            while (status == GL_TIMEOUT_EXPIRED) {
+                status = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT);
+            }
+            fenceWaits++;
+            fenceWaitNanos += System.nanoTime() - start;
+            if (status == GL_WAIT_FAILED) {
+                System.err.println("Streaming buffer fence wait failed");
+            }
+        }
+        glDeleteSync(fence);
+        fences[r] = NULL;
+    }
+
+    /**
+     * Replaces the buffer with one whose regions hold at least {@code bytes} bytes.
+     * Waits for all regions first, so no frame in flight loses its data.
+     */
+    private void grow(long bytes) {
+        for (int r = 0; r < REGIONS; r++) {
+            waitForFence(r);
+        }
+        release();
+        allocate(Math.max(bytes, regionBytes * 2));
+    }
+
+    private void allocate(long bytes) {
+        regionBytes = bytes;
+        long total = regionBytes * REGIONS;
+        bufferId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+        if (persistent) {
+            int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+            glBufferStorage(GL_ARRAY_BUFFER, total, flags);
+            mappedAddress = nglMapBufferRange(GL_ARRAY_BUFFER, 0, total, flags);
+            if (mappedAddress == NULL) {
+                glBindBuffer(GL_ARRAY_BUFFER, 0);
+                throw new IllegalStateException("Failed to map streaming buffer persistently");
+            }
+            int regionFloats = (int) (regionBytes / Float.BYTES);
+            for (int r = 0; r < REGIONS; r++) {
+                regionViews[r] = MemoryUtil.memFloatBuffer(mappedAddress + r * regionBytes, regionFloats);
+            }
+        } else {
+            glBufferData(GL_ARRAY_BUFFER, total, GL_STREAM_DRAW);
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    private void release() {
+        if (persistent && mappedAddress != NULL) {
+            glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+            mappedAddress = NULL;
+        }
+        glDeleteBuffers(bufferId);
+        bufferId = 0;
+    }
+
+    /**
+     * @return byte offset of the current region
+     */
+    public long getOffset() {
+        return region * regionBytes;
+    }
+
+    /**
+     * @return the GL buffer; changes when the buffer grows
+     */
+    public int getBufferId() {
+        return bufferId;
+    }
+
+    /**
+     * @return true if the buffer is mapped persistently
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * @return number of times the CPU had to wait for the GPU to release a region
+     */
+    public long getFenceWaits() {
+        return fenceWaits;
+    }
+
+    /**
+     * @return total nanoseconds spent waiting for regions
+     */
+    public long getFenceWaitNanos() {
+        return fenceWaitNanos;
+    }
+
+    /**
+     * Waits for the GPU and deletes the buffer and all fences.
+     */
+    public void cleanup() {
+        if (bufferId == 0) return;
+        for (int r = 0; r < REGIONS; r++) {
+            waitForFence(r);
+        }
+        release();
+    }
+
+}
@@ -0,0 +1,45 @@
+package rendering;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Projects as many points per instruction as the preferred vector species holds:
+ * 8 floats with AVX2, 16 with AVX-512. Points past the last full vector go through
+ * the scalar formula.
+ * <p>
+ * Needs {@code --add-modules jdk.incubator.vector} at compile and run time; only
+ * {@link ProjectionKernel#create(boolean)} instantiates it, after checking the module.
+ * Uses separate multiplies and adds, never fused ones, to match
+ * {@link ScalarProjectionKernel} exactly.
+ * </p>
+ */
+public class VectorProjectionKernel implements ProjectionKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void project(float[] xs, float[] ys, int count, float cos, float sin, float kx, float ky,
+            float[] ndcX, float[] ndcY) {
+        int i = 0;
+        int bound = SPECIES.loopBound(count);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, xs, i);
+            FloatVector y = FloatVector.fromArray(SPECIES, ys, i);
+            x.mul(cos).sub(y.mul(sin)).mul(kx).intoArray(ndcX, i);
+            x.mul(sin).add(y.mul(cos)).mul(ky).intoArray(ndcY, i);
+        }
+        for (; i < count; i++) {
+            float x = xs[i];
+            float y = ys[i];
+            ndcX[i] = (cos * x - sin * y) * kx;
+            ndcY[i] = (sin * x + cos * y) * ky;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector " + SPECIES.vectorBitSize() + "-bit";
+    }
+
+}
@@ -0,0 +1,411 @@
+package utility;
+
+import static org.lwjgl.opengl.GL11.GL_LINEAR;
+import static org.lwjgl.opengl.GL11.GL_LINEAR_MIPMAP_LINEAR;
+import static org.lwjgl.opengl.GL11.GL_MAX_TEXTURE_SIZE;
+import static org.lwjgl.opengl.GL11.GL_RGBA;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_MAG_FILTER;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_MIN_FILTER;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_WRAP_S;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_WRAP_T;
+import static org.lwjgl.opengl.GL11.GL_UNPACK_ALIGNMENT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL11.glBindTexture;
+import static org.lwjgl.opengl.GL11.glGenTextures;
+import static org.lwjgl.opengl.GL11.glGetInteger;
+import static org.lwjgl.opengl.GL11.glPixelStorei;
+import static org.lwjgl.opengl.GL11.glTexImage2D;
+import static org.lwjgl.opengl.GL11.glTexParameteri;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL15.glUnmapBuffer;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+import static org.lwjgl.opengl.GL30.GL_MAP_INVALIDATE_BUFFER_BIT;
+import static org.lwjgl.opengl.GL30.GL_MAP_WRITE_BIT;
+import static org.lwjgl.opengl.GL30.nglMapBufferRange;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Loads texture atlases without blocking the GL thread.
+ * <p>
+ * {@link #loadAtlas(File[])} only reads the image headers to lay out the atlas and returns
+ * at once with a texture holding a single white texel, so the first frames render with a
+ * placeholder. PNG decoding, atlas composition and the mip chain run on a worker pool.
+ * {@link #poll()}, called once per frame on the GL thread, uploads the finished atlas
+ * through a pixel buffer object into the same texture.
+ * </p>
+ * <p>
+ * Finished atlases are written to a cache directory as raw, premipmapped RGBA. The cache
+ * file is named after the names, sizes and modification times of the source files; on
+ * the next start it is memory-mapped instead of decoding anything.
+ * </p>
+ */
+public class AsyncTextureLoader {
+
+    private static final int CACHE_MAGIC = 0x41565443; // "AVTC"
+    private static final int CACHE_VERSION = 1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+
+    private final Path cacheDir;
+    private final ExecutorService pool;
+
+    private int textureId;
+    private CompletableFuture<ByteBuffer> pending;
+    private AtlasLayout layout;
+    private int levels;
+    private boolean cacheHit;
+    private long readyNanos;
+
+    /**
+     * Creates the loader and its worker pool.
+     *
+     * @param cacheDir  directory for preprocessed atlases, created on demand
+     * @param threads   number of decoding threads
+     */
+    public AsyncTextureLoader(String cacheDir, int threads) {
+        this.cacheDir = Paths.get(cacheDir);
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "texture-decode");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts loading the given images into one atlas. Must run on the GL thread.
+     *
+     * @param files  PNG files, packed in this order
+     * @return       the atlas; its texture shows a white placeholder until {@link #poll()}
+     *               has uploaded the images
+     */
+    public TextureAtlas loadAtlas(File[] files) {
+        if (pending != null) throw new IllegalStateException("An atlas is already loading");
+
+        int n = files.length;
+        String[] names = new String[n];
+        int[] widths = new int[n];
+        int[] heights = new int[n];
+        int[] w = new int[1], h = new int[1], channels = new int[1];
+        for (int i = 0; i < n; i++) {
+            names[i] = files[i].getName();
+            if (!STBImage.stbi_info(files[i].getPath(), w, h, channels)) {
+                throw new RuntimeException("Failed to read texture file " + names[i] + ": "
+                        + STBImage.stbi_failure_reason());
+            }
+            widths[i] = w[0];
+            heights[i] = h[0];
+        }
+        layout = AtlasLayout.pack(widths, heights, Utils.ATLAS_PADDING, glGetInteger(GL_MAX_TEXTURE_SIZE));
+        levels = mipLevels(layout.getWidth(), layout.getHeight(), Utils.ATLAS_PADDING);
+
+        textureId = createPlaceholder();
+
+        Path cacheFile = cacheDir.resolve(cacheKey(files) + ".rgba");
+        ByteBuffer cached = mapCache(cacheFile);
+        if (cached != null) {
+            cacheHit = true;
+            pending = CompletableFuture.completedFuture(cached);
+        } else {
+            pending = decode(files, cacheFile);
+        }
+        return new TextureAtlas(textureId, names, layout.getUvRects());
+    }
+
+    /**
+     * Uploads the atlas once the workers are done. Call once per frame on the GL thread.
+     * Binds the atlas texture to the active unit when it uploads. If loading failed, the
+     * error is reported once and the placeholder stays.
+     *
+     * @return true on the frame the upload happened
+     */
+    public boolean poll() {
+        if (pending == null || !pending.isDone()) return false;
+
+        CompletableFuture<ByteBuffer> done = pending;
+        pending = null;
+        if (done.isCompletedExceptionally()) {
+            done.exceptionally(e -> {
+                System.err.println("Texture loading failed: " + e.getMessage());
+                return null;
+            });
+            return false;
+        }
+        ByteBuffer pixels = done.join();
+        upload(pixels);
+        if (!cacheHit) MemoryUtil.memFree(pixels);
+        readyNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Blocks until the workers are done, then uploads like {@link #poll()}. For callers that
+     * must not draw the placeholder, such as the video export.
+     *
+     * @return true if the atlas was uploaded, false if it was already or loading failed
+     */
+    public boolean await() {
+        if (pending == null) return false;
+        try {
+            pending.join();
+        } catch (CompletionException | CancellationException e) {
+            // reported by poll()
+        }
+        return poll();
+    }
+
+    /**
+     * Decodes all images in parallel, composes the atlas with its mip chain and writes it
+     * to the cache.
+     */
+    private CompletableFuture<ByteBuffer> decode(File[] files, Path cacheFile) {
+        List<CompletableFuture<ByteBuffer>> images = new ArrayList<>(files.length);
+        for (File file : files) {
+            String path = file.getPath();
+            images.add(CompletableFuture.supplyAsync(() -> decodeImage(path), pool));
+        }
+        return CompletableFuture.allOf(images.toArray(new CompletableFuture<?>[0])).thenApplyAsync(v -> {
+            ByteBuffer pixels = MemoryUtil.memCalloc((int) chainBytes(layout.getWidth(), layout.getHeight(), levels));
+            for (int i = 0; i < images.size(); i++) {
+                ByteBuffer image = images.get(i).join();
+                layout.copyImage(i, image, pixels);
+                STBImage.stbi_image_free(image);
+            }
+            buildMipChain(pixels, layout.getWidth(), layout.getHeight(), levels);
+            writeCache(cacheFile, pixels);
+            return pixels;
+        }, pool);
+    }
+
+    private static ByteBuffer decodeImage(String path) {
+        // Bild vertikal spiegeln, nur für diesen Worker-Thread
+        STBImage.stbi_set_flip_vertically_on_load_thread(1);
+        int[] w = new int[1], h = new int[1], channels = new int[1];
+        ByteBuffer image = STBImage.stbi_load(path, w, h, channels, 4);
+        if (image == null) {
+            throw new RuntimeException("Failed to load texture file " + path + ": " + STBImage.stbi_failure_reason());
+        }
+        return image;
+    }
+
+    /**
+     * Copies the mip chain into a pixel buffer object and specifies every level from it.
+     */
+    private void upload(ByteBuffer pixels) {
+        long bytes = chainBytes(layout.getWidth(), layout.getHeight(), levels);
+
+        int pbo = glGenBuffers();
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, pbo);
+        glBufferData(GL_PIXEL_UNPACK_BUFFER, bytes, GL_STREAM_DRAW);
+        long mapped = nglMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 0, bytes, GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT);
+        if (mapped == NULL) {
+            glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+            glDeleteBuffers(pbo);
+            throw new IllegalStateException("Failed to map texture upload buffer");
+        }
+        MemoryUtil.memCopy(MemoryUtil.memAddress(pixels, 0), mapped, bytes);
+        glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+
+        glBindTexture(GL_TEXTURE_2D, textureId);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, levels - 1);
+        long offset = 0;
+        int w = layout.getWidth(), h = layout.getHeight();
+        for (int level = 0; level < levels; level++) {
+            // Quelle ist der PBO: der letzte Parameter ist ein Offset, kein Zeiger
+            glTexImage2D(GL_TEXTURE_2D, level, GL_RGBA, w, h, 0, GL_RGBA, GL_UNSIGNED_BYTE, offset);
+            offset += (long) w * h * 4;
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+        }
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        glDeleteBuffers(pbo);
+    }
+
+    private static int createPlaceholder() {
+        int texId = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, texId);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        // Nur Level 0 vorhanden, sonst wäre die Textur unvollständig
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, 0);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, 1, 1, 0, GL_RGBA, GL_UNSIGNED_BYTE,
+                new int[] {0xFFFFFFFF});
+        return texId;
+    }
+
+    /**
+     * Maps a cache file if it exists and matches the expected layout.
+     *
+     * @return the mip chain, or null on a miss
+     */
+    private ByteBuffer mapCache(Path file) {
+        if (!Files.isRegularFile(file)) return null;
+        long bytes = chainBytes(layout.getWidth(), layout.getHeight(), levels);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() != HEADER_BYTES + bytes) return null;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt(0) != CACHE_MAGIC || map.getInt(4) != CACHE_VERSION
+                    || map.getInt(8) != layout.getWidth() || map.getInt(12) != layout.getHeight()
+                    || map.getInt(16) != levels) {
+                return null;
+            }
+            return map.slice(HEADER_BYTES, (int) bytes);
+        } catch (IOException e) {
+            System.err.println("Ignoring texture cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCache(Path file, ByteBuffer pixels) {
+        try {
+            Files.createDirectories(cacheDir);
+            Path tmp = Files.createTempFile(cacheDir, "atlas", ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(CACHE_MAGIC).putInt(CACHE_VERSION)
+                        .putInt(layout.getWidth()).putInt(layout.getHeight()).putInt(levels).flip();
+                channel.write(header);
+                ByteBuffer data = pixels.duplicate();
+                data.clear();
+                while (data.hasRemaining()) channel.write(data);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write texture cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Names the cache file after everything that changes the atlas contents.
+     */
+    static String cacheKey(File[] files) {
+        CRC32 crc = new CRC32();
+        StringBuilder key = new StringBuilder();
+        key.append(CACHE_VERSION).append('/').append(Utils.ATLAS_PADDING);
+        for (File f : files) {
+            key.append('/').append(f.getName()).append(':').append(f.length()).append(':').append(f.lastModified());
+        }
+        crc.update(key.toString().getBytes(StandardCharsets.UTF_8));
+        return String.format("atlas-%08x", crc.getValue());
+    }
+
+    /**
+     * Number of mip levels whose gutter is still at least one texel wide.
+     */
+    static int mipLevels(int width, int height, int padding) {
+        int levels = 1;
+        int w = width, h = height, p = padding;
+        while (p >= 2 && (w > 1 || h > 1)) {
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+            p /= 2;
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * @return bytes of an RGBA mip chain with the given number of levels
+     */
+    static long chainBytes(int width, int height, int levels) {
+        long bytes = 0;
+        for (int level = 0; level < levels; level++) {
+            bytes += (long) width * height * 4;
+            width = Math.max(1, width / 2);
+            height = Math.max(1, height / 2);
+        }
+        return bytes;
+    }
+
+    /**
+     * Fills levels 1 and up of an RGBA mip chain by 2x2 box filtering the level before.
+     *
+     * @param chain  all levels back to back, level 0 already filled
+     */
+    static void buildMipChain(ByteBuffer chain, int width, int height, int levels) {
+        int src = 0;
+        for (int level = 1; level < levels; level++) {
+            int w = Math.max(1, width / 2);
+            int h = Math.max(1, height / 2);
+            int dst = src + width * height * 4;
+            for (int y = 0; y < h; y++) {
+                int y0 = Math.min(2 * y, height - 1), y1 = Math.min(2 * y + 1, height - 1);
+                for (int x = 0; x < w; x++) {
+                    int x0 = Math.min(2 * x, width - 1), x1 = Math.min(2 * x + 1, width - 1);
+                    for (int c = 0; c < 4; c++) {
+                        int sum = (chain.get(src + (y0 * width + x0) * 4 + c) & 0xFF)
+                                + (chain.get(src + (y0 * width + x1) * 4 + c) & 0xFF)
+                                + (chain.get(src + (y1 * width + x0) * 4 + c) & 0xFF)
+                                + (chain.get(src + (y1 * width + x1) * 4 + c) & 0xFF);
+                        chain.put(dst + (y * w + x) * 4 + c, (byte) ((sum + 2) / 4));
+                    }
+                }
+            }
+            src = dst;
+            width = w;
+            height = h;
+        }
+    }
+
+    /**
+     * @return true once the atlas has been uploaded
+     */
+    public boolean isReady() {
+        return readyNanos != 0;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the upload, 0 while still loading
+     */
+    public long getReadyNanos() {
+        return readyNanos;
+    }
+
+    /**
+     * @return true if the atlas came from the disk cache
+     */
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    /**
+     * Stops the worker pool. Pending work is abandoned.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+}
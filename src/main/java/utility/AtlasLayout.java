@@ -0,0 +1,172 @@
+package utility;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Placement of several RGBA images in one power-of-two texture, packed in shelves.
+ * <p>
+ * Images are sorted by height and placed left to right on horizontal shelves; a new shelf
+ * starts above the tallest image of the previous one. Every image is surrounded by a
+ * gutter of {@code padding} texels that {@link #copyImage} fills with the image's edge
+ * texels, so linear filtering and the first {@code log2(padding)} mip levels never blend
+ * in a neighbouring image.
+ * </p>
+ */
+public class AtlasLayout {
+
+    private final int width;
+    private final int height;
+    private final int padding;
+    private final int[] x;
+    private final int[] y;
+    private final int[] widths;
+    private final int[] heights;
+
+    private AtlasLayout(int width, int height, int padding, int[] x, int[] y, int[] widths, int[] heights) {
+        this.width = width;
+        this.height = height;
+        this.padding = padding;
+        this.x = x;
+        this.y = y;
+        this.widths = widths;
+        this.heights = heights;
+    }
+
+    /**
+     * Packs images of the given sizes.
+     *
+     * @param widths   image widths in texels
+     * @param heights  image heights in texels
+     * @param padding  gutter around every image in texels
+     * @param maxSize  largest texture width or height allowed
+     * @return         the layout, using the smallest width that keeps the height within maxSize
+     * @throws IllegalArgumentException if the images do not fit into maxSize x maxSize
+     */
+    public static AtlasLayout pack(int[] widths, int[] heights, int padding, int maxSize) {
+        int n = widths.length;
+        if (heights.length != n || n == 0) {
+            throw new IllegalArgumentException("Need the same, non-zero number of widths and heights");
+        }
+
+        long area = 0;
+        int widest = 0;
+        for (int i = 0; i < n; i++) {
+            int cellW = widths[i] + 2 * padding;
+            area += (long) cellW * (heights[i] + 2 * padding);
+            widest = Math.max(widest, cellW);
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> heights[i]).reversed());
+
+        int[] x = new int[n];
+        int[] y = new int[n];
+        for (int w = nextPowerOfTwo(Math.max(widest, (int) Math.ceil(Math.sqrt(area)))); w <= maxSize; w *= 2) {
+            int shelfX = 0, shelfY = 0, shelfHeight = 0;
+            for (int i : order) {
+                int cellW = widths[i] + 2 * padding;
+                int cellH = heights[i] + 2 * padding;
+                if (shelfX + cellW > w) {
+                    shelfY += shelfHeight;
+                    shelfX = 0;
+                    shelfHeight = 0;
+                }
+                x[i] = shelfX + padding;
+                y[i] = shelfY + padding;
+                shelfX += cellW;
+                shelfHeight = Math.max(shelfHeight, cellH);
+            }
+            int h = nextPowerOfTwo(shelfY + shelfHeight);
+            if (h <= maxSize) {
+                return new AtlasLayout(w, h, padding, x, y, widths.clone(), heights.clone());
+            }
+        }
+        throw new IllegalArgumentException(n + " images do not fit into a " + maxSize + "x" + maxSize + " atlas");
+    }
+
+    private static int nextPowerOfTwo(int v) {
+        return v <= 1 ? 1 : Integer.highestOneBit(v - 1) << 1;
+    }
+
+    /**
+     * Copies one image into the atlas pixels and fills its gutter with the edge texels.
+     *
+     * @param index  image index as passed to {@link #pack}
+     * @param image  tightly packed RGBA rows of the image
+     * @param atlas  tightly packed RGBA rows of the whole atlas, {@code width * height * 4} bytes
+     */
+    public void copyImage(int index, ByteBuffer image, ByteBuffer atlas) {
+        int w = widths[index];
+        int h = heights[index];
+        int rowBytes = width * 4;
+
+        for (int row = -padding; row < h + padding; row++) {
+            int srcRow = Math.max(0, Math.min(h - 1, row));
+            int dst = (y[index] + row) * rowBytes;
+            for (int col = -padding; col < w + padding; col++) {
+                int srcCol = Math.max(0, Math.min(w - 1, col));
+                int src = (srcRow * w + srcCol) * 4;
+                int d = dst + (x[index] + col) * 4;
+                atlas.put(d, image.get(src));
+                atlas.put(d + 1, image.get(src + 1));
+                atlas.put(d + 2, image.get(src + 2));
+                atlas.put(d + 3, image.get(src + 3));
+            }
+        }
+    }
+
+    /**
+     * Texture coordinates of every image as {u, v, width, height} quadruples.
+     *
+     * @return four floats per image, in the order passed to {@link #pack}
+     */
+    public float[] getUvRects() {
+        float[] uv = new float[x.length * 4];
+        for (int i = 0; i < x.length; i++) {
+            uv[i * 4]     = (float) x[i] / width;
+            uv[i * 4 + 1] = (float) y[i] / height;
+            uv[i * 4 + 2] = (float) widths[i] / width;
+            uv[i * 4 + 3] = (float) heights[i] / height;
+        }
+        return uv;
+    }
+
+    /**
+     * @return atlas width in texels, a power of two
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return atlas height in texels, a power of two
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return gutter around every image in texels
+     */
+    public int getPadding() {
+        return padding;
+    }
+
+    /**
+     * @return left edge of the image in texels
+     */
+    public int getX(int index) {
+        return x[index];
+    }
+
+    /**
+     * @return bottom edge of the image in texels
+     */
+    public int getY(int index) {
+        return y[index];
+    }
+
+}
@@ -0,0 +1,28 @@
+package utility;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Source of the current time for everything the simulation measures in seconds.
+ * <p>
+ * The application runs on {@link #glfw()}; benchmarks, tests and the video export
+ * pass a {@link SimulatedClock} instead, so a run does not depend on the wall clock
+ * or an initialized GLFW.
+ * </p>
+ */
+@FunctionalInterface
+public interface Clock {
+
+    /**
+     * @return the current time in seconds; only differences are meaningful
+     */
+    double seconds();
+
+    /**
+     * @return the GLFW timer; requires an initialized GLFW
+     */
+    static Clock glfw() {
+        return GLFW::glfwGetTime;
+    }
+
+}
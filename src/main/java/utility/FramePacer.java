@@ -0,0 +1,244 @@
+package utility;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Frame pacing for the main loop: decides how many fixed update steps each frame runs
+ * and, when the frame rate is not already limited by vsync, waits for the start of the
+ * next frame.
+ * <p>
+ * Update steps come from a time accumulator like before, but a frame never runs more
+ * than {@code maxSteps} of them; any further backlog is dropped, so a long frame cannot
+ * start a spiral of ever longer catch-up frames. The accumulator is drained on every
+ * frame, also when the caller skips the updates (debug mode).
+ * </p>
+ * <p>
+ * Waiting is a hybrid: the thread parks until shortly before the deadline and spins for
+ * the rest. The spin margin follows the measured oversleep of the park calls, so coarse
+ * OS timers cost a little more spinning instead of missed deadlines, while precise timers
+ * keep the CPU mostly asleep.
+ * </p>
+ */
+public class FramePacer {
+
+    private static final long MIN_SPIN_MARGIN = 100_000L;
+    private static final long MAX_SPIN_MARGIN = 4_000_000L;
+    private static final long INITIAL_OVERSLEEP = 1_000_000L;
+
+    private final LongSupplier clock;
+    private final long stepNanos;
+    private final float stepSeconds;
+    private final long framePeriod;
+    private final int maxSteps;
+
+    private long lastFrameStart;
+    private long accumulator = 0;
+    private long nextDeadline;
+
+    /** Running estimate of how much longer park calls take than requested. */
+    private long oversleep = INITIAL_OVERSLEEP;
+
+    private volatile long frames = 0;
+    private volatile long clampedFrames = 0;
+    private volatile long droppedSteps = 0;
+    private volatile long lateFrames = 0;
+    private volatile long sleepNanos = 0;
+    private volatile long spinNanos = 0;
+
+    /**
+     * Creates a pacer on the {@link System#nanoTime()} clock.
+     *
+     * @param updateRate  fixed update steps per second
+     * @param frameRate   frames per second to wait for, 0 or less to never wait (vsync paced)
+     * @param maxSteps    most update steps a single frame may run
+     */
+    public FramePacer(double updateRate, double frameRate, int maxSteps) {
+        this(updateRate, frameRate, maxSteps, System::nanoTime);
+    }
+
+    /**
+     * Creates a pacer.
+     *
+     * @param updateRate  fixed update steps per second
+     * @param frameRate   frames per second to wait for, 0 or less to never wait (vsync paced)
+     * @param maxSteps    most update steps a single frame may run
+     * @param clock       nanosecond clock
+     */
+    public FramePacer(double updateRate, double frameRate, int maxSteps, LongSupplier clock) {
+        if (updateRate <= 0.0 || maxSteps <= 0) {
+            throw new IllegalArgumentException("Invalid pacing: " + updateRate + " updates/s, " + maxSteps + " steps");
+        }
+        this.clock = clock;
+        this.stepNanos = (long) (1_000_000_000.0 / updateRate);
+        this.stepSeconds = (float) (1.0 / updateRate);
+        this.framePeriod = frameRate > 0.0 ? (long) (1_000_000_000.0 / frameRate) : 0L;
+        this.maxSteps = maxSteps;
+        this.lastFrameStart = clock.getAsLong();
+        this.nextDeadline = lastFrameStart + framePeriod;
+    }
+
+    /**
+     * Chooses the frame rate to pace to.
+     *
+     * @param targetFps    configured frame rate, 0 or less for the monitor refresh rate
+     * @param refreshRate  refresh rate reported for the monitor, 0 if unknown
+     * @param swapInterval vsync interval; with vsync the swap already limits the rate to
+     *                     {@code refreshRate / swapInterval}
+     * @param fallbackFps  frame rate used if neither a target nor the refresh rate is known
+     * @return             the frame rate to wait for, 0 if vsync alone paces the loop
+     */
+    public static double chooseFrameRate(double targetFps, int refreshRate, int swapInterval, double fallbackFps) {
+        double target = targetFps > 0.0 ? targetFps : (refreshRate > 0 ? refreshRate : fallbackFps);
+        if (swapInterval > 0 && refreshRate > 0 && target >= (double) refreshRate / swapInterval) {
+            return 0.0;
+        }
+        return target;
+    }
+
+    /**
+     * Returns the rate frames are actually shown at, the basis of the frame budget.
+     *
+     * @param pacedRate    rate from {@link #chooseFrameRate}, 0 if vsync paces the loop
+     * @param refreshRate  refresh rate reported for the monitor, 0 if unknown
+     * @param swapInterval vsync interval
+     * @param fallbackFps  frame rate assumed if vsync paces the loop at an unknown refresh rate
+     * @return             {@code pacedRate} if the pacer waits, otherwise
+     *                     {@code refreshRate / swapInterval}, otherwise {@code fallbackFps}
+     */
+    public static double shownFrameRate(double pacedRate, int refreshRate, int swapInterval, double fallbackFps) {
+        if (pacedRate > 0.0) {
+            return pacedRate;
+        }
+        if (swapInterval > 0 && refreshRate > 0) {
+            return (double) refreshRate / swapInterval;
+        }
+        return fallbackFps;
+    }
+
+    /**
+     * Starts a frame: adds the time since the previous frame to the accumulator and
+     * takes the update steps due from it.
+     *
+     * @return number of fixed update steps to run this frame, at most {@code maxSteps}
+     */
+    public int beginFrame() {
+        long now = clock.getAsLong();
+        accumulator += now - lastFrameStart;
+        lastFrameStart = now;
+
+        long due = accumulator / stepNanos;
+        accumulator -= due * stepNanos;
+        frames++;
+        if (due > maxSteps) {
+            clampedFrames++;
+            droppedSteps += due - maxSteps;
+            return maxSteps;
+        }
+        return (int) due;
+    }
+
+    /**
+     * Waits until the next frame is due. Returns immediately if the pacer does not wait
+     * (vsync paced) or the deadline has already passed.
+     */
+    public void waitForNextFrame() {
+        if (framePeriod == 0) return;
+
+        long now = clock.getAsLong();
+        if (now >= nextDeadline) {
+            lateFrames++;
+            // Too late to make up: start a fresh schedule instead of rushing frames
+            nextDeadline = now + framePeriod;
+            return;
+        }
+
+        long sleepStart = now;
+        long margin = Math.max(MIN_SPIN_MARGIN, Math.min(MAX_SPIN_MARGIN, oversleep + MIN_SPIN_MARGIN));
+        while (nextDeadline - now > margin) {
+            long requested = nextDeadline - now - margin;
+            LockSupport.parkNanos(requested);
+            long after = clock.getAsLong();
+            trackOversleep(after - now - requested);
+            now = after;
+        }
+        long spinStart = now;
+        while (now < nextDeadline) {
+            Thread.onSpinWait();
+            now = clock.getAsLong();
+        }
+        sleepNanos += spinStart - sleepStart;
+        spinNanos += now - spinStart;
+
+        nextDeadline += framePeriod;
+    }
+
+    /**
+     * Fast attack, slow decay: one late wake-up raises the margin at once, it then
+     * shrinks back over a few dozen frames.
+     */
+    private void trackOversleep(long over) {
+        if (over > oversleep) {
+            oversleep = over;
+        } else {
+            oversleep += (over - oversleep) / 16;
+        }
+    }
+
+    /**
+     * @return length of one fixed update step in seconds
+     */
+    public float getStepSeconds() {
+        return stepSeconds;
+    }
+
+    /**
+     * @return frames per second the pacer waits for, 0 if it never waits
+     */
+    public double getFrameRate() {
+        return framePeriod > 0 ? 1_000_000_000.0 / framePeriod : 0.0;
+    }
+
+    /**
+     * @return number of frames started
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return frames whose update steps were clamped to the maximum
+     */
+    public long getClampedFrames() {
+        return clampedFrames;
+    }
+
+    /**
+     * @return update steps dropped by clamping
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    /**
+     * @return frames that finished after their deadline
+     */
+    public long getLateFrames() {
+        return lateFrames;
+    }
+
+    /**
+     * @return total nanoseconds spent parked while waiting
+     */
+    public long getSleepNanos() {
+        return sleepNanos;
+    }
+
+    /**
+     * @return total nanoseconds spent spinning while waiting
+     */
+    public long getSpinNanos() {
+        return spinNanos;
+    }
+
+}
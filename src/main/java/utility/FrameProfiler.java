@@ -0,0 +1,480 @@
+package utility;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import main.Config;
+
+/**
+ * Collects per-phase frame timings of the main loop.
+ * <p>
+ * The loop reports the nanoseconds spent in the update steps, in rendering, in the buffer
+ * swap and in the whole frame; each phase goes into its own {@link LatencyHistogram}. The GPU
+ * time of the render passes can be recorded as further phases, so the log line shows
+ * whether the CPU or the GPU side of rendering is the bottleneck.
+ * On top of that the profiler counts dropped frames (frames longer than
+ * {@link #DROPPED_FRAME_FACTOR} times the frame budget) and keeps a histogram of how many
+ * fixed update steps each frame ran, which shows when the accumulator starts to spiral.
+ * Recording never allocates or locks.
+ * </p>
+ * <p>
+ * The numbers are published three ways: the last {@link #HISTORY_SIZE} frame times for the
+ * on-screen overlay, a log line every {@code statsLogInterval} seconds (which also reports
+ * the GC activity and, with a {@link FramePacer} attached, the pacing of the interval) and
+ * the {@link FrameProfilerMXBean} under {@link #OBJECT_NAME}. Percentiles describe the current log interval; the histograms are
+ * reset after each log line.
+ * </p>
+ */
+public class FrameProfiler implements FrameProfilerMXBean {
+
+    public static final int UPDATE = 0;
+    public static final int RENDER = 1;
+    public static final int SWAP = 2;
+    public static final int FRAME = 3;
+    /** GPU time of the layer and fade passes, measured with timer queries if supported. */
+    public static final int GPU_LAYERS = 4;
+    public static final int GPU_FADE = 5;
+    private static final String[] PHASE_NAMES = {"update", "render", "swap", "frame", "gpuLayers", "gpuFade"};
+
+    public static final String OBJECT_NAME = "audiovis:type=FrameProfiler";
+
+    /** Number of frame times kept for the overlay. */
+    public static final int HISTORY_SIZE = 240;
+
+    /** Update step counts above this value share the last histogram bucket. */
+    public static final int MAX_TRACKED_STEPS = 16;
+
+    /** A frame taking longer than this many frame budgets counts as dropped. */
+    private static final double DROPPED_FRAME_FACTOR = 1.5;
+
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASE_NAMES.length];
+    private final AtomicLongArray stepCounts = new AtomicLongArray(MAX_TRACKED_STEPS + 1);
+
+    private final long frameBudgetNanos;
+    private final long droppedThresholdNanos;
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong maxSteps = new AtomicLong();
+
+    /** Ring of recent frame times in milliseconds, written by the main loop only. */
+    private final float[] frameHistory = new float[HISTORY_SIZE];
+    private int historyPos = 0;
+
+    /** Sprites submitted and culled: sums over the log interval and the last frame's values. */
+    private long intervalDrawnSprites;
+    private long intervalCulledSprites;
+    private long spriteFrames;
+    private volatile int lastDrawnSprites;
+    private volatile int lastCulledSprites;
+
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private long lastGcCount;
+    private long lastGcTime;
+    /** Dropped frames at the last log line; the line shows the delta, the MBean the total. */
+    private long lastDroppedFrames;
+
+    /** Pacing statistics included in the log line and MBean, or null. */
+    private FramePacer pacer;
+    private long lastLateFrames;
+    private long lastDroppedSteps;
+    private long lastSleepNanos;
+    private long lastSpinNanos;
+    private long lastPacedFrames;
+
+    private final long logIntervalNanos;
+    private long nextLogNanos;
+    private final StringBuilder logLine = new StringBuilder(256);
+
+    /**
+     * Creates a profiler with the log interval from the configuration.
+     *
+     * @param cfg        global configuration object
+     * @param frameRate  rate frames are shown at, see {@link FramePacer#shownFrameRate}
+     */
+    public FrameProfiler(Config cfg, double frameRate) {
+        this((float) frameRate, cfg.statsLogInterval);
+    }
+
+    /**
+     * Creates a profiler.
+     *
+     * @param targetFps    frame rate the loop aims for; defines the frame budget
+     * @param logInterval  seconds between log lines, 0 or less to disable logging
+     */
+    public FrameProfiler(float targetFps, float logInterval) {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+        this.frameBudgetNanos = (long) (1_000_000_000.0 / targetFps);
+        this.droppedThresholdNanos = (long) (frameBudgetNanos * DROPPED_FRAME_FACTOR);
+        this.logIntervalNanos = (long) (logInterval * 1_000_000_000.0);
+        this.nextLogNanos = System.nanoTime() + logIntervalNanos;
+        this.lastGcCount = getGcCount();
+        this.lastGcTime = getGcTimeMillis();
+    }
+
+    /**
+     * Records the time spent in one phase of the current frame.
+     *
+     * @param phase  {@link #UPDATE}, {@link #RENDER}, {@link #SWAP}, {@link #GPU_LAYERS} or {@link #GPU_FADE}
+     * @param nanos  duration in nanoseconds
+     */
+    public void record(int phase, long nanos) {
+        phases[phase].record(nanos);
+    }
+
+    /**
+     * Records how many sprites the frame submitted and how many culling rejected.
+     *
+     * @param drawn   sprites submitted to the GPU
+     * @param culled  sprites skipped before submission
+     */
+    public void recordSprites(int drawn, int culled) {
+        intervalDrawnSprites += drawn;
+        intervalCulledSprites += culled;
+        spriteFrames++;
+        lastDrawnSprites = drawn;
+        lastCulledSprites = culled;
+    }
+
+    /**
+     * Completes a frame. Called once per loop iteration after the buffer swap; writes the
+     * log line when the interval has passed.
+     *
+     * @param frameNanos   duration of the whole frame in nanoseconds
+     * @param updateSteps  number of fixed update steps the frame ran
+     */
+    public void endFrame(long frameNanos, int updateSteps) {
+        phases[FRAME].record(frameNanos);
+        frames.incrementAndGet();
+        if (frameNanos > droppedThresholdNanos) {
+            droppedFrames.incrementAndGet();
+        }
+
+        stepCounts.incrementAndGet(Math.min(updateSteps, MAX_TRACKED_STEPS));
+        long max = maxSteps.get();
+        while (updateSteps > max && !maxSteps.compareAndSet(max, updateSteps)) {
+            max = maxSteps.get();
+        }
+
+        frameHistory[historyPos] = frameNanos / 1_000_000.0f;
+        historyPos = (historyPos + 1) % HISTORY_SIZE;
+
+        if (logIntervalNanos > 0) {
+            long now = System.nanoTime();
+            if (now >= nextLogNanos) {
+                log();
+                nextLogNanos = now + logIntervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Prints the statistics of the current interval and starts a new one.
+     */
+    private void log() {
+        long gcCount = getGcCount();
+        long gcTime = getGcTimeMillis();
+
+        logLine.setLength(0);
+        logLine.append("[frame] n=").append(phases[FRAME].getCount());
+        for (int p = 0; p < phases.length; p++) {
+            LatencyHistogram h = phases[p];
+            // GPU phases stay empty without timer queries
+            if (p >= GPU_LAYERS && h.getCount() == 0) continue;
+            logLine.append(' ').append(PHASE_NAMES[p]).append(" p50/p99/p99.9/max=");
+            appendMillis(h.getValueAtPercentile(50.0)).append('/');
+            appendMillis(h.getValueAtPercentile(99.0)).append('/');
+            appendMillis(h.getValueAtPercentile(99.9)).append('/');
+            appendMillis(h.getMax()).append("ms");
+        }
+        long dropped = droppedFrames.get();
+        logLine.append(" dropped=").append(dropped - lastDroppedFrames);
+        logLine.append(" steps=");
+        for (int s = 0; s <= MAX_TRACKED_STEPS; s++) {
+            long count = stepCounts.get(s);
+            if (count == 0) continue;
+            logLine.append(s).append(s == MAX_TRACKED_STEPS ? "+:" : ":").append(count).append(' ');
+        }
+        if (spriteFrames > 0) {
+            logLine.append("sprites drawn/culled=").append(intervalDrawnSprites / spriteFrames)
+                    .append('/').append(intervalCulledSprites / spriteFrames).append(' ');
+        }
+        logLine.append("gc=").append(gcCount - lastGcCount)
+                .append('/').append(gcTime - lastGcTime).append("ms");
+        if (pacer != null) {
+            long paced = Math.max(1L, pacer.getFrames() - lastPacedFrames);
+            logLine.append(" pacing late=").append(pacer.getLateFrames() - lastLateFrames)
+                    .append(" droppedSteps=").append(pacer.getDroppedSteps() - lastDroppedSteps)
+                    .append(" sleep/spin=");
+            appendMillis((pacer.getSleepNanos() - lastSleepNanos) / paced).append('/');
+            appendMillis((pacer.getSpinNanos() - lastSpinNanos) / paced).append("ms");
+            lastPacedFrames = pacer.getFrames();
+            lastLateFrames = pacer.getLateFrames();
+            lastDroppedSteps = pacer.getDroppedSteps();
+            lastSleepNanos = pacer.getSleepNanos();
+            lastSpinNanos = pacer.getSpinNanos();
+        }
+        System.out.println(logLine);
+
+        lastGcCount = gcCount;
+        lastGcTime = gcTime;
+        lastDroppedFrames = dropped;
+        intervalDrawnSprites = 0;
+        intervalCulledSprites = 0;
+        spriteFrames = 0;
+        for (LatencyHistogram h : phases) {
+            h.reset();
+        }
+        for (int s = 0; s <= MAX_TRACKED_STEPS; s++) {
+            stepCounts.set(s, 0L);
+        }
+    }
+
+    private StringBuilder appendMillis(long nanos) {
+        long hundredths = (nanos + 5_000) / 10_000;
+        logLine.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) logLine.append('0');
+        return logLine.append(fraction);
+    }
+
+    /**
+     * Includes the statistics of a frame pacer in the log line and the MBean.
+     *
+     * @param pacer  the pacer of the main loop
+     */
+    public void setPacer(FramePacer pacer) {
+        this.pacer = pacer;
+    }
+
+    /**
+     * Registers the profiler with the platform MBean server. Failures are reported
+     * and otherwise ignored, the profiler keeps working without JMX.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Failed to register frame profiler MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the MBean registered by {@link #registerMBean()}.
+     */
+    public void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            System.err.println("Failed to unregister frame profiler MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param phase  one of the phase constants, e.g. {@link #FRAME}
+     * @return       the histogram of the phase in the current interval
+     */
+    public LatencyHistogram getHistogram(int phase) {
+        return phases[phase];
+    }
+
+    /**
+     * @param steps  number of update steps, values above {@link #MAX_TRACKED_STEPS} share a bucket
+     * @return       frames in the current interval that ran this many update steps
+     */
+    public long getStepCount(int steps) {
+        return stepCounts.get(Math.min(steps, MAX_TRACKED_STEPS));
+    }
+
+    /**
+     * Returns a recent frame time.
+     *
+     * @param age  0 for the newest frame, up to {@link #HISTORY_SIZE} - 1
+     * @return     the frame time in milliseconds, 0 for frames not yet recorded
+     */
+    public float getRecentFrameTime(int age) {
+        return frameHistory[(historyPos - 1 - age + 2 * HISTORY_SIZE) % HISTORY_SIZE];
+    }
+
+    /**
+     * @return the frame budget in milliseconds
+     */
+    public float getFrameBudgetMillis() {
+        return frameBudgetNanos / 1_000_000.0f;
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    @Override
+    public long getMaxUpdateStepsPerFrame() {
+        return maxSteps.get();
+    }
+
+    @Override
+    public double getFrameP50Micros() {
+        return micros(FRAME, 50.0);
+    }
+
+    @Override
+    public double getFrameP99Micros() {
+        return micros(FRAME, 99.0);
+    }
+
+    @Override
+    public double getFrameP999Micros() {
+        return micros(FRAME, 99.9);
+    }
+
+    @Override
+    public double getUpdateP50Micros() {
+        return micros(UPDATE, 50.0);
+    }
+
+    @Override
+    public double getUpdateP99Micros() {
+        return micros(UPDATE, 99.0);
+    }
+
+    @Override
+    public double getUpdateP999Micros() {
+        return micros(UPDATE, 99.9);
+    }
+
+    @Override
+    public double getRenderP50Micros() {
+        return micros(RENDER, 50.0);
+    }
+
+    @Override
+    public double getRenderP99Micros() {
+        return micros(RENDER, 99.0);
+    }
+
+    @Override
+    public double getRenderP999Micros() {
+        return micros(RENDER, 99.9);
+    }
+
+    @Override
+    public double getSwapP50Micros() {
+        return micros(SWAP, 50.0);
+    }
+
+    @Override
+    public double getSwapP99Micros() {
+        return micros(SWAP, 99.0);
+    }
+
+    @Override
+    public double getSwapP999Micros() {
+        return micros(SWAP, 99.9);
+    }
+
+    @Override
+    public double getGpuLayersP50Micros() {
+        return micros(GPU_LAYERS, 50.0);
+    }
+
+    @Override
+    public double getGpuLayersP99Micros() {
+        return micros(GPU_LAYERS, 99.0);
+    }
+
+    @Override
+    public double getGpuFadeP50Micros() {
+        return micros(GPU_FADE, 50.0);
+    }
+
+    @Override
+    public double getGpuFadeP99Micros() {
+        return micros(GPU_FADE, 99.0);
+    }
+
+    @Override
+    public int getDrawnSprites() {
+        return lastDrawnSprites;
+    }
+
+    @Override
+    public int getCulledSprites() {
+        return lastCulledSprites;
+    }
+
+    @Override
+    public long getGcCount() {
+        long total = 0;
+        for (int i = 0; i < gcBeans.size(); i++) {
+            total += Math.max(0L, gcBeans.get(i).getCollectionCount());
+        }
+        return total;
+    }
+
+    @Override
+    public long getGcTimeMillis() {
+        long total = 0;
+        for (int i = 0; i < gcBeans.size(); i++) {
+            total += Math.max(0L, gcBeans.get(i).getCollectionTime());
+        }
+        return total;
+    }
+
+    @Override
+    public double getPacingFrameRate() {
+        return pacer != null ? pacer.getFrameRate() : 0.0;
+    }
+
+    @Override
+    public long getClampedFrames() {
+        return pacer != null ? pacer.getClampedFrames() : 0L;
+    }
+
+    @Override
+    public long getDroppedUpdateSteps() {
+        return pacer != null ? pacer.getDroppedSteps() : 0L;
+    }
+
+    @Override
+    public long getLateFrames() {
+        return pacer != null ? pacer.getLateFrames() : 0L;
+    }
+
+    @Override
+    public double getAverageSleepMicros() {
+        return pacer != null && pacer.getFrames() > 0 ? pacer.getSleepNanos() / 1000.0 / pacer.getFrames() : 0.0;
+    }
+
+    @Override
+    public double getAverageSpinMicros() {
+        return pacer != null && pacer.getFrames() > 0 ? pacer.getSpinNanos() / 1000.0 / pacer.getFrames() : 0.0;
+    }
+
+    private double micros(int phase, double percentile) {
+        return phases[phase].getValueAtPercentile(percentile) / 1000.0;
+    }
+
+}
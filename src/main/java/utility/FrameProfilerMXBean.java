@@ -0,0 +1,69 @@
+package utility;
+
+/**
+ * JMX view of the {@link FrameProfiler}. Percentiles cover the current reporting
+ * interval and are given in microseconds; counters are totals since start.
+ * The pacing values stay 0 unless a {@link FramePacer} is attached, the GPU values
+ * stay 0 without timer query support.
+ */
+public interface FrameProfilerMXBean {
+
+    long getFrameCount();
+
+    long getDroppedFrames();
+
+    long getMaxUpdateStepsPerFrame();
+
+    double getFrameP50Micros();
+
+    double getFrameP99Micros();
+
+    double getFrameP999Micros();
+
+    double getUpdateP50Micros();
+
+    double getUpdateP99Micros();
+
+    double getUpdateP999Micros();
+
+    double getRenderP50Micros();
+
+    double getRenderP99Micros();
+
+    double getRenderP999Micros();
+
+    double getSwapP50Micros();
+
+    double getSwapP99Micros();
+
+    double getSwapP999Micros();
+
+    double getGpuLayersP50Micros();
+
+    double getGpuLayersP99Micros();
+
+    double getGpuFadeP50Micros();
+
+    double getGpuFadeP99Micros();
+
+    int getDrawnSprites();
+
+    int getCulledSprites();
+
+    long getGcCount();
+
+    long getGcTimeMillis();
+
+    double getPacingFrameRate();
+
+    long getClampedFrames();
+
+    long getDroppedUpdateSteps();
+
+    long getLateFrames();
+
+    double getAverageSleepMicros();
+
+    double getAverageSpinMicros();
+
+}
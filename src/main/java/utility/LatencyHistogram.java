@@ -0,0 +1,119 @@
+package utility;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, allocation-free histogram of nanosecond durations with
+ * HDR-style log-linear buckets.
+ * <p>
+ * Values below {@code 2^SUB_BUCKET_BITS} get one bucket each; above that, every
+ * power of two is split into {@code 2^SUB_BUCKET_BITS} equal sub-buckets, which keeps
+ * the relative error below 1/64 (about 1.6 %) over the whole range up to
+ * {@code 2^MAX_EXPONENT} ns (roughly 18 minutes). Recording is a single atomic
+ * increment and may happen from any thread; percentile queries may run concurrently
+ * and see a consistent-enough view for monitoring.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos  duration in nanoseconds; negative values count as 0, huge values are clamped
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Returns the recorded value at the given percentile, with the bucket resolution
+     * described in the class comment.
+     *
+     * @param percentile  percentile in [0,100]
+     * @return            the value in nanoseconds, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) return 0L;
+
+        long target = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(representativeValue(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return largest recorded value in nanoseconds
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Discards all recorded values. Values recorded concurrently may be lost.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0L);
+        }
+        totalCount.set(0L);
+        maxValue.set(0L);
+    }
+
+    /**
+     * Maps a value to its bucket.
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int group = exponent - SUB_BUCKET_BITS + 1;
+        int mantissa = (int) (value >>> (group - 1));
+        return group * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the middle of the value range covered by a bucket.
+     */
+    static long representativeValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int group = index / SUB_BUCKETS;
+        long mantissa = (index % SUB_BUCKETS) + SUB_BUCKETS;
+        long lowest = mantissa << (group - 1);
+        long width = 1L << (group - 1);
+        return lowest + width / 2;
+    }
+
+}
@@ -0,0 +1,51 @@
+package utility;
+
+/**
+ * Clock that only moves when told to, by a fixed step per frame.
+ * <p>
+ * The time is derived from the frame count rather than summed up, so it carries no
+ * accumulated rounding error: frame {@code n} is always at {@code n * step} seconds.
+ * </p>
+ */
+public class SimulatedClock implements Clock {
+
+    private final double stepSeconds;
+    private long frame = 0;
+
+    /**
+     * @param stepSeconds  seconds per {@link #advance()}
+     */
+    public SimulatedClock(double stepSeconds) {
+        if (!(stepSeconds > 0.0)) {
+            throw new IllegalArgumentException("Step must be positive: " + stepSeconds);
+        }
+        this.stepSeconds = stepSeconds;
+    }
+
+    /**
+     * Moves the clock one step forward.
+     */
+    public void advance() {
+        frame++;
+    }
+
+    @Override
+    public double seconds() {
+        return frame * stepSeconds;
+    }
+
+    /**
+     * @return number of steps taken so far
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return seconds per step
+     */
+    public double getStepSeconds() {
+        return stepSeconds;
+    }
+
+}
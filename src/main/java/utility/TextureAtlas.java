@@ -0,0 +1,67 @@
+package utility;
+
+/**
+ * A GL texture holding several images, built by {@link Utils#loadTextureAtlas(String)}.
+ * Images are identified by index, in file name order; each has a UV rectangle
+ * {u, v, width, height} that maps the unit quad onto its part of the texture.
+ */
+public class TextureAtlas {
+
+    private final int textureId;
+    private final String[] names;
+    private final float[] uvRects;
+
+    /**
+     * @param textureId  the GL texture
+     * @param names      file names of the images, without directory
+     * @param uvRects    four floats per image: u, v, width, height
+     */
+    public TextureAtlas(int textureId, String[] names, float[] uvRects) {
+        this.textureId = textureId;
+        this.names = names;
+        this.uvRects = uvRects;
+    }
+
+    /**
+     * @return the GL texture
+     */
+    public int getTextureId() {
+        return textureId;
+    }
+
+    /**
+     * @return number of images
+     */
+    public int getImageCount() {
+        return names.length;
+    }
+
+    /**
+     * @return file name of the image
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Finds an image by file name. A path is reduced to its file name first.
+     *
+     * @param name  file name or path, e.g. {@code "src/main/res/galaxy.png"}
+     * @return      the image index, or -1 if the atlas has no such image
+     */
+    public int indexOf(String name) {
+        String file = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(file)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return four floats per image: u, v, width, height; must not be modified
+     */
+    public float[] getUvRects() {
+        return uvRects;
+    }
+
+}
@@ -1,23 +1,34 @@
 package utility;
 
-import static org.lwjgl.glfw.GLFW.glfwGetTime;
-
 /**
  * Simple timer utility for checking elapsed time.
  */
 public class Timer {
+    private final Clock clock;
     private double startTime;
     private final double duration;
     private boolean triggered;
 
     /**
-     * Creates a timer with a given duration.
+     * Creates a timer with a given duration, measured with the GLFW clock.
      *
      * @param durationInSeconds The duration in seconds.
      */
     public Timer(double durationInSeconds) {
+        this(durationInSeconds, Clock.glfw());
+    }
+
+    /**
+     * Creates a timer with a given duration, measured with the given clock.
+     * Lets the timer run without a GLFW context, e.g. in benchmarks, or on simulated time.
+     *
+     * @param durationInSeconds The duration in seconds.
+     * @param clock             Supplies the current time in seconds.
+     */
+    public Timer(double durationInSeconds, Clock clock) {
+        this.clock = clock;
         this.duration = durationInSeconds;
-        this.startTime = glfwGetTime();
+        this.startTime = clock.seconds();
         this.triggered = false;
     }
 
@@ -27,14 +38,14 @@ public class Timer {
      * @return True if the duration has passed and it hasn't been marked as triggered yet.
      */
     public boolean isElapsed() {
-        return !triggered && glfwGetTime() - startTime >= duration;
+        return !triggered && clock.seconds() - startTime >= duration;
     }
 
     /**
      * Resets the timer to start from the current time again.
      */
     public void reset() {
-        this.startTime = glfwGetTime();
+        this.startTime = clock.seconds();
         this.triggered = false;
     }
 
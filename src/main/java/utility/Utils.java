@@ -1,6 +1,7 @@
 package utility;
 
 import static org.lwjgl.opengl.GL11.GL_LINEAR;
+import static org.lwjgl.opengl.GL11.GL_MAX_TEXTURE_SIZE;
 import static org.lwjgl.opengl.GL11.GL_LINEAR_MIPMAP_LINEAR;
 import static org.lwjgl.opengl.GL11.GL_RGBA;
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
@@ -12,24 +13,37 @@ import static org.lwjgl.opengl.GL11.GL_UNPACK_ALIGNMENT;
 import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
 import static org.lwjgl.opengl.GL11.glBindTexture;
 import static org.lwjgl.opengl.GL11.glGenTextures;
+import static org.lwjgl.opengl.GL11.glGetInteger;
 import static org.lwjgl.opengl.GL11.glPixelStorei;
 import static org.lwjgl.opengl.GL11.glTexImage2D;
 import static org.lwjgl.opengl.GL11.glTexParameteri;
 import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
 import static org.lwjgl.opengl.GL30.glGenerateMipmap;
 import static org.lwjgl.system.MemoryStack.stackPush;
 
+import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.lwjgl.stb.STBImage;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
 
 /**
- * Utility functions for loading OpenGL textures using STBImage.
+ * Utility functions for loading OpenGL textures and texture atlases using STBImage.
  */
 public class Utils {
 
+    /** Gutter around every atlas image in texels; also bounds the mip levels of the atlas. */
+    public static final int ATLAS_PADDING = 8;
+
+    /** Atlases built so far, by directory. */
+    private static final Map<String, TextureAtlas> atlases = new HashMap<>();
+
     /**
      * Loads a PNG file using STBImage and creates an OpenGL texture.
      * Texture is configured with linear filtering and mipmaps.
@@ -75,4 +89,92 @@ public class Utils {
         return texId;
 	}
 
+    /**
+     * Packs every PNG file of a directory into one mipmapped texture. The result is cached,
+     * so later calls for the same directory return the same atlas.
+     * <p>
+     * Images are placed with {@link AtlasLayout} in file name order and surrounded by a
+     * gutter of {@link #ATLAS_PADDING} edge texels. Mipmaps stop at the level where the
+     * gutter shrinks to one texel, so neighbouring images never bleed into each other.
+     * </p>
+     *
+     * @param directory  directory holding the PNG files
+     * @return           the atlas texture and the UV rectangle of every image
+     */
+    public static TextureAtlas loadTextureAtlas(String directory) {
+        TextureAtlas cached = atlases.get(directory);
+        if(cached != null) return cached;
+
+        File[] files = listTextures(directory);
+        int n = files.length;
+        String[] names = new String[n];
+        ByteBuffer[] images = new ByteBuffer[n];
+        int[] widths = new int[n];
+        int[] heights = new int[n];
+        ByteBuffer pixels = null;
+        try (MemoryStack stack = stackPush()) {
+            IntBuffer width  = stack.mallocInt(1);
+            IntBuffer height = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+
+            // Bild vertikal spiegeln (damit die Textur richtig angezeigt wird)
+            STBImage.stbi_set_flip_vertically_on_load(true);
+            for(int i = 0; i < n; i++) {
+                names[i] = files[i].getName();
+                images[i] = STBImage.stbi_load(files[i].getPath(), width, height, channels, 4);
+                if(images[i] == null) {
+                    throw new RuntimeException("Failed to load texture file " + names[i] + ": "
+                            + STBImage.stbi_failure_reason());
+                }
+                widths[i] = width.get(0);
+                heights[i] = height.get(0);
+            }
+
+            AtlasLayout layout = AtlasLayout.pack(widths, heights, ATLAS_PADDING, glGetInteger(GL_MAX_TEXTURE_SIZE));
+            pixels = MemoryUtil.memCalloc(layout.getWidth() * layout.getHeight() * 4);
+            for(int i = 0; i < n; i++) {
+                layout.copyImage(i, images[i], pixels);
+            }
+
+            int texId = glGenTextures();
+            glBindTexture(GL_TEXTURE_2D, texId);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+            // Mipmaps nur so weit, wie der Rand um jedes Bild reicht
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, Integer.numberOfTrailingZeros(Integer.highestOneBit(ATLAS_PADDING)));
+
+            glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, layout.getWidth(), layout.getHeight(),
+                    0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+            glGenerateMipmap(GL_TEXTURE_2D);
+
+            TextureAtlas atlas = new TextureAtlas(texId, names, layout.getUvRects());
+            atlases.put(directory, atlas);
+            return atlas;
+        } finally {
+            for(ByteBuffer image : images) {
+                if(image != null) STBImage.stbi_image_free(image);
+            }
+            if(pixels != null) MemoryUtil.memFree(pixels);
+        }
+    }
+
+    /**
+     * Lists the PNG files of a directory in file name order, the order atlases pack them in.
+     *
+     * @param directory  directory holding the PNG files
+     * @return           the files, never empty
+     */
+    public static File[] listTextures(String directory) {
+        File[] files = new File(directory).listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
+        if(files == null || files.length == 0) {
+            throw new RuntimeException("No PNG files found in " + directory);
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
 }
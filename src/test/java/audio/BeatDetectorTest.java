@@ -0,0 +1,61 @@
+package audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs {@link BeatDetector} on synthetic band data and on the full audio pipeline.
+ */
+public class BeatDetectorTest {
+
+    private static final float STEP = 1.0f / 120.0f;
+
+    @Test
+    public void detectsPulsesAndTheirTempo() {
+        BeatDetector detector = new BeatDetector(4, 1.5f, 60, 0.25f);
+        float[] bands = new float[4];
+
+        int beats = 0;
+        int stepsPerBeat = 60; // 120 BPM at 120 updates per second
+        for (int step = 0; step < 120 * 20; step++) {
+            float level = (step % stepsPerBeat < 6) ? 0.8f : 0.01f;
+            // A little noise so the threshold history is not flat
+            float noise = 0.005f * (float) Math.sin(step * 1.7);
+            for (int b = 0; b < bands.length; b++) bands[b] = level + noise;
+
+            if (detector.process(bands, STEP)) {
+                beats++;
+                assertEquals(0, step % stepsPerBeat, "beat reported late at step " + step);
+            }
+        }
+
+        assertTrue(beats >= 38, "beats detected: " + beats);
+        assertEquals(120.0f, detector.getBpm(), 1.0f);
+    }
+
+    @Test
+    public void staysQuietOnSteadyInput() {
+        BeatDetector detector = new BeatDetector(4, 1.5f, 60, 0.25f);
+        float[] bands = {0.3f, 0.3f, 0.3f, 0.3f};
+        for (int step = 0; step < 600; step++) {
+            assertFalse(detector.process(bands, STEP));
+        }
+        assertEquals(0, detector.getBeatCount());
+    }
+
+    @Test
+    public void followsSyntheticSourceThroughThePipeline() {
+        SyntheticSource source = new SyntheticSource(48000.0f, 100.0f);
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(2048, 48000.0f, 16, 40.0f, 16000.0f);
+        try (AudioPipeline pipeline = new AudioPipeline(source, analyzer, new BeatDetector(16, 1.5f, 60, 0.25f))) {
+            pipeline.start();
+            for (int step = 0; step < 120 * 30; step++) {
+                pipeline.update(STEP);
+            }
+            assertEquals(100.0f, pipeline.getBeatDetector().getBpm(), 2.0f);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Reads generated WAV files through {@link FileSource}.
+ */
+public class FileSourceTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Writes a 16-bit stereo WAV whose left channel holds the frame index and whose
+     * right channel is silent, so the mono down-mix equals index / 2.
+     */
+    private Path writeRampWav(int frames) throws IOException {
+        ByteBuffer wav = ByteBuffer.allocate(44 + frames * 4).order(ByteOrder.LITTLE_ENDIAN);
+        wav.putInt(0x46464952).putInt(36 + frames * 4).putInt(0x45564157);
+        wav.putInt(0x20746D66).putInt(16)
+                .putShort((short) 1).putShort((short) 2).putInt(48000).putInt(48000 * 4)
+                .putShort((short) 4).putShort((short) 16);
+        wav.putInt(0x61746164).putInt(frames * 4);
+        for (int i = 0; i < frames; i++) {
+            wav.putShort((short) i).putShort((short) 0);
+        }
+        Path file = dir.resolve("ramp.wav");
+        Files.write(file, wav.array());
+        return file;
+    }
+
+    private static float expected(int frame) {
+        return frame / 32768.0f / 2.0f;
+    }
+
+    @Test
+    public void decodesAcrossMappingWindows() throws IOException {
+        // 64-byte windows force a remap every 16 frames
+        try (FileSource source = new FileSource(writeRampWav(100), false, 64)) {
+            source.start();
+            assertEquals(48000.0f, source.getSampleRate());
+            assertEquals(100, source.getFrameCount());
+
+            float[] out = new float[128];
+            assertEquals(100, source.read(out, 0, out.length));
+            for (int i = 0; i < 100; i++) {
+                assertEquals(expected(i), out[i], 1e-7f);
+            }
+            assertEquals(0, source.read(out, 0, out.length));
+        }
+    }
+
+    @Test
+    public void seeksAndLoops() throws IOException {
+        try (FileSource source = new FileSource(writeRampWav(50), true)) {
+            source.start();
+            source.seekFrame(45);
+
+            float[] out = new float[10];
+            assertEquals(10, source.read(out, 0, out.length));
+            assertEquals(expected(45), out[0], 1e-7f);
+            assertEquals(expected(49), out[4], 1e-7f);
+            assertEquals(expected(0), out[5], 1e-7f);
+            assertEquals(expected(4), out[9], 1e-7f);
+            assertEquals(5, source.getPosition());
+        }
+    }
+
+    @Test
+    public void readsRawFloatPcm() throws IOException {
+        ByteBuffer pcm = ByteBuffer.allocate(3 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        pcm.putFloat(0.25f).putFloat(-0.5f).putFloat(1.0f);
+        Path file = dir.resolve("mono.f32");
+        Files.write(file, pcm.array());
+
+        try (FileSource source = new FileSource(file, false, 44100.0f, 1, 32, true)) {
+            source.start();
+            float[] out = new float[3];
+            assertEquals(3, source.read(out, 0, 3));
+            assertEquals(0.25f, out[0]);
+            assertEquals(-0.5f, out[1]);
+            assertEquals(1.0f, out[2]);
+        }
+    }
+
+    @Test
+    public void rejectsUnsupportedBitDepthAsIoError() throws IOException {
+        Path file = writeRampWav(10);
+        byte[] bytes = Files.readAllBytes(file);
+        // bits per sample of the fmt chunk: 12 instead of 16
+        bytes[34] = 12;
+        Files.write(file, bytes);
+
+        assertThrows(UncheckedIOException.class, () -> new FileSource(file, false));
+    }
+}
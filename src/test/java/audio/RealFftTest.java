@@ -0,0 +1,48 @@
+package audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks {@link RealFft} against a direct DFT.
+ */
+public class RealFftTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {4, 8, 64, 1024})
+    public void matchesDirectDft(int size) {
+        Random random = new Random(42);
+        float[] input = new float[size];
+        for (int i = 0; i < size; i++) {
+            input[i] = random.nextFloat() * 2.0f - 1.0f;
+        }
+
+        RealFft fft = new RealFft(size);
+        float[] re = new float[fft.getBinCount()];
+        float[] im = new float[fft.getBinCount()];
+        fft.transform(input, re, im);
+
+        for (int k = 0; k < fft.getBinCount(); k++) {
+            double expectedRe = 0.0, expectedIm = 0.0;
+            for (int n = 0; n < size; n++) {
+                double phi = 2.0 * Math.PI * k * n / size;
+                expectedRe += input[n] * Math.cos(phi);
+                expectedIm -= input[n] * Math.sin(phi);
+            }
+            assertEquals(expectedRe, re[k], 1e-3 * size, "re[" + k + "]");
+            assertEquals(expectedIm, im[k], 1e-3 * size, "im[" + k + "]");
+        }
+    }
+
+    @Test
+    public void rejectsSizesThatAreNotPowersOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RealFft(1000));
+        assertThrows(IllegalArgumentException.class, () -> new RealFft(2));
+    }
+}
@@ -0,0 +1,69 @@
+package audio;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one render frame of spectrum analysis: 48 kHz input at 120 fps means
+ * 400 new samples and one FFT per frame, i.e. a budget of roughly 8 ms per call
+ * on one core. Run with {@code mvn -Pbenchmark test-compile exec:exec}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpectrumAnalyzerBenchmark {
+
+    private static final float SAMPLE_RATE = 48000.0f;
+    private static final int SAMPLES_PER_FRAME = (int) (SAMPLE_RATE / 120.0f);
+
+    @Param({"1024", "2048", "4096"})
+    public int fftSize;
+
+    private SpectrumAnalyzer analyzer;
+    private RealFft fft;
+    private float[] block;
+    private float[] frame;
+    private float[] re;
+    private float[] im;
+
+    @Setup
+    public void setup() {
+        analyzer = new SpectrumAnalyzer(fftSize, SAMPLE_RATE, 16, 40.0f, 16000.0f);
+        fft = new RealFft(fftSize);
+
+        block = new float[SAMPLES_PER_FRAME];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = (float) Math.sin(2.0 * Math.PI * 440.0 * i / SAMPLE_RATE);
+        }
+        frame = new float[fftSize];
+        System.arraycopy(block, 0, frame, 0, Math.min(block.length, fftSize));
+        re = new float[fft.getBinCount()];
+        im = new float[fft.getBinCount()];
+    }
+
+    @Benchmark
+    public float[] frameAnalysis() {
+        analyzer.write(block, 0, block.length);
+        return analyzer.analyze();
+    }
+
+    @Benchmark
+    public float[] realFftOnly() {
+        fft.transform(frame, re, im);
+        return re;
+    }
+}
@@ -0,0 +1,68 @@
+package audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Feeds synthetic sine inputs through {@link SpectrumAnalyzer}.
+ */
+public class SpectrumAnalyzerTest {
+
+    private static final int FFT_SIZE = 2048;
+    private static final float SAMPLE_RATE = 48000.0f;
+
+    private static float[] sine(float frequency, float amplitude, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = amplitude * (float) Math.sin(2.0 * Math.PI * frequency * i / SAMPLE_RATE);
+        }
+        return samples;
+    }
+
+    @Test
+    public void binCenteredSinePeaksAtItsAmplitude() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(FFT_SIZE, SAMPLE_RATE, 16, 40.0f, 16000.0f);
+        int bin = 100;
+        analyzer.write(sine(analyzer.getBinFrequency(bin), 0.5f, FFT_SIZE), 0, FFT_SIZE);
+        analyzer.analyze();
+
+        float[] magnitudes = analyzer.getMagnitudes();
+        assertEquals(0.5f, magnitudes[bin], 0.01f);
+        assertTrue(magnitudes[bin + 5] < 0.001f);
+    }
+
+    @Test
+    public void sineEnergyLandsInItsBand() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(FFT_SIZE, SAMPLE_RATE, 16, 40.0f, 16000.0f);
+
+        for (float frequency : new float[]{440.0f, 1000.0f, 5000.0f, 12000.0f}) {
+            // Feed in small chunks, like one render frame at a time, so the history ring wraps
+            float[] samples = sine(frequency, 1.0f, 3 * FFT_SIZE);
+            for (int offset = 0; offset < samples.length; offset += 400) {
+                analyzer.write(samples, offset, Math.min(400, samples.length - offset));
+            }
+            float[] bands = analyzer.analyze();
+
+            int expected = -1;
+            int loudest = 0;
+            for (int b = 0; b < bands.length; b++) {
+                float low = analyzer.getBinFrequency(analyzer.getBandStartBin(b));
+                float high = analyzer.getBinFrequency(analyzer.getBandEndBin(b));
+                if (expected < 0 && frequency >= low && frequency < high) expected = b;
+                if (bands[b] > bands[loudest]) loudest = b;
+            }
+            assertEquals(expected, loudest, frequency + " Hz");
+        }
+    }
+
+    @Test
+    public void silenceYieldsZeroBands() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(FFT_SIZE, SAMPLE_RATE, 16, 40.0f, 16000.0f);
+        analyzer.write(new float[FFT_SIZE], 0, FFT_SIZE);
+        for (float band : analyzer.analyze()) {
+            assertEquals(0.0f, band, 1e-6f);
+        }
+    }
+}
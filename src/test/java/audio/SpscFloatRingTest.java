@@ -0,0 +1,63 @@
+package audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link SpscFloatRing}.
+ */
+public class SpscFloatRingTest {
+
+    @Test
+    public void wrapsAroundAndRejectsOverflow() {
+        SpscFloatRing ring = new SpscFloatRing(6);
+        assertEquals(8, ring.capacity());
+
+        float[] in = {1, 2, 3, 4, 5, 6};
+        float[] out = new float[8];
+        assertEquals(6, ring.write(in, 0, 6));
+        assertEquals(4, ring.read(out, 0, 4));
+        // Only 6 slots are free now, the rest is dropped
+        assertEquals(6, ring.write(in, 0, 6));
+        assertEquals(0, ring.write(in, 0, 1));
+
+        assertEquals(8, ring.read(out, 0, 8));
+        assertEquals(5.0f, out[0]);
+        assertEquals(6.0f, out[1]);
+        assertEquals(1.0f, out[2]);
+        assertEquals(6.0f, out[7]);
+        assertEquals(0, ring.read(out, 0, 8));
+    }
+
+    @Test
+    public void deliversSamplesInOrderAcrossThreads() throws InterruptedException {
+        final int total = 1_000_000;
+        SpscFloatRing ring = new SpscFloatRing(1024);
+
+        Thread producer = new Thread(() -> {
+            float[] chunk = new float[100];
+            int next = 0;
+            while (next < total) {
+                int n = Math.min(chunk.length, total - next);
+                for (int i = 0; i < n; i++) chunk[i] = next + i;
+                int written = 0;
+                while (written < n) {
+                    written += ring.write(chunk, written, n - written);
+                }
+                next += n;
+            }
+        });
+        producer.start();
+
+        float[] out = new float[256];
+        int expected = 0;
+        while (expected < total) {
+            int n = ring.read(out, 0, out.length);
+            for (int i = 0; i < n; i++) {
+                assertEquals((float) expected++, out[i]);
+            }
+        }
+        producer.join();
+    }
+}
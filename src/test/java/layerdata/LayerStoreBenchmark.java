@@ -0,0 +1,60 @@
+package layerdata;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Layer creation and removal in a full store, the churn of one spawn per layer
+ * distance, and the {@link Layer} views used by tooling.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=LayerStoreBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayerStoreBenchmark {
+
+    @Param({"100", "1600"})
+    public int layerCount;
+
+    private LayerStore store;
+    private float z;
+
+    @Setup
+    public void setup() {
+        store = new LayerStore(layerCount + 1, Layer.createShape());
+        for (int i = 0; i < layerCount; i++) {
+            store.pushFront(i);
+        }
+        z = layerCount;
+    }
+
+    @Benchmark
+    public int spawnAndRemove() {
+        store.popBack();
+        int slot = store.pushFront(z);
+        store.colors()[slot * LayerStore.COLOR_STRIDE + 3] = 1.0f;
+        return slot;
+    }
+
+    @Benchmark
+    public void viewAll(Blackhole bh) {
+        for (int i = 0; i < store.size(); i++) {
+            bh.consume(store.view(i).getZ());
+        }
+    }
+}
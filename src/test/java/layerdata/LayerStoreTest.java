@@ -0,0 +1,85 @@
+package layerdata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the ring-buffer behaviour of {@link LayerStore}.
+ */
+public class LayerStoreTest {
+
+    @Test
+    public void keepsDepthOrderAcrossWrapAround() {
+        LayerStore store = new LayerStore(4, Layer.createShape());
+
+        // Spawn and remove more layers than the capacity so the ring wraps
+        for (int z = 100; z <= 1000; z += 100) {
+            store.pushFront(z);
+            if (store.size() == store.capacity()) {
+                store.popBack();
+            }
+        }
+
+        assertEquals(3, store.size());
+        float[] depths = store.depths();
+        assertEquals(1000.0f, depths[store.slot(0)]);
+        assertEquals(900.0f, depths[store.slot(1)]);
+        assertEquals(800.0f, depths[store.slot(2)]);
+        assertEquals(800.0f, store.backZ());
+    }
+
+    @Test
+    public void viewWritesThroughToColumns() {
+        LayerStore store = new LayerStore(2, Layer.createShape());
+        int slot = store.pushFront(500);
+
+        Layer layer = store.view(0);
+        layer.setColor(new float[]{0.1f, 0.2f, 0.3f, 0.4f});
+        layer.setRotationAngle(45.0f);
+        layer.setZ(250.0f);
+
+        assertEquals(0.3f, store.colors()[slot * LayerStore.COLOR_STRIDE + 2]);
+        assertEquals(45.0f, store.angles()[slot]);
+        assertEquals(250.0f, store.backZ());
+        assertEquals(16, layer.getShape().size());
+    }
+
+    @Test
+    public void rejectsOverflowAndUnderflow() {
+        LayerStore store = new LayerStore(1, Layer.createShape());
+        store.pushFront(100);
+        assertThrows(IllegalStateException.class, () -> store.pushFront(200));
+
+        store.popBack();
+        assertTrue(store.isEmpty());
+        assertThrows(NoSuchElementException.class, store::popBack);
+    }
+    @Test
+    public void copyKeepsSlotsAndSerials() {
+        LayerStore store = new LayerStore(4, Layer.createShape());
+        for (int z = 100; z <= 600; z += 100) {
+            int slot = store.pushFront(z);
+            store.images()[slot] = z / 100;
+            if (store.size() == store.capacity()) store.popBack();
+        }
+
+        LayerStore copy = new LayerStore(4, Layer.createShape());
+        copy.copyFrom(store);
+        assertEquals(store.size(), copy.size());
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals(store.slot(i), copy.slot(i));
+            assertEquals(store.depths()[store.slot(i)], copy.depths()[copy.slot(i)]);
+            assertEquals(store.serials()[store.slot(i)], copy.serials()[copy.slot(i)]);
+            assertEquals(store.images()[store.slot(i)], copy.images()[copy.slot(i)]);
+        }
+        // Newest layer has the highest serial; serials drop by one per position
+        assertEquals(5, copy.serials()[copy.slot(0)]);
+        assertEquals(4, copy.serials()[copy.slot(1)]);
+    }
+
+}
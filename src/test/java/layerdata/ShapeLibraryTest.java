@@ -0,0 +1,73 @@
+package layerdata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the shape generators and the cache of {@link ShapeLibrary}.
+ */
+public class ShapeLibraryTest {
+
+    @Test
+    public void sameKeyReturnsSameInstance() {
+        ShapeLibrary library = new ShapeLibrary(4);
+        Shape star = library.get(ShapeLibrary.STAR, 40, 300.0f);
+
+        assertSame(star, library.get(ShapeLibrary.STAR, 40, 300.0f));
+        assertNotSame(star, library.get(ShapeLibrary.STAR, 40, 250.0f));
+        assertNotSame(star, library.get(ShapeLibrary.STAR, 30, 300.0f));
+        assertSame(Layer.createShape(), library.get(ShapeLibrary.CLASSIC, 99, 1.0f));
+        assertEquals(3, library.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedShape() {
+        ShapeLibrary library = new ShapeLibrary(2);
+        Shape circle = library.get(ShapeLibrary.CIRCLE, 16, 300.0f);
+        Shape cross = library.get(ShapeLibrary.CROSS, 24, 300.0f);
+
+        // Touch the circle, so adding a third shape drops the cross
+        library.get(ShapeLibrary.CIRCLE, 16, 300.0f);
+        library.get(ShapeLibrary.TRIANGLE, 12, 300.0f);
+
+        assertEquals(2, library.size());
+        assertSame(circle, library.get(ShapeLibrary.CIRCLE, 16, 300.0f));
+        assertNotSame(cross, library.get(ShapeLibrary.CROSS, 24, 300.0f));
+    }
+
+    @Test
+    public void pointsLieOnTheOutline() {
+        Shape circle = new Shape(ShapeLibrary.circle(32, 200.0f));
+        assertEquals(32, circle.size());
+        assertEquals(200.0f, circle.innerRadius(), 1e-3f);
+        assertEquals(200.0f, circle.outerRadius(), 1e-3f);
+
+        // 4 points per side of a square: corners at the radius, edge midpoints at r / sqrt(2)
+        Shape square = new Shape(ShapeLibrary.polygon(4, 16, 300.0f));
+        assertEquals(16, square.size());
+        assertEquals(300.0f, square.outerRadius(), 1e-3f);
+        assertEquals(300.0f / (float) Math.sqrt(2.0), square.innerRadius(), 1e-3f);
+        assertEquals(0.0f, square.getX(0), 1e-3f);
+        assertEquals(300.0f, square.getY(0), 1e-3f);
+
+        Shape star = new Shape(ShapeLibrary.star(10, 300.0f));
+        assertEquals(300.0f, star.outerRadius(), 1e-3f);
+        assertEquals(300.0f * 0.45f, star.innerRadius(), 1e-3f);
+
+        Shape cross = new Shape(ShapeLibrary.cross(12, 300.0f));
+        assertEquals(100.0f * (float) Math.sqrt(10.0), cross.outerRadius(), 1e-3f);
+    }
+
+    @Test
+    public void rejectsUnknownShapesAndEmptyOutlines() {
+        ShapeLibrary library = new ShapeLibrary(4);
+        assertThrows(IllegalArgumentException.class, () -> library.get(42, 16, 300.0f));
+        assertThrows(IllegalArgumentException.class, () -> library.get(ShapeLibrary.CIRCLE, 0, 300.0f));
+        assertThrows(IllegalArgumentException.class, () -> new ShapeLibrary(0));
+    }
+
+}
@@ -0,0 +1,77 @@
+package rendering;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import layerdata.LayerStore;
+import main.Config;
+
+/**
+ * The per-layer effect math on its own: angle updates for every layer of a scene
+ * and the cos/sin lookup done once per layer while projecting, each with the
+ * {@link Math} functions and with the lookup table of the fast trig mode.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=EffectsBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EffectsBenchmark {
+
+    private static final float STEP = 1.0f / 120.0f;
+
+    @Param({"100", "400", "1600"})
+    public int layerCount;
+
+    /** 4: constant per-layer rotation, 6: per-layer oscillation */
+    @Param({"4", "6"})
+    public int rotationMode;
+
+    @Param({"false", "true"})
+    public boolean fastTrig;
+
+    private Effects effects;
+    private LayerStore layers;
+    private final float[] cosSin = new float[2];
+
+    @Setup
+    public void setup() {
+        Config.get().fastTrig = fastTrig;
+        Scene scene = SceneBenchmark.createScene(Config.get(), layerCount, 16, rotationMode);
+        effects = scene.getEffects();
+        layers = scene.getLayers();
+    }
+
+    @Benchmark
+    public float[] calculateLayerAngles() {
+        float[] angles = layers.angles();
+        for (int i = 0; i < layers.size(); i++) {
+            int slot = layers.slot(i);
+            angles[slot] = effects.calculateLayerAngle(layers, slot, STEP);
+        }
+        return angles;
+    }
+
+    @Benchmark
+    public void getAngles(Blackhole bh) {
+        float[] angles = layers.angles();
+        for (int i = 0; i < layers.size(); i++) {
+            effects.getAngles(angles[layers.slot(i)], cosSin);
+            bh.consume(cosSin[0] + cosSin[1]);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import layerdata.Layer;
+import layerdata.LayerStore;
+
+public class ImpostorPlannerTest {
+
+    /**
+     * 32 layers from z = 1000 (serial 0, nearest) to z = 4100 (serial 31, farthest),
+     * 100 units apart: four full groups of eight.
+     */
+    private static LayerStore createLayers() {
+        LayerStore layers = new LayerStore(40, Layer.createShape());
+        for (int i = 0; i < 32; i++) {
+            int slot = layers.pushFront(1000 + 100 * i);
+            layers.setColor(slot, new float[]{0.5f, 0.5f, 0.5f, 1.0f});
+        }
+        return layers;
+    }
+
+    /** LOD beyond z = 1000, 256 texel impostors, 1 pixel error, the default camera and viewport. */
+    private static ImpostorPlanner createPlanner() {
+        return new ImpostorPlanner(40, 8, 1000.0f, 256, 1.0f, 300.0f, 0.15f, 1920, 1080, 1080);
+    }
+
+    private static void moveAll(LayerStore layers, float dz) {
+        for (int i = 0; i < layers.size(); i++) {
+            layers.depths()[layers.slot(i)] += dz;
+        }
+    }
+
+    @Test
+    public void groupsBySerialBlockAndStopsAtLodDistance() {
+        LayerStore layers = createLayers();
+        ImpostorPlanner planner = createPlanner();
+
+        // The nearest group reaches down to z = 1000, which is not beyond the LOD distance
+        assertEquals(24, planner.plan(layers, 0, 0.0f));
+        assertEquals(3, planner.getGroupCount());
+        for (int g = 0; g < 3; g++) {
+            assertEquals(8 * g, planner.getGroupFirst(g));
+            assertEquals(8, planner.getGroupLength(g));
+            assertTrue(planner.isStale(g));
+            assertEquals(1.0f, planner.getGroupScale(g));
+        }
+
+        planner.plan(layers, 0, 0.0f);
+        for (int g = 0; g < 3; g++) {
+            assertFalse(planner.isStale(g));
+        }
+        assertEquals(3, planner.getRerenders());
+    }
+
+    @Test
+    public void smallDepthDriftKeepsImpostorsAndLargeDriftRerendersThem() {
+        LayerStore layers = createLayers();
+        ImpostorPlanner planner = createPlanner();
+        planner.plan(layers, 0, 0.0f);
+
+        // Scaling the quad by z0 / z of the nearest layer is off by far less than a pixel here
+        moveAll(layers, -20.0f);
+        planner.plan(layers, 0, 0.0f);
+        for (int g = 0; g < planner.getGroupCount(); g++) {
+            assertFalse(planner.isStale(g));
+            assertTrue(planner.getGroupScale(g) > 1.0f);
+        }
+
+        // Halving the distance of the farthest group spreads its layers apart visibly
+        moveAll(layers, -1700.0f);
+        planner.plan(layers, 0, 0.0f);
+        assertTrue(planner.isStale(0));
+        assertEquals(1.0f, planner.getGroupScale(0));
+    }
+
+    @Test
+    public void uniformRotationTurnsTheQuadAndRecolorRerenders() {
+        LayerStore layers = createLayers();
+        ImpostorPlanner planner = createPlanner();
+        planner.plan(layers, 1, 10.0f);
+
+        // A global rotation turns every layer of a group alike; only the upright sprites differ
+        planner.plan(layers, 1, 10.5f);
+        assertFalse(planner.isStale(0));
+        assertEquals(Math.toRadians(0.5), planner.getGroupTurn(0), 1e-6);
+
+        layers.colors()[layers.slot(3) * LayerStore.COLOR_STRIDE] = 0.6f;
+        planner.plan(layers, 1, 10.5f);
+        assertTrue(planner.isStale(0));
+        assertFalse(planner.isStale(1));
+        assertEquals(0.0f, planner.getGroupTurn(0));
+    }
+
+    @Test
+    public void layersTurningApartRerender() {
+        LayerStore layers = createLayers();
+        ImpostorPlanner planner = createPlanner();
+        planner.plan(layers, 6, 0.0f);
+
+        // One layer of the farthest group swings by five degrees: its outer points move ~2 pixels
+        layers.angles()[layers.slot(0)] = 5.0f;
+        planner.plan(layers, 6, 0.0f);
+        assertTrue(planner.isStale(0));
+        assertFalse(planner.isStale(1));
+    }
+
+    @Test
+    public void spawnIntoPartialGroupRerendersOnlyThatGroup() {
+        LayerStore layers = createLayers();
+        layers.pushFront(4200);
+        ImpostorPlanner planner = createPlanner();
+        planner.plan(layers, 0, 0.0f);
+        assertEquals(1, planner.getGroupLength(0));
+
+        layers.pushFront(4300);
+        planner.plan(layers, 0, 0.0f);
+        assertEquals(2, planner.getGroupLength(0));
+        assertTrue(planner.isStale(0));
+        assertFalse(planner.isStale(1));
+    }
+
+}
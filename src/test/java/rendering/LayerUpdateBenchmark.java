@@ -0,0 +1,59 @@
+package rendering;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.Config;
+
+/**
+ * One fixed update step of large scenes, serial against fork/join. The layer count where
+ * {@code parallel=true} overtakes {@code parallel=false} is the value to use for
+ * {@link Config#parallelUpdateThreshold} on the machine.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=LayerUpdateBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayerUpdateBenchmark {
+
+    private static final float STEP = 1.0f / 120.0f;
+
+    @Param({"1000", "4000", "16000", "64000"})
+    public int layerCount;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    /** 0: layers only move, 5: every layer rotates, 6: every layer oscillates (sine per layer) */
+    @Param({"0", "5", "6"})
+    public int rotationMode;
+
+    private Scene scene;
+
+    @Setup
+    public void setup() {
+        scene = SceneBenchmark.createScene(Config.get(), layerCount, 16, rotationMode);
+        // Threshold 0 forks every step; one thread keeps the serial loop
+        scene.setParallelUpdate(parallel ? 0 : 1, 0);
+    }
+
+    @Benchmark
+    public Scene update() {
+        scene.update(STEP);
+        return scene;
+    }
+}
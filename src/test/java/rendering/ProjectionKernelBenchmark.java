@@ -0,0 +1,86 @@
+package rendering;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.Config;
+
+/**
+ * Scalar against Vector API projection: the bare kernel on one layer's points, and the
+ * whole sprite projection of a 400-layer scene. Compare runs on AVX2 and AVX-512 hosts;
+ * the vector kernel reports its width through {@link ProjectionKernel#name()}, printed
+ * in the setup. Without {@code --add-modules jdk.incubator.vector} both cases run scalar.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=ProjectionKernelBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionKernelBenchmark {
+
+    @Param({"16", "64", "256", "1024"})
+    public int pointsPerShape;
+
+    @Param({"false", "true"})
+    public boolean vector;
+
+    private ProjectionKernel kernel;
+    private float[] xs;
+    private float[] ys;
+    private float[] ndcX;
+    private float[] ndcY;
+
+    private Scene scene;
+    private SpriteProjector projector;
+    private FloatBuffer sprites;
+
+    @Setup
+    public void setup() {
+        kernel = vector ? ProjectionKernel.create(true) : new ScalarProjectionKernel();
+        System.out.println("kernel: " + kernel.name());
+
+        xs = new float[pointsPerShape];
+        ys = new float[pointsPerShape];
+        ndcX = new float[pointsPerShape];
+        ndcY = new float[pointsPerShape];
+        for (int i = 0; i < pointsPerShape; i++) {
+            double phi = 2.0 * Math.PI * i / pointsPerShape;
+            xs[i] = (float) (260.0 * Math.cos(phi));
+            ys[i] = (float) (260.0 * Math.sin(phi));
+        }
+
+        Config cfg = Config.get();
+        // Whole-scene rotation, so every layer goes through a real rotation
+        scene = SceneBenchmark.createScene(cfg, 400, pointsPerShape, 1);
+        projector = new SpriteProjector(cfg, scene.getEffects());
+        projector.setKernel(kernel);
+        sprites = FloatBuffer.allocate(scene.getLayers().capacity() * pointsPerShape * Quad.INSTANCE_FLOATS);
+    }
+
+    @Benchmark
+    public float[] kernel() {
+        kernel.project(xs, ys, pointsPerShape, 0.8f, 0.6f, 3.1e-4f, 5.5e-4f, ndcX, ndcY);
+        return ndcX;
+    }
+
+    @Benchmark
+    public FloatBuffer projectSprites() {
+        sprites.clear();
+        projector.project(scene, sprites);
+        return sprites;
+    }
+}
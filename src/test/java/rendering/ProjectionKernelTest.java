@@ -0,0 +1,70 @@
+package rendering;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.FloatBuffer;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import layerdata.Layer;
+import main.Config;
+import utility.SimulatedClock;
+import utility.Timer;
+
+public class ProjectionKernelTest {
+
+    @Test
+    public void vectorKernelMatchesScalarKernelExactly() {
+        ProjectionKernel vector = ProjectionKernel.create(true);
+        assumeTrue(vector instanceof VectorProjectionKernel, "JVM runs without jdk.incubator.vector");
+        ProjectionKernel scalar = new ScalarProjectionKernel();
+
+        // 37 points: full vectors of any width plus a scalar tail
+        SplittableRandom random = new SplittableRandom(5L);
+        int count = 37;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = (float) random.nextDouble(-300.0, 300.0);
+            ys[i] = (float) random.nextDouble(-300.0, 300.0);
+        }
+
+        float[] scalarX = new float[count];
+        float[] scalarY = new float[count];
+        float[] vectorX = new float[count];
+        float[] vectorY = new float[count];
+        float cos = (float) Math.cos(0.7);
+        float sin = (float) Math.sin(0.7);
+        scalar.project(xs, ys, count, cos, sin, 3.1e-4f, 5.5e-4f, scalarX, scalarY);
+        vector.project(xs, ys, count, cos, sin, 3.1e-4f, 5.5e-4f, vectorX, vectorY);
+        assertArrayEquals(scalarX, vectorX);
+        assertArrayEquals(scalarY, vectorY);
+    }
+
+    @Test
+    public void projectorWritesTheSameInstancesWithEitherKernel() {
+        Scene scene = new Scene(Config.get(), Layer.createShape(), false,
+                new Timer(Scene.MODE_DURATION, new SimulatedClock(1.0)), new SplittableRandom(9L));
+        scene.rotationMode = 3;
+        for (int step = 0; step < 120; step++) {
+            scene.update(1.0f / 120.0f);
+        }
+
+        SpriteProjector projector = new SpriteProjector(Config.get(), scene.getEffects());
+        int floats = SpriteProjector.spriteCount(scene) * Quad.INSTANCE_FLOATS;
+        FloatBuffer expected = FloatBuffer.allocate(floats);
+        FloatBuffer actual = FloatBuffer.allocate(floats);
+
+        projector.setKernel(new ScalarProjectionKernel());
+        int written = projector.project(scene, expected);
+        projector.setKernel(ProjectionKernel.create(true));
+        assertEquals(written, projector.project(scene, actual));
+        assertTrue(written > 0);
+        assertArrayEquals(expected.array(), actual.array());
+    }
+
+}
@@ -0,0 +1,118 @@
+package rendering;
+
+import java.nio.FloatBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import layerdata.Layer;
+import layerdata.Shape;
+import main.Config;
+import utility.SimulatedClock;
+import utility.Timer;
+
+/**
+ * Per-frame CPU cost of the scene: one fixed update step (layer movement, spawn,
+ * removal and per-layer rotation) and the render preparation of the sprite paths
+ * (rotation and projection into the instance buffer) and of the GPU projected path.
+ * No GL context is involved; the instance buffer is an ordinary heap buffer.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=SceneBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneBenchmark {
+
+    private static final float STEP = 1.0f / 120.0f;
+
+    @Param({"100", "400", "1600"})
+    public int layerCount;
+
+    @Param({"16", "64", "256"})
+    public int pointsPerShape;
+
+    /** 0: none, 3: whole scene oscillates, 6: every layer oscillates */
+    @Param({"0", "3", "6"})
+    public int rotationMode;
+
+    private Scene scene;
+    private SpriteProjector projector;
+    private FloatBuffer sprites;
+    private FloatBuffer layerInstances;
+
+    @Setup
+    public void setup() {
+        Config cfg = Config.get();
+        scene = createScene(cfg, layerCount, pointsPerShape, rotationMode);
+        projector = new SpriteProjector(cfg, scene.getEffects());
+
+        // Room for the scene at its largest, spawned layers included
+        int maxLayers = scene.getLayers().capacity();
+        sprites = FloatBuffer.allocate(maxLayers * pointsPerShape * Quad.INSTANCE_FLOATS);
+        layerInstances = FloatBuffer.allocate(maxLayers * Quad.LAYER_INSTANCE_FLOATS);
+    }
+
+    @Benchmark
+    public Scene update() {
+        scene.update(STEP);
+        return scene;
+    }
+
+    @Benchmark
+    public FloatBuffer projectSprites() {
+        sprites.clear();
+        projector.project(scene, sprites);
+        return sprites;
+    }
+
+    @Benchmark
+    public FloatBuffer packLayers() {
+        layerInstances.clear();
+        projector.packLayers(scene, layerInstances);
+        return layerInstances;
+    }
+
+    /**
+     * Builds a scene holding about {@code layerCount} layers of a {@code points}-point shape,
+     * locked to the given rotation mode.
+     */
+    static Scene createScene(Config cfg, int layerCount, int points, int rotationMode) {
+        cfg.initZ = cfg.INIT_FRONT_DISTANCE + layerCount * cfg.LAYER_DISTANCE;
+        // A clock that never advances keeps the mode timer from changing the rotation mode;
+        // a fixed seed gives every fork the same colors
+        Scene scene = new Scene(cfg, createShape(points), false,
+                new Timer(Scene.MODE_DURATION, new SimulatedClock(1.0)), new SplittableRandom(42));
+        scene.rotationMode = rotationMode;
+        return scene;
+    }
+
+    /**
+     * Returns the default shape for 16 points, otherwise a ring of the given number of points.
+     */
+    static Shape createShape(int points) {
+        if (points == 16) {
+            return Layer.createShape();
+        }
+        float[] xy = new float[points * 2];
+        for (int i = 0; i < points; i++) {
+            double phi = 2.0 * Math.PI * i / points;
+            xy[2 * i] = (float) (260.0 * Math.cos(phi));
+            xy[2 * i + 1] = (float) (260.0 * Math.sin(phi));
+        }
+        return new Shape(xy);
+    }
+}
@@ -0,0 +1,130 @@
+package rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import layerdata.LayerStore;
+
+public class SceneSnapshotTest {
+
+    @Test
+    public void interpolatesDepthOfLayersPresentInBoth() {
+        Scene scene = SceneTest.createScene();
+        SceneSnapshot from = new SceneSnapshot(scene);
+        SceneSnapshot to = new SceneSnapshot(scene);
+        SceneSnapshot mid = new SceneSnapshot(scene);
+
+        from.capture(scene, 1_000);
+        // Enough steps for layers to spawn and be removed in between
+        for (int i = 0; i < 600; i++) scene.update(1.0f / 120.0f);
+        to.capture(scene, 3_000);
+
+        mid.interpolate(from, to, 2_000);
+
+        LayerStore a = from.getLayers();
+        LayerStore b = to.getLayers();
+        LayerStore m = mid.getLayers();
+        assertEquals(b.size(), m.size());
+        int matched = 0;
+        for (int i = 0; i < m.size(); i++) {
+            int serial = m.serials()[m.slot(i)];
+            int olderIndex = a.serials()[a.slot(0)] - serial;
+            float newer = b.depths()[b.slot(i)];
+            if (olderIndex >= 0 && olderIndex < a.size()) {
+                float older = a.depths()[a.slot(olderIndex)];
+                assertEquals((older + newer) / 2.0f, m.depths()[m.slot(i)], 1e-2f);
+                matched++;
+            } else {
+                assertEquals(newer, m.depths()[m.slot(i)]);
+            }
+        }
+        assertTrue(matched > 0);
+    }
+
+    @Test
+    public void clampsOutsideTheSnapshotInterval() {
+        Scene scene = SceneTest.createScene();
+        SceneSnapshot from = new SceneSnapshot(scene);
+        SceneSnapshot to = new SceneSnapshot(scene);
+        SceneSnapshot result = new SceneSnapshot(scene);
+
+        from.capture(scene, 0);
+        scene.update(0.5f);
+        to.capture(scene, 1_000);
+
+        result.interpolate(from, to, 5_000);
+        LayerStore layers = result.getLayers();
+        assertEquals(to.getLayers().depths()[to.getLayers().slot(0)], layers.depths()[layers.slot(0)]);
+        assertEquals(1_000, result.getTimeNanos());
+    }
+
+    @Test
+    public void anglesTakeTheShorterArc() {
+        assertEquals(0.0f, SceneSnapshot.lerpAngle(350.0f, 10.0f, 0.5f), 1e-4f);
+        assertEquals(355.0f, SceneSnapshot.lerpAngle(10.0f, 340.0f, 0.5f), 1e-4f);
+        assertEquals(90.0f, SceneSnapshot.lerpAngle(80.0f, 100.0f, 0.5f), 1e-4f);
+    }
+
+    @Test
+    public void exchangeDeliversNewestSnapshotAndKeepsPrevious() {
+        SnapshotExchange exchange = new SnapshotExchange(SceneTest.createScene());
+        assertFalse(exchange.acquire());
+
+        // The first snapshot is replaced before the consumer reads it
+        exchange.publish();
+        SceneSnapshot second = exchange.getBack();
+        exchange.publish();
+
+        assertTrue(exchange.acquire());
+        assertSame(second, exchange.getCurrent());
+        assertFalse(exchange.acquire());
+
+        SceneSnapshot third = exchange.getBack();
+        exchange.publish();
+        assertTrue(exchange.acquire());
+        assertSame(third, exchange.getCurrent());
+        assertSame(second, exchange.getPrevious());
+    }
+
+    @Test
+    public void producerNeverWritesSnapshotsHeldByConsumer() throws InterruptedException {
+        SnapshotExchange exchange = new SnapshotExchange(SceneTest.createScene());
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean overlap = new AtomicBoolean(false);
+        Set<SceneSnapshot> held = Collections.synchronizedSet(new HashSet<>());
+
+        Thread producer = new Thread(() -> {
+            while (running.get()) {
+                if (held.contains(exchange.getBack())) overlap.set(true);
+                exchange.publish();
+            }
+        });
+        producer.start();
+        held.add(exchange.getPrevious());
+        held.add(exchange.getCurrent());
+        for (int i = 0; i < 100_000; i++) {
+            // acquire() hands the previous snapshot back, so it must leave the set first;
+            // the new current one came from the exchange and was never the producer's
+            SceneSnapshot released = exchange.getPrevious();
+            held.remove(released);
+            if (exchange.acquire()) {
+                held.add(exchange.getCurrent());
+            } else {
+                held.add(released);
+            }
+        }
+        running.set(false);
+        producer.join();
+        assertFalse(overlap.get());
+    }
+
+}
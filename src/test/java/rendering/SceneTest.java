@@ -0,0 +1,209 @@
+package rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.FloatBuffer;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import layerdata.Layer;
+import layerdata.LayerStore;
+import main.Config;
+import utility.SimulatedClock;
+import utility.Timer;
+
+public class SceneTest {
+
+    /**
+     * @return a scene with the default shape and a mode timer that never elapses; also
+     *         used by {@link SceneSnapshotTest}
+     */
+    static Scene createScene() {
+        return new Scene(Config.get(), Layer.createShape(), false, new Timer(Scene.MODE_DURATION, () -> 0.0));
+    }
+
+    @Test
+    public void layersStayDepthOrderedWhileMoving() {
+        Scene scene = createScene();
+        Config cfg = Config.get();
+        for (int step = 0; step < 2000; step++) {
+            scene.update(1.0f / 120.0f);
+
+            LayerStore layers = scene.getLayers();
+            float[] depths = layers.depths();
+            for (int i = 1; i < layers.size(); i++) {
+                assertTrue(depths[layers.slot(i - 1)] >= depths[layers.slot(i)]);
+            }
+            assertTrue(layers.isEmpty() || layers.backZ() >= cfg.REMOVE_LAYER_DISTANCE);
+        }
+    }
+
+    @Test
+    public void projectorWritesOneInstancePerSprite() {
+        Scene scene = createScene();
+        SpriteProjector projector = new SpriteProjector(Config.get(), scene.getEffects());
+
+        int sprites = SpriteProjector.spriteCount(scene);
+        FloatBuffer out = FloatBuffer.allocate(sprites * Quad.INSTANCE_FLOATS);
+        assertEquals(sprites, projector.project(scene, out));
+        assertEquals(0, out.remaining());
+
+        FloatBuffer layers = FloatBuffer.allocate(scene.getLayers().size() * Quad.LAYER_INSTANCE_FLOATS);
+        assertEquals(scene.getLayers().size(), projector.packLayers(scene, layers));
+    }
+
+    @Test
+    public void cullingSkipsOffscreenAndSubPixelSprites() {
+        Config cfg = Config.get();
+        Scene scene = createScene();
+        SpriteProjector projector = new SpriteProjector(cfg.FOCAL_LENGTH, cfg.BASE_IMAGE_SCALE, 1920, 1080,
+                scene.getEffects());
+        LayerStore layers = new LayerStore(4, Layer.createShape());
+        layers.pushFront(5.0f);     // near: the whole ring lies far outside the viewport
+        layers.pushFront(1000.0f);  // visible
+        layers.pushFront(1.0e7f);   // far: sprites well below a pixel
+        int sprites = SpriteProjector.spriteCount(layers);
+        int perLayer = layers.getShape().size();
+        FloatBuffer out = FloatBuffer.allocate(sprites * Quad.INSTANCE_FLOATS);
+
+        projector.setCulling(false, 1.0f, 1080);
+        assertEquals(sprites, projector.project(layers, 0, 0.0f, out));
+
+        projector.setCulling(true, 1.0f, 1080);
+        out.clear();
+        assertEquals(perLayer, projector.project(layers, 0, 0.0f, out));
+        assertEquals(perLayer, projector.getDrawnSprites());
+        assertEquals(2 * perLayer, projector.getCulledSprites());
+
+        FloatBuffer packed = FloatBuffer.allocate(layers.size() * Quad.LAYER_INSTANCE_FLOATS);
+        assertEquals(1, projector.packLayers(layers, 0, 0.0f, packed));
+        assertEquals(1000.0f, packed.get(0));
+    }
+
+    @Test
+    public void cullingKeepsSpritesOverlappingTheEdge() {
+        Config cfg = Config.get();
+        Scene scene = createScene();
+        SpriteProjector projector = new SpriteProjector(cfg.FOCAL_LENGTH, cfg.BASE_IMAGE_SCALE, 1920, 1080,
+                scene.getEffects());
+        projector.setCulling(true, 1.0f, 1080);
+        LayerStore layers = new LayerStore(1, Layer.createShape());
+        // Point (0, 260) lands 15 px above the top edge; half a sprite is ~86 px, so it still shows
+        layers.pushFront(cfg.FOCAL_LENGTH * 260.0f / 555.0f);
+
+        FloatBuffer out = FloatBuffer.allocate(SpriteProjector.spriteCount(layers) * Quad.INSTANCE_FLOATS);
+        projector.project(layers, 0, 0.0f, out);
+        boolean found = false;
+        for (int i = 0; i < projector.getDrawnSprites(); i++) {
+            float ndcY = out.get(i * Quad.INSTANCE_FLOATS + 1);
+            if (ndcY > 1.0f) found = true;
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void projectionMatchesPinholeCamera() {
+        Config cfg = Config.get();
+        Scene scene = createScene();
+        SpriteProjector projector = new SpriteProjector(cfg, scene.getEffects());
+
+        FloatBuffer out = FloatBuffer.allocate(SpriteProjector.spriteCount(scene) * Quad.INSTANCE_FLOATS);
+        projector.project(scene, out);
+
+        // First instance: first point of the farthest layer, no rotation in mode 0
+        LayerStore layers = scene.getLayers();
+        float z = layers.depths()[layers.slot(0)];
+        float x = layers.getShape().getX(0);
+        float y = layers.getShape().getY(0);
+        float scale = cfg.FOCAL_LENGTH / z;
+        assertEquals(x * scale / (cfg.virtualWidth / 2.0f), out.get(0), 1e-5f);
+        assertEquals(y * scale / (cfg.virtualHeight / 2.0f), out.get(1), 1e-5f);
+        assertEquals(scale * cfg.BASE_IMAGE_SCALE, out.get(2), 1e-7f);
+    }
+
+    @Test
+    public void projectionWritesTheAtlasRectOfEachLayer() {
+        Scene scene = createScene();
+        SpriteProjector projector = new SpriteProjector(Config.get(), scene.getEffects());
+        float[] rects = {0.0f, 0.0f, 0.5f, 0.5f, 0.5f, 0.0f, 0.5f, 0.5f};
+        projector.setImageRects(rects);
+        scene.setImages(2, 1);
+
+        FloatBuffer out = FloatBuffer.allocate(SpriteProjector.spriteCount(scene) * Quad.INSTANCE_FLOATS);
+        projector.project(scene, out);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(rects[4 + i], out.get(7 + i));
+        }
+
+        FloatBuffer layers = FloatBuffer.allocate(scene.getLayers().size() * Quad.LAYER_INSTANCE_FLOATS);
+        projector.packLayers(scene, layers);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(rects[4 + i], layers.get(6 + i));
+        }
+    }
+
+    @Test
+    public void sameSeedAndClockReplayTheSameStates() {
+        long[] first = replay(7L, 1500);
+        long[] second = replay(7L, 1500);
+        for (int i = 0; i < first.length; i++) {
+            assertEquals(first[i], second[i], "state differs after step " + i);
+        }
+        assertNotEquals(first[first.length - 1], replay(8L, 1500)[first.length - 1]);
+    }
+
+    @Test
+    public void parallelUpdateMatchesSerialUpdate() {
+        Config cfg = Config.get();
+        int initZ = cfg.initZ;
+        try {
+            // About 2000 layers, enough to be split into several chunks
+            cfg.initZ = cfg.INIT_FRONT_DISTANCE + 2000 * cfg.LAYER_DISTANCE;
+            Scene serial = createLargeScene(1);
+            Scene parallel = createLargeScene(4);
+            for (int step = 0; step < 300; step++) {
+                serial.update(1.0f / 120.0f);
+                parallel.update(1.0f / 120.0f);
+                assertEquals(serial.stateHash(), parallel.stateHash(), "state differs after step " + step);
+            }
+            assertTrue(serial.getLayers().size() > 2 * ParallelLayerUpdate.MIN_CHUNK);
+        } finally {
+            cfg.initZ = initZ;
+        }
+    }
+
+    /**
+     * A scene of the configured size with oscillating layers, whose update splits across
+     * the given number of threads regardless of the configured threshold.
+     */
+    private static Scene createLargeScene(int threads) {
+        Scene scene = new Scene(Config.get(), Layer.createShape(), false,
+                new Timer(Scene.MODE_DURATION, new SimulatedClock(1.0)), new SplittableRandom(3L));
+        scene.rotationMode = 6;
+        scene.speed = 3000.0f;
+        scene.setParallelUpdate(threads, 0);
+        return scene;
+    }
+
+    /**
+     * Runs a scene on a simulated clock for the given steps, long enough for the
+     * mode timer to fire, and returns the state hash after every step.
+     */
+    private static long[] replay(long seed, int steps) {
+        float dt = 1.0f / 120.0f;
+        SimulatedClock clock = new SimulatedClock(dt);
+        Scene scene = new Scene(Config.get(), Layer.createShape(), false,
+                new Timer(Scene.MODE_DURATION, clock), new SplittableRandom(seed));
+        long[] hashes = new long[steps];
+        for (int step = 0; step < steps; step++) {
+            clock.advance();
+            scene.update(dt);
+            hashes[step] = scene.stateHash();
+        }
+        return hashes;
+    }
+
+}
@@ -0,0 +1,60 @@
+package utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AsyncTextureLoaderTest {
+
+    @Test
+    public void mipChainStopsWhenTheGutterIsOneTexel() {
+        assertEquals(4, AsyncTextureLoader.mipLevels(512, 256, 8));
+        assertEquals(1, AsyncTextureLoader.mipLevels(512, 256, 1));
+        assertEquals(2, AsyncTextureLoader.mipLevels(2, 2, 64));
+        assertEquals((4 * 4 + 2 * 2 + 1) * 4, AsyncTextureLoader.chainBytes(4, 4, 3));
+        assertEquals((4 * 2 + 2 * 1 + 1) * 4, AsyncTextureLoader.chainBytes(4, 2, 3));
+    }
+
+    @Test
+    public void mipLevelsAverageTwoByTwoBlocks() {
+        int levels = 3;
+        ByteBuffer chain = ByteBuffer.allocate((int) AsyncTextureLoader.chainBytes(4, 4, levels));
+        // Level 0: left half 0, right half 200, alpha 255
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                byte v = (byte) (x < 2 ? 0 : 200);
+                chain.put(v).put(v).put(v).put((byte) 255);
+            }
+        }
+        AsyncTextureLoader.buildMipChain(chain, 4, 4, levels);
+
+        int level1 = 4 * 4 * 4;
+        assertEquals(0, chain.get(level1) & 0xFF);
+        assertEquals(200, chain.get(level1 + 4) & 0xFF);
+        assertEquals(255, chain.get(level1 + 3) & 0xFF);
+        int level2 = level1 + 2 * 2 * 4;
+        assertEquals(100, chain.get(level2) & 0xFF);
+        assertEquals(255, chain.get(level2 + 3) & 0xFF);
+    }
+
+    @Test
+    public void cacheKeyFollowsTheSourceFiles(@TempDir Path dir) throws IOException {
+        Path png = dir.resolve("a.png");
+        Files.write(png, new byte[] {1, 2, 3});
+        File[] files = {png.toFile()};
+        String key = AsyncTextureLoader.cacheKey(files);
+        assertEquals(key, AsyncTextureLoader.cacheKey(files));
+
+        Files.write(png, new byte[] {1, 2, 3, 4});
+        assertNotEquals(key, AsyncTextureLoader.cacheKey(files));
+    }
+
+}
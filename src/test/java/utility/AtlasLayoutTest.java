@@ -0,0 +1,80 @@
+package utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class AtlasLayoutTest {
+
+    @Test
+    public void imagesWithGuttersNeverOverlap() {
+        int[] widths = {128, 128, 128, 64, 200, 30};
+        int[] heights = {128, 128, 128, 64, 40, 90};
+        int padding = 8;
+        AtlasLayout layout = AtlasLayout.pack(widths, heights, padding, 4096);
+
+        assertEquals(Integer.bitCount(layout.getWidth()), 1);
+        assertEquals(Integer.bitCount(layout.getHeight()), 1);
+        for (int a = 0; a < widths.length; a++) {
+            assertTrue(layout.getX(a) >= padding && layout.getY(a) >= padding);
+            assertTrue(layout.getX(a) + widths[a] + padding <= layout.getWidth());
+            assertTrue(layout.getY(a) + heights[a] + padding <= layout.getHeight());
+            for (int b = a + 1; b < widths.length; b++) {
+                boolean apart = layout.getX(a) + widths[a] + padding <= layout.getX(b) - padding
+                        || layout.getX(b) + widths[b] + padding <= layout.getX(a) - padding
+                        || layout.getY(a) + heights[a] + padding <= layout.getY(b) - padding
+                        || layout.getY(b) + heights[b] + padding <= layout.getY(a) - padding;
+                assertTrue(apart, "images " + a + " and " + b + " overlap");
+            }
+        }
+    }
+
+    @Test
+    public void uvRectsCoverTheImages() {
+        AtlasLayout layout = AtlasLayout.pack(new int[] {128, 128, 128}, new int[] {128, 128, 128}, 8, 4096);
+        float[] uv = layout.getUvRects();
+        for (int i = 0; i < 3; i++) {
+            assertEquals((float) layout.getX(i) / layout.getWidth(), uv[i * 4]);
+            assertEquals((float) layout.getY(i) / layout.getHeight(), uv[i * 4 + 1]);
+            assertEquals(128.0f / layout.getWidth(), uv[i * 4 + 2]);
+            assertEquals(128.0f / layout.getHeight(), uv[i * 4 + 3]);
+        }
+    }
+
+    @Test
+    public void gutterRepeatsTheEdgeTexels() {
+        // 2x2 image: texel value = 10 * row + col in every channel
+        ByteBuffer image = ByteBuffer.allocate(2 * 2 * 4);
+        for (int row = 0; row < 2; row++) {
+            for (int col = 0; col < 2; col++) {
+                for (int c = 0; c < 4; c++) image.put((byte) (10 * row + col));
+            }
+        }
+        AtlasLayout layout = AtlasLayout.pack(new int[] {2}, new int[] {2}, 2, 64);
+        ByteBuffer atlas = ByteBuffer.allocate(layout.getWidth() * layout.getHeight() * 4);
+        layout.copyImage(0, image, atlas);
+
+        int x0 = layout.getX(0), y0 = layout.getY(0);
+        assertEquals(0, texel(atlas, layout, x0 - 2, y0 - 2));
+        assertEquals(1, texel(atlas, layout, x0 + 3, y0 - 1));
+        assertEquals(10, texel(atlas, layout, x0 - 1, y0 + 3));
+        assertEquals(11, texel(atlas, layout, x0 + 1, y0 + 1));
+        assertFalse(layout.getWidth() > 64 || layout.getHeight() > 64);
+    }
+
+    @Test
+    public void rejectsImagesLargerThanTheLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AtlasLayout.pack(new int[] {300, 300}, new int[] {300, 300}, 8, 512));
+    }
+
+    private static int texel(ByteBuffer atlas, AtlasLayout layout, int x, int y) {
+        return atlas.get((y * layout.getWidth() + x) * 4);
+    }
+
+}
@@ -0,0 +1,88 @@
+package utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class FramePacerTest {
+
+    private static final long STEP = 1_000_000_000L / 60;
+
+    @Test
+    public void runsOneStepPerStepOfElapsedTime() {
+        long[] now = {0L};
+        FramePacer pacer = new FramePacer(60.0, 0.0, 5, () -> now[0]);
+
+        now[0] += STEP / 2;
+        assertEquals(0, pacer.beginFrame());
+        now[0] += STEP / 2 + 10;
+        assertEquals(1, pacer.beginFrame());
+        now[0] += 3 * STEP;
+        assertEquals(3, pacer.beginFrame());
+        assertEquals(0, pacer.getClampedFrames());
+    }
+
+    @Test
+    public void clampsLongFramesAndDropsTheBacklog() {
+        long[] now = {0L};
+        FramePacer pacer = new FramePacer(60.0, 0.0, 5, () -> now[0]);
+
+        now[0] += 20 * STEP + 10;
+        assertEquals(5, pacer.beginFrame());
+        assertEquals(1, pacer.getClampedFrames());
+        assertEquals(15, pacer.getDroppedSteps());
+
+        // The backlog is gone, the next frame only sees its own time
+        now[0] += STEP;
+        assertEquals(1, pacer.beginFrame());
+    }
+
+    @Test
+    public void skippedStepsDoNotAccumulate() {
+        long[] now = {0L};
+        FramePacer pacer = new FramePacer(60.0, 0.0, 5, () -> now[0]);
+
+        // A caller that never runs the steps (debug mode) must not build up a backlog
+        for (int i = 0; i < 100; i++) {
+            now[0] += STEP;
+            assertTrue(pacer.beginFrame() <= 1);
+        }
+        assertEquals(0, pacer.getDroppedSteps());
+    }
+
+    @Test
+    public void vsyncAlonePacesAtOrAboveTheRefreshRate() {
+        assertEquals(0.0, FramePacer.chooseFrameRate(0.0, 144, 1, 60.0));
+        assertEquals(0.0, FramePacer.chooseFrameRate(240.0, 144, 1, 60.0));
+        assertEquals(72.0, FramePacer.chooseFrameRate(72.0, 144, 1, 60.0));
+        assertEquals(144.0, FramePacer.chooseFrameRate(0.0, 144, 0, 60.0));
+        assertEquals(60.0, FramePacer.chooseFrameRate(0.0, 0, 1, 60.0));
+        assertEquals(0.0, FramePacer.chooseFrameRate(60.0, 120, 2, 60.0));
+    }
+
+    @Test
+    public void frameBudgetFollowsTheShownFrameRate() {
+        // Paced: the pacer's rate; vsync paced: refresh rate over swap interval
+        assertEquals(72.0, FramePacer.shownFrameRate(72.0, 144, 1, 120.0));
+        assertEquals(60.0, FramePacer.shownFrameRate(0.0, 60, 1, 120.0));
+        assertEquals(60.0, FramePacer.shownFrameRate(0.0, 120, 2, 120.0));
+        assertEquals(120.0, FramePacer.shownFrameRate(0.0, 0, 1, 120.0));
+    }
+
+    @Test
+    public void waitsUntilTheNextFrameIsDue() {
+        FramePacer pacer = new FramePacer(60.0, 200.0, 5);
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            pacer.beginFrame();
+            pacer.waitForNextFrame();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // 20 frames at 200 fps; late frames restart the schedule and can only add time
+        assertTrue(elapsed >= 20 * 5_000_000L - 5_000_000L, "elapsed " + elapsed);
+        assertEquals(20, pacer.getFrames());
+    }
+
+}
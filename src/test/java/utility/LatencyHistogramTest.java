@@ -0,0 +1,73 @@
+package utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getValueAtPercentile(99.0));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 50; v++) {
+            histogram.record(v);
+        }
+        assertEquals(25L, histogram.getValueAtPercentile(50.0));
+        assertEquals(50L, histogram.getValueAtPercentile(100.0));
+        assertEquals(50L, histogram.getMax());
+    }
+
+    @Test
+    public void percentilesStayWithinBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 ms .. 10 ms in 1 us steps
+        for (long v = 1_000_000; v <= 10_000_000; v += 1_000) {
+            histogram.record(v);
+        }
+        assertWithinResolution(5_500_000, histogram.getValueAtPercentile(50.0));
+        assertWithinResolution(9_910_000, histogram.getValueAtPercentile(99.0));
+        assertWithinResolution(9_991_000, histogram.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    public void tailIsVisibleNextToManyFastFrames() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 990; i++) histogram.record(8_000_000);
+        for (int i = 0; i < 10; i++) histogram.record(50_000_000);
+
+        assertWithinResolution(8_000_000, histogram.getValueAtPercentile(50.0));
+        assertWithinResolution(8_000_000, histogram.getValueAtPercentile(99.0));
+        assertWithinResolution(50_000_000, histogram.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    public void bucketsRoundTrip() {
+        for (long v = 1; v < (1L << 40); v = v * 3 + 1) {
+            long representative = LatencyHistogram.representativeValue(LatencyHistogram.indexOf(v));
+            assertEquals(LatencyHistogram.indexOf(v), LatencyHistogram.indexOf(representative));
+        }
+    }
+
+    @Test
+    public void resetClearsAllValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+        histogram.reset();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMax());
+    }
+
+    private static void assertWithinResolution(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 64 + 1,
+                "expected ~" + expected + " but was " + actual);
+    }
+
+}
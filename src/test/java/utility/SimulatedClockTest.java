@@ -0,0 +1,46 @@
+package utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class SimulatedClockTest {
+
+    @Test
+    public void timeFollowsTheFrameCountWithoutDrift() {
+        SimulatedClock clock = new SimulatedClock(1.0 / 60.0);
+        double summed = 0.0;
+        for (int i = 0; i < 216_000; i++) {
+            clock.advance();
+            summed += 1.0 / 60.0;
+        }
+        assertEquals(216_000, clock.getFrame());
+        assertEquals(3600.0, clock.seconds(), 1e-9);
+        assertTrue(Math.abs(summed - 3600.0) > Math.abs(clock.seconds() - 3600.0));
+    }
+
+    @Test
+    public void timerElapsesOnSimulatedTime() {
+        SimulatedClock clock = new SimulatedClock(0.5);
+        Timer timer = new Timer(2.0, clock);
+        for (int i = 0; i < 3; i++) {
+            clock.advance();
+            assertFalse(timer.isElapsed());
+        }
+        clock.advance();
+        assertTrue(timer.isElapsed());
+
+        timer.reset();
+        assertFalse(timer.isElapsed());
+    }
+
+    @Test
+    public void rejectsNonPositiveSteps() {
+        assertThrows(IllegalArgumentException.class, () -> new SimulatedClock(0.0));
+        assertThrows(IllegalArgumentException.class, () -> new SimulatedClock(Double.NaN));
+    }
+
+}
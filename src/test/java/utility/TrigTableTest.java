@@ -0,0 +1,50 @@
+package utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+public class TrigTableTest {
+
+    /** Rounding of the float lookups on top of the interpolation error. */
+    private static final double FLOAT_SLACK = 2e-7;
+
+    @ParameterizedTest
+    @ValueSource(ints = {256, 1024, 4096})
+    public void sinCosStaysWithinErrorBound(int size) {
+        TrigTable table = new TrigTable(size);
+        double bound = table.getMaxError() + FLOAT_SLACK;
+        float[] cosSin = new float[2];
+
+        for (float degrees = -720.0f; degrees <= 720.0f; degrees += 0.37f) {
+            table.sinCos(degrees, cosSin, 0);
+            double radians = Math.toRadians(degrees);
+            assertEquals(Math.cos(radians), cosSin[0], bound, "cos " + degrees);
+            assertEquals(Math.sin(radians), cosSin[1], bound, "sin " + degrees);
+        }
+    }
+
+    @Test
+    public void sinRadiansMatchesMath() {
+        TrigTable table = new TrigTable(4096);
+        double bound = table.getMaxError() + FLOAT_SLACK;
+        for (float radians = -20.0f; radians <= 20.0f; radians += 0.013f) {
+            assertEquals(Math.sin(radians), table.sinRadians(radians), bound, "sin " + radians);
+        }
+    }
+
+    @Test
+    public void defaultSizeIsSubPixelAt4k() {
+        // A point 4000 px from the rotation center moves by less than 1/100 px
+        assertEquals(0.0, new TrigTable(4096).getMaxError() * 4000.0, 0.01);
+    }
+
+    @Test
+    public void rejectsSizesThatAreNotPowersOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TrigTable(1000));
+    }
+
+}